@@ -0,0 +1,15 @@
+package android.extensions;
+
+/**
+ * Callback based variant of IUCPaginatedDatasource.
+ * UCPaginatedList calls fetchNextPage(page, callback) instead of fetchNextPage(page),
+ * the result is passed back through the callback instead of recievedDataSuccess / receivedDataError.
+ */
+public interface IUCAsyncPaginatedDatasource extends IUCDatasource {
+
+    /**
+     * Delegate to start getting data based on page number.
+     * Raw data is passed back through callback, which may be called on any thread.
+     */
+    void fetchNextPage(int page, IUCPaginatedCallback callback);
+}
@@ -0,0 +1,18 @@
+package android.extensions;
+
+/**
+ * Datasource which can also load pages before the first loaded one, e.g. older messages of a chat.
+ * UCPaginatedList calls fetchPreviousPage once the user scrolls to within
+ * addItemsOffsetBeforeNextPage rows of the top, rows of the page are inserted above the
+ * loaded ones without moving the rows on screen.
+ * Page numbers before page zero are -1, -2, ... unless the callback passes another one as nextPage,
+ * they must not collide with the numbers of the following pages.
+ */
+public interface IUCBidirectionalPaginatedDatasource extends IUCAsyncPaginatedDatasource {
+
+    /**
+     * Fetches the page before the loaded ones. In callback, nextPage is the page to fetch
+     * before this one and noMoreData is true if this is the first page.
+     */
+    void fetchPreviousPage(int page, IUCPaginatedCallback callback);
+}
@@ -0,0 +1,23 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Datasource of a homogeneous list whose rows are stored in columns, set through
+ * UCPaginatedList.addColumnarDataSourceDelegate. Every row is a UCColumnarRow, the handle passed
+ * as row to IUCPaginatedAdapter.onBindViewHolder, instead of an object with its own fields.
+ * It may implement IUCDatasourceComparison and IUCReferenceIdExtractor as well.
+ */
+public interface IUCColumnarPaginatedDatasource {
+
+    /**
+     * Delegate to start getting data based on page number, result is passed back through callback.
+     */
+    void fetchNextPage(int page, IUCPaginatedCallback callback);
+
+    /**
+     * Delegate to add a row to page for each row of data, through page.addRow().
+     * Called on a background thread if background parsing is enabled.
+     */
+    void parseDataArray(ArrayList<Object> data, UCColumnarPage page);
+}
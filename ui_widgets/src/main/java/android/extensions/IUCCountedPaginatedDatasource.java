@@ -0,0 +1,26 @@
+package android.extensions;
+
+/**
+ * Datasource of a backend which returns the total number of rows, e.g. an offset paginated API.
+ * UCPaginatedList shows the full item count once the first page is applied, with placeholder rows for
+ * the pages not loaded yet, so the scrollbar is stable and the user can jump anywhere in the list:
+ * 1. Pages are fetched through fetchNextPage when their placeholders come near the viewport,
+ *    instead of when the end of the loaded rows is reached
+ * 2. Requests for pages scrolled past before they arrived are dropped
+ * 3. Page n holds rows n * getPageSize() to (n + 1) * getPageSize() - 1, the last page may be shorter
+ * While a query or grouping is set only the loaded pages are shown, placeholders are not fetched.
+ * Implement IUCPaginatedDatasource or IUCAsyncPaginatedDatasource as well to fetch the pages.
+ */
+public interface IUCCountedPaginatedDatasource extends IUCDatasource {
+
+    /**
+     * Rows of every page but the last one, the total count is ignored unless it is positive.
+     */
+    int getPageSize();
+
+    /**
+     * Total number of rows or -1 while it is unknown. Called on the main thread after a page is applied,
+     * usually returns the count of the last response parsed.
+     */
+    int getTotalCount();
+}
@@ -0,0 +1,18 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Passed to IUCCursorPaginatedDatasource with every page request.
+ * Exactly one of the methods should be called once the page is fetched, from any thread.
+ */
+public interface IUCCursorCallback {
+
+    /**
+     * @param data       raw data of the page, parsed by IUCCursorPaginatedDatasource.parseDataArray
+     * @param nextCursor opaque cursor of the next page, null if this was the last page
+     */
+    void onSuccess(ArrayList<Object> data, String nextCursor);
+
+    void onError();
+}
@@ -0,0 +1,23 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Datasource for cursor / keyset paginated APIs, set through UCPaginatedList.addCursorDataSourceDelegate.
+ * Pages are fetched with the opaque cursor returned with the previous page, so a page is only
+ * requested once the one before it arrived. Rows whose reference id is already in the list are
+ * dropped, implement IUCReferenceIdExtractor as well to enable that.
+ * It may implement IUCDatasourceComparison as well.
+ */
+public interface IUCCursorPaginatedDatasource {
+
+    /**
+     * Delegate to start getting a page, cursor is null for the first page.
+     */
+    void fetchPage(String cursor, IUCCursorCallback callback);
+
+    /**
+     * Delegate to processed data, to render each row.
+     */
+    ArrayList<Object> parseDataArray(ArrayList<Object> data);
+}
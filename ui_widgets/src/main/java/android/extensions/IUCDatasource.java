@@ -0,0 +1,20 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Base of the datasource delegates of UCPaginatedList, it parses the raw data of a page into rows.
+ * Pages are fetched through one of
+ * 1. IUCPaginatedDatasource - fetchNextPage(page), results through recievedDataSuccess / recievedDataError
+ * 2. IUCAsyncPaginatedDatasource - fetchNextPage(page, callback)
+ * 3. IUCStreamingPaginatedDatasource - subscribe(page, subscriber)
+ */
+public interface IUCDatasource {
+
+    /**
+     * Delegate to processed data, to render each row.
+     * Returns process data to UCPaginatedList
+     * Called on a background thread, possibly for several pages at once, if background parsing is enabled.
+     */
+    ArrayList<Object> parseDataArray(ArrayList<Object> data);
+}
@@ -0,0 +1,14 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+/**
+ * Optional interface for the adapter delegate to render the headers of UCPaginatedList.addGrouping.
+ * Without it headers are TextViews showing String.valueOf(groupKey).
+ */
+public interface IUCGroupHeaderAdapter {
+    RecyclerView.ViewHolder onCreateGroupHeaderViewHolder(ViewGroup parent);
+
+    void onBindGroupHeaderViewHolder(RecyclerView.ViewHolder holder, Object groupKey);
+}
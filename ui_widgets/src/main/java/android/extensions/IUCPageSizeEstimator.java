@@ -0,0 +1,10 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Estimates memory held by a cached page, in the same unit as the UCPageCache memory budget.
+ */
+public interface IUCPageSizeEstimator {
+    long sizeOf(int page, ArrayList<Object> data, ArrayList<Object> parsedData);
+}
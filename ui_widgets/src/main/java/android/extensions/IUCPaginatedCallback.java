@@ -0,0 +1,20 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Passed to IUCAsyncPaginatedDatasource with every page request.
+ * Exactly one of the methods should be called once the page is fetched, from any thread.
+ * Calls for a request superseded by a page zero refresh are ignored.
+ */
+public interface IUCPaginatedCallback {
+
+    /**
+     * @param data       raw data of the page, parsed by IUCPaginatedDatasource.parseDataArray
+     * @param nextPage   page to be fetched next or UCPaginatedList.NO_NEXT_PAGE to use current page + 1
+     * @param noMoreData true if this was the last page
+     */
+    void onSuccess(ArrayList<Object> data, int nextPage, boolean noMoreData);
+
+    void onError();
+}
@@ -0,0 +1,45 @@
+package android.extensions;
+
+/**
+ * Listener for scroll performance of UCPaginatedList, set through addMetricsListener.
+ * All methods are called on the main thread and should return quickly, e.g. record into UCHistogram.
+ * UCPaginatedListMetrics aggregates all of them.
+ */
+public interface IUCPaginatedListMetrics {
+
+    /**
+     * Time from fetchNextPage until the datasource passed the page back. Not called for cached pages.
+     */
+    void onPageFetched(int page, long fetchMillis);
+
+    /**
+     * Time parseDataArray took for the page.
+     */
+    void onPageParsed(int page, int rowCount, long parseMillis);
+
+    /**
+     * The loading spinner was hidden after being visible for visibleMillis.
+     */
+    void onSpinnerHidden(long visibleMillis);
+
+    void onRowCreated(int viewType, long createNanos);
+
+    void onRowBound(int viewType, long bindNanos);
+
+    /**
+     * A row was created in idle time for UCSharedViewPool, not counted by onRowCreated.
+     */
+    void onRowPreInflated(int viewType, long createNanos);
+
+    /**
+     * Resources of a bound row, see addPreloader: hits were preloaded, loading were still being
+     * preloaded and misses were never requested or cancelled.
+     */
+    void onRowPreloadChecked(int hits, int loading, int misses);
+
+    /**
+     * Pages requested ahead of the viewport were dropped before being applied, e.g. the previous page
+     * was the last one, failed, or the list was refreshed.
+     */
+    void onPrefetchDropped(int pageCount);
+}
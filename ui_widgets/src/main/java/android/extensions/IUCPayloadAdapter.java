@@ -0,0 +1,20 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Optional interface for the adapter delegate to rebind only the views a change touched.
+ * Called instead of IUCPaginatedAdapter.onBindViewHolder when the row was changed through
+ * UCPaginatedList.updateItem or updateItemByReferenceId with a payload, e.g. a new counter value.
+ */
+public interface IUCPayloadAdapter {
+
+    /**
+     * @param payloads payloads of the changes since the row was last bound, never empty
+     */
+    void onBindViewHolder(RecyclerView.ViewHolder holder, int position, ArrayList<Object> data,
+                          List<Object> payloads);
+}
@@ -0,0 +1,14 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+/**
+ * Optional interface for the adapter delegate to render rows which are not loaded yet.
+ * Without it UCPaginatedList shows blank rows of the average row height.
+ */
+public interface IUCPlaceholderAdapter {
+    RecyclerView.ViewHolder onCreatePlaceholderViewHolder(ViewGroup parent);
+
+    void onBindPlaceholderViewHolder(RecyclerView.ViewHolder holder, int position);
+}
@@ -0,0 +1,16 @@
+package android.extensions;
+
+import java.util.List;
+
+/**
+ * Optional interface for the adapter delegate to have the heavy resources of rows, e.g. image urls,
+ * loaded before the rows are scrolled into view, see UCPaginatedList.addPreloader.
+ */
+public interface IUCPreloadAdapter {
+
+    /**
+     * Adds the resources shown by row to resources, keys passed to IUCPreloader.
+     * Called on the main thread for rows near the viewport and for every row bound, should be cheap.
+     */
+    void getPreloadResources(Object row, List<Object> resources);
+}
@@ -0,0 +1,19 @@
+package android.extensions;
+
+/**
+ * Loads the resources listed by IUCPreloadAdapter ahead of the viewport, usually into the memory or
+ * disk cache of the image library, see UCPaginatedList.addPreloader.
+ * Resources are compared with equals(), both methods are called on the main thread.
+ */
+public interface IUCPreloader {
+
+    /**
+     * Starts loading resource, onComplete must be run once it is loaded or failed, from any thread.
+     */
+    void preload(Object resource, Runnable onComplete);
+
+    /**
+     * Stops loading resource, e.g. when the scroll direction changed. onComplete may still be run.
+     */
+    void cancel(Object resource);
+}
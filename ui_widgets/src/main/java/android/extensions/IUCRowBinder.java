@@ -0,0 +1,13 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+/**
+ * Creates and binds the rows of one row class, registered in UCRowRegistry.
+ */
+public interface IUCRowBinder<R, VH extends RecyclerView.ViewHolder> {
+    VH onCreateViewHolder(ViewGroup parent);
+
+    void onBindViewHolder(VH holder, R row, int position);
+}
@@ -0,0 +1,27 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Passed to IUCStreamingPaginatedDatasource with every page request.
+ * onSubscribe is called first, then onRows with at most the requested number of rows in total,
+ * then exactly one of onComplete and onError. Calls may come from any thread, one at a time.
+ * Calls for a request superseded by a page zero refresh are ignored.
+ */
+public interface IUCRowSubscriber {
+
+    void onSubscribe(IUCRowSubscription subscription);
+
+    /**
+     * @param rows raw rows, parsed by IUCPaginatedDatasource.parseDataArray on the calling thread
+     */
+    void onRows(ArrayList<Object> rows);
+
+    /**
+     * @param nextPage   page to be fetched next or UCPaginatedList.NO_NEXT_PAGE to use current page + 1
+     * @param noMoreData true if this was the last page
+     */
+    void onComplete(int nextPage, boolean noMoreData);
+
+    void onError();
+}
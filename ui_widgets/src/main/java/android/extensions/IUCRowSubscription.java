@@ -0,0 +1,19 @@
+package android.extensions;
+
+/**
+ * Demand of UCPaginatedList for the rows of a page, see IUCStreamingPaginatedDatasource.
+ * Called on the main thread.
+ */
+public interface IUCRowSubscription {
+
+    /**
+     * Allows rowCount more rows to be passed to onRows, Long.MAX_VALUE allows all rows of the page.
+     */
+    void request(long rowCount);
+
+    /**
+     * The page is not needed anymore, e.g. after a page zero refresh or a timeout.
+     * The subscriber ignores calls made after it.
+     */
+    void cancel();
+}
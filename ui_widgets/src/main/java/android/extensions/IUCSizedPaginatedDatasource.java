@@ -0,0 +1,18 @@
+package android.extensions;
+
+/**
+ * Datasource which can load pages of any size, e.g. an offset / limit API.
+ * UCPaginatedList calls fetchNextPage(page, offset, pageSize, callback) instead of
+ * fetchNextPage(page, callback) and tunes the size of every page within addPageSizeRange from the
+ * measured fetch latency, parse cost, rows per screen and scroll velocity: a small first page,
+ * larger pages on fast scrolls and slow networks.
+ * Pages of IUCCountedPaginatedDatasource keep their fixed size.
+ */
+public interface IUCSizedPaginatedDatasource extends IUCAsyncPaginatedDatasource {
+
+    /**
+     * Delegate to fetch pageSize rows starting at row offset, the rows requested for the pages before
+     * this one. A page fetched again, e.g. retried or restored, is requested with the same range.
+     */
+    void fetchNextPage(int page, int offset, int pageSize, IUCPaginatedCallback callback);
+}
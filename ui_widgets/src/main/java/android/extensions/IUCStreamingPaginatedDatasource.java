@@ -0,0 +1,17 @@
+package android.extensions;
+
+/**
+ * Streaming variant of IUCPaginatedDatasource, e.g. for pages parsed from a streamed JSON response.
+ * UCPaginatedList calls subscribe(page, subscriber) instead of fetchNextPage(page) and pulls the rows
+ * of the page through IUCRowSubscription.request:
+ * 1. Rows of the page after the loaded ones are requested as the viewport gets close to the end
+ *    of the list and shown as they arrive, before the page is complete
+ * 2. Rows of other pages, e.g. prefetched ones, are requested up front and shown once the page is complete
+ */
+public interface IUCStreamingPaginatedDatasource extends IUCDatasource {
+
+    /**
+     * Delegate to start streaming the rows of page to subscriber, onSubscribe must be called first.
+     */
+    void subscribe(int page, IUCRowSubscriber subscriber);
+}
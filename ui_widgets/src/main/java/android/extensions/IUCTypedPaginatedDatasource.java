@@ -0,0 +1,23 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed variant of IUCAsyncPaginatedDatasource, set through UCPaginatedList.addTypedDataSourceDelegate.
+ * It may implement IUCDatasourceComparison and IUCReferenceIdExtractor as well.
+ *
+ * @param <T> common type of all parsed rows
+ */
+public interface IUCTypedPaginatedDatasource<T> {
+
+    /**
+     * Delegate to start getting data based on page number, result is passed back through callback.
+     */
+    void fetchNextPage(int page, IUCPaginatedCallback callback);
+
+    /**
+     * Delegate to processed data, to render each row.
+     */
+    List<? extends T> parseDataArray(ArrayList<Object> data);
+}
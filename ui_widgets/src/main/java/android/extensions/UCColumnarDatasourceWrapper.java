@@ -0,0 +1,29 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Adapts IUCColumnarPaginatedDatasource to the untyped delegate used by UCPaginatedList,
+ * every parsed page gets a UCColumnarPage of its own.
+ */
+class UCColumnarDatasourceWrapper implements IUCAsyncPaginatedDatasource {
+    private final IUCColumnarPaginatedDatasource mDelegate;
+    private final UCColumnarSchema mSchema;
+
+    UCColumnarDatasourceWrapper(IUCColumnarPaginatedDatasource delegate, UCColumnarSchema schema) {
+        mDelegate = delegate;
+        mSchema = schema;
+    }
+
+    @Override
+    public void fetchNextPage(int page, IUCPaginatedCallback callback) {
+        mDelegate.fetchNextPage(page, callback);
+    }
+
+    @Override
+    public ArrayList<Object> parseDataArray(ArrayList<Object> data) {
+        UCColumnarPage page = new UCColumnarPage(mSchema, data == null ? 0 : data.size());
+        mDelegate.parseDataArray(data, page);
+        return page.getRows();
+    }
+}
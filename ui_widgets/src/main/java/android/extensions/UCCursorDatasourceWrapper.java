@@ -0,0 +1,98 @@
+package android.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Adapts IUCCursorPaginatedDatasource to the page numbers used by UCPaginatedList.
+ * Page n + 1 is fetched with the cursor returned with page n, requests for pages whose cursor
+ * is not known yet wait for it. Page zero starts over with a null cursor.
+ */
+class UCCursorDatasourceWrapper implements IUCAsyncPaginatedDatasource {
+    private final IUCCursorPaginatedDatasource mDelegate;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // guarded by this
+    private final HashMap<Integer, String> mCursors = new HashMap<>();
+    private final HashMap<Integer, IUCPaginatedCallback> mWaiting = new HashMap<>();
+    private int mGeneration;
+
+    UCCursorDatasourceWrapper(IUCCursorPaginatedDatasource delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public void fetchNextPage(int page, IUCPaginatedCallback callback) {
+        String cursor;
+        int generation;
+        synchronized (this) {
+            if (page == 0) {
+                mGeneration++;
+                mCursors.clear();
+                mWaiting.clear();
+            } else if (!mCursors.containsKey(page)) {
+                mWaiting.put(page, callback);
+                return;
+            }
+            cursor = mCursors.get(page);
+            generation = mGeneration;
+        }
+        mDelegate.fetchPage(cursor, new CursorCallback(page, generation, callback));
+    }
+
+    @Override
+    public ArrayList<Object> parseDataArray(ArrayList<Object> data) {
+        return mDelegate.parseDataArray(data);
+    }
+
+    private void onPageFetched(int page, int generation, String nextCursor) {
+        final IUCPaginatedCallback waiting;
+        synchronized (this) {
+            if (generation != mGeneration) {
+                return;
+            }
+            if (nextCursor == null) {
+                mWaiting.clear();
+                return;
+            }
+            mCursors.put(page + 1, nextCursor);
+            waiting = mWaiting.remove(page + 1);
+        }
+        if (waiting != null) {
+            final int nextPage = page + 1;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    fetchNextPage(nextPage, waiting);
+                }
+            });
+        }
+    }
+
+    private class CursorCallback implements IUCCursorCallback {
+        private final int mPage;
+        private final int mRequestGeneration;
+        private final IUCPaginatedCallback mCallback;
+
+        CursorCallback(int page, int generation, IUCPaginatedCallback callback) {
+            mPage = page;
+            mRequestGeneration = generation;
+            mCallback = callback;
+        }
+
+        @Override
+        public void onSuccess(ArrayList<Object> data, String nextCursor) {
+            mCallback.onSuccess(data, mPage + 1, nextCursor == null);
+            onPageFetched(mPage, mRequestGeneration, nextCursor);
+        }
+
+        @Override
+        public void onError() {
+            // pages waiting for this one stay queued, the page is usually fetched again
+            mCallback.onError();
+        }
+    }
+}
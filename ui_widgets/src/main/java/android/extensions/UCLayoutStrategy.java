@@ -0,0 +1,193 @@
+package android.extensions;
+
+import android.content.Context;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+/**
+ * Creates the layout manager of UCPaginatedList and tells it where the visible rows are.
+ * Pagination thresholds are counted in rows, so a grid row of several items counts once.
+ * Use linear(), grid(spanCount) or staggeredGrid(spanCount), or extend it for other layout managers.
+ */
+public abstract class UCLayoutStrategy {
+
+    public abstract RecyclerView.LayoutManager createLayoutManager(Context context);
+
+    public abstract int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager);
+
+    public abstract int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager);
+
+    /**
+     * Number of rows below the row containing position.
+     */
+    public abstract int getRowsAfter(RecyclerView.LayoutManager layoutManager, int position, int itemCount);
+
+    /**
+     * Number of rows from the row containing fromPosition to the one containing toPosition, both included.
+     */
+    public abstract int getRowsBetween(RecyclerView.LayoutManager layoutManager, int fromPosition, int toPosition);
+
+    /**
+     * Average number of items in a row.
+     */
+    public abstract float getItemsPerRow(RecyclerView.LayoutManager layoutManager);
+
+    public static UCLayoutStrategy linear() {
+        return new Linear();
+    }
+
+    public static UCLayoutStrategy grid(int spanCount) {
+        return new Grid(spanCount);
+    }
+
+    public static UCLayoutStrategy staggeredGrid(int spanCount) {
+        return new StaggeredGrid(spanCount);
+    }
+
+    private static class Linear extends UCLayoutStrategy {
+
+        @Override
+        public RecyclerView.LayoutManager createLayoutManager(Context context) {
+            return new LinearLayoutManager(context, LinearLayoutManager.VERTICAL, false);
+        }
+
+        @Override
+        public int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            return ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+        }
+
+        @Override
+        public int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        }
+
+        @Override
+        public int getRowsAfter(RecyclerView.LayoutManager layoutManager, int position, int itemCount) {
+            return Math.max(0, itemCount - 1 - position);
+        }
+
+        @Override
+        public int getRowsBetween(RecyclerView.LayoutManager layoutManager, int fromPosition, int toPosition) {
+            return toPosition - fromPosition + 1;
+        }
+
+        @Override
+        public float getItemsPerRow(RecyclerView.LayoutManager layoutManager) {
+            return 1;
+        }
+    }
+
+    /**
+     * Rows follow the span groups of the SpanSizeLookup, so full span headers count as a row.
+     * The lookup UCPaginatedList sets for grouped rows finds them from the header positions,
+     * any other custom lookup counts them from the first row on every call.
+     */
+    private static class Grid extends Linear {
+        private final int mSpanCount;
+
+        Grid(int spanCount) {
+            mSpanCount = Math.max(1, spanCount);
+        }
+
+        @Override
+        public RecyclerView.LayoutManager createLayoutManager(Context context) {
+            return new GridLayoutManager(context, mSpanCount, GridLayoutManager.VERTICAL, false);
+        }
+
+        @Override
+        public int getRowsAfter(RecyclerView.LayoutManager layoutManager, int position, int itemCount) {
+            if (position >= itemCount - 1) {
+                return 0;
+            }
+            return rowOf(layoutManager, itemCount - 1) - rowOf(layoutManager, Math.max(0, position));
+        }
+
+        @Override
+        public int getRowsBetween(RecyclerView.LayoutManager layoutManager, int fromPosition, int toPosition) {
+            return rowOf(layoutManager, toPosition) - rowOf(layoutManager, Math.max(0, fromPosition)) + 1;
+        }
+
+        @Override
+        public float getItemsPerRow(RecyclerView.LayoutManager layoutManager) {
+            return ((GridLayoutManager) layoutManager).getSpanCount();
+        }
+
+        private static int rowOf(RecyclerView.LayoutManager layoutManager, int position) {
+            GridLayoutManager gridLayoutManager = (GridLayoutManager) layoutManager;
+            int spanCount = gridLayoutManager.getSpanCount();
+            GridLayoutManager.SpanSizeLookup lookup = gridLayoutManager.getSpanSizeLookup();
+            if (lookup instanceof GridLayoutManager.DefaultSpanSizeLookup) {
+                return position / spanCount;
+            }
+            return lookup.getSpanGroupIndex(position, spanCount);
+        }
+    }
+
+    /**
+     * Items are spread over the spans, a row is approximated as spanCount items.
+     */
+    private static class StaggeredGrid extends UCLayoutStrategy {
+        private final int mSpanCount;
+        private int[] mPositions;
+
+        StaggeredGrid(int spanCount) {
+            mSpanCount = Math.max(1, spanCount);
+        }
+
+        @Override
+        public RecyclerView.LayoutManager createLayoutManager(Context context) {
+            return new StaggeredGridLayoutManager(mSpanCount, StaggeredGridLayoutManager.VERTICAL);
+        }
+
+        @Override
+        public int findFirstVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            int[] positions = ((StaggeredGridLayoutManager) layoutManager)
+                    .findFirstVisibleItemPositions(positions(layoutManager));
+            int first = RecyclerView.NO_POSITION;
+            for (int position : positions) {
+                if (position != RecyclerView.NO_POSITION && (first == RecyclerView.NO_POSITION || position < first)) {
+                    first = position;
+                }
+            }
+            return first;
+        }
+
+        @Override
+        public int findLastVisibleItemPosition(RecyclerView.LayoutManager layoutManager) {
+            int[] positions = ((StaggeredGridLayoutManager) layoutManager)
+                    .findLastVisibleItemPositions(positions(layoutManager));
+            int last = RecyclerView.NO_POSITION;
+            for (int position : positions) {
+                last = Math.max(last, position);
+            }
+            return last;
+        }
+
+        @Override
+        public int getRowsAfter(RecyclerView.LayoutManager layoutManager, int position, int itemCount) {
+            int spanCount = ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+            return (Math.max(0, itemCount - 1 - position) + spanCount - 1) / spanCount;
+        }
+
+        @Override
+        public int getRowsBetween(RecyclerView.LayoutManager layoutManager, int fromPosition, int toPosition) {
+            int spanCount = ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+            return (toPosition - fromPosition + spanCount) / spanCount;
+        }
+
+        @Override
+        public float getItemsPerRow(RecyclerView.LayoutManager layoutManager) {
+            return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        }
+
+        private int[] positions(RecyclerView.LayoutManager layoutManager) {
+            int spanCount = ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+            if (mPositions == null || mPositions.length != spanCount) {
+                mPositions = new int[spanCount];
+            }
+            return mPositions;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package android.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Computes UCListDiff results for UCPaginatedList.
+ * Small lists are diffed inline, large ones on a shared background thread and
+ * the result is delivered back on the main thread.
+ * Only the result of the latest request is delivered, older ones are dropped.
+ */
+class UCListDiffer {
+
+    /**
+     * Diffs with more rows than this (old + new) are calculated off the main thread.
+     */
+    private static final int ASYNC_DIFF_THRESHOLD = 200;
+
+    private static ExecutorService sDiffExecutor;
+
+    interface OnDiffCalculatedListener {
+        void onDiffCalculated(UCListDiff result);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private int mGeneration;
+
+    /**
+     * Both lists must not be modified until the listener is called.
+     */
+    void calculateDiff(final UCListState listState, final List<Object> oldData, final List<Object> newData,
+                       final OnDiffCalculatedListener listener) {
+        final int generation = ++mGeneration;
+
+        if (oldData.size() + newData.size() < ASYNC_DIFF_THRESHOLD) {
+            listener.onDiffCalculated(listState.calculateDiff(oldData, newData));
+            return;
+        }
+
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final UCListDiff result = listState.calculateDiff(oldData, newData);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            listener.onDiffCalculated(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops the result of any diff still being calculated.
+     */
+    void cancel() {
+        mGeneration++;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sDiffExecutor == null) {
+            sDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "UCPaginatedList-diff");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDiffExecutor;
+    }
+}
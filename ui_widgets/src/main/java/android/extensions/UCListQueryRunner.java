@@ -0,0 +1,232 @@
+package android.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the rows shown by UCPaginatedList in sync with a UCListQuery over the loaded rows.
+ * 1. Rows appended after the loaded ones, e.g. a new page, are filtered and merged into the result on their own
+ * 2. Any other change evaluates the query over all rows again, at most once per main thread message
+ * 3. Small lists are evaluated inline, large ones on a shared background thread which splits very
+ *    large lists over a pool, see UCQueryEvaluator
+ * Changes of the result are reported to the listener on the main thread in order.
+ */
+class UCListQueryRunner implements UCListState.Listener {
+
+    /**
+     * Queries over more rows than this are evaluated off the main thread.
+     */
+    private static final int ASYNC_QUERY_THRESHOLD = 200;
+    private static final int PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static ExecutorService sQueryExecutor;
+    private static ExecutorService sParallelExecutor;
+
+    interface OnDetachedListener {
+        void onDetached();
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final UCListState mListState;
+    private final UCListState.Listener mListener;
+    // rows shown, replaced with each applied result
+    private final ArrayList<Object> mRows;
+    // result of the last evaluation submitted, written on the query thread while one is pending
+    private List<Object> mComputed;
+    private UCListQuery mQuery;
+    private OnDetachedListener mOnDetachedListener;
+    private int mPending;
+    private int mLoadedSize;
+    private boolean mDirty;
+    private final ArrayList<Object> mAppended = new ArrayList<>();
+    private boolean mFlushPosted;
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            mFlushPosted = false;
+            flush();
+        }
+    };
+
+    UCListQueryRunner(UCListState listState, UCListState.Listener listener) {
+        mListState = listState;
+        mListener = listener;
+        mRows = new ArrayList<>(listState.getRows());
+        mComputed = new ArrayList<>(mRows);
+        mLoadedSize = listState.size();
+    }
+
+    /**
+     * Rows shown, starts with all loaded rows.
+     */
+    ArrayList<Object> getRows() {
+        return mRows;
+    }
+
+    void setQuery(UCListQuery query) {
+        mQuery = query;
+        mOnDetachedListener = null;
+        mDirty = true;
+        flush();
+    }
+
+    /**
+     * Shows all loaded rows again, listener is called once they are shown in the loaded order.
+     */
+    void detach(OnDetachedListener listener) {
+        mQuery = null;
+        mOnDetachedListener = listener;
+        mDirty = true;
+        flush();
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (!mDirty && position == mLoadedSize && mLoadedSize + count == mListState.size()) {
+            mAppended.addAll(mListState.getRows().subList(position, position + count));
+            mLoadedSize += count;
+            postFlush();
+        } else {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        invalidate();
+    }
+
+    @Override
+    public void onChanged(int position, int count) {
+        invalidate();
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        invalidate();
+    }
+
+    @Override
+    public void onReset() {
+        invalidate();
+    }
+
+    private void invalidate() {
+        mDirty = true;
+        mLoadedSize = mListState.size();
+        postFlush();
+    }
+
+    private void postFlush() {
+        // a diff of the loaded rows is reported as many calls, evaluated once after the last one
+        if (!mFlushPosted) {
+            mFlushPosted = true;
+            mMainHandler.post(mFlush);
+        }
+    }
+
+    private void flush() {
+        if (mDirty) {
+            mDirty = false;
+            mAppended.clear();
+            mLoadedSize = mListState.size();
+            submit(new ArrayList<>(mListState.getRows()), false);
+        } else if (!mAppended.isEmpty()) {
+            ArrayList<Object> appended = new ArrayList<>(mAppended);
+            mAppended.clear();
+            submit(appended, true);
+        }
+        notifyIfDetached();
+    }
+
+    private void submit(final List<Object> rows, final boolean appended) {
+        final UCListQuery query = mQuery;
+        if (mPending == 0 && mListState.size() < ASYNC_QUERY_THRESHOLD) {
+            apply(evaluate(query, rows, appended, null));
+            return;
+        }
+
+        // evaluations run one after the other, each one against the result of the previous one
+        mPending++;
+        getQueryExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final UCQueryEvaluator.Update update = evaluate(query, rows, appended, getParallelExecutor());
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mPending--;
+                        apply(update);
+                        notifyIfDetached();
+                    }
+                });
+            }
+        });
+    }
+
+    private UCQueryEvaluator.Update evaluate(UCListQuery query, List<Object> rows, boolean appended,
+                                             ExecutorService parallelExecutor) {
+        UCQueryEvaluator.Update update = appended
+                ? UCQueryEvaluator.append(query, mComputed, rows, parallelExecutor, PARALLELISM)
+                : UCQueryEvaluator.replace(mListState, query, mComputed, rows, parallelExecutor, PARALLELISM);
+        mComputed = update.rows;
+        return update;
+    }
+
+    private void apply(UCQueryEvaluator.Update update) {
+        mRows.clear();
+        mRows.addAll(update.rows);
+        update.dispatchUpdatesTo(mListener);
+    }
+
+    private void notifyIfDetached() {
+        if (mOnDetachedListener != null && mPending == 0 && !mDirty && mAppended.isEmpty()) {
+            OnDetachedListener listener = mOnDetachedListener;
+            mOnDetachedListener = null;
+            listener.onDetached();
+        }
+    }
+
+    private static synchronized ExecutorService getQueryExecutor() {
+        if (sQueryExecutor == null) {
+            sQueryExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "UCPaginatedList-query");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sQueryExecutor;
+    }
+
+    private static synchronized ExecutorService getParallelExecutor() {
+        if (PARALLELISM < 2) {
+            return null;
+        }
+        if (sParallelExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLELISM - 1, PARALLELISM - 1,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "UCPaginatedList-query-chunk");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            sParallelExecutor = executor;
+        }
+        return sParallelExecutor;
+    }
+}
@@ -0,0 +1,149 @@
+package android.extensions;
+
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of raw and parsed pages keyed by page number, set through UCPaginatedList.addPageCache.
+ * Keep the instance around (e.g. in a retained object) to serve pages across re-creations of the list.
+ * 1. Pages younger than freshMillis are served without hitting the datasource
+ * 2. Older pages are served instantly while the page is fetched again in background
+ * 3. Pages older than ttlMillis, beyond maxPages or the memory budget are evicted, least recently used first
+ */
+public class UCPageCache {
+
+    static final class Entry {
+        final ArrayList<Object> data;
+        final ArrayList<Object> parsedData;
+        final int nextPage;
+        final Boolean noMoreData;
+        final long time;
+        final long size;
+
+        Entry(ArrayList<Object> data, ArrayList<Object> parsedData, int nextPage, Boolean noMoreData,
+              long time, long size) {
+            this.data = data;
+            this.parsedData = parsedData;
+            this.nextPage = nextPage;
+            this.noMoreData = noMoreData;
+            this.time = time;
+            this.size = size;
+        }
+    }
+
+    private final LinkedHashMap<Integer, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int mMaxPages;
+    private final long mFreshMillis;
+    private final long mTtlMillis;
+    private long mMemoryBudget = Long.MAX_VALUE;
+    private IUCPageSizeEstimator mSizeEstimator;
+    private long mSize;
+
+    private int mHitCount;
+    private int mStaleHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * @param maxPages    maximum number of pages kept
+     * @param freshMillis age until which a page is served without fetching it again
+     * @param ttlMillis   age after which a page is evicted
+     */
+    public UCPageCache(int maxPages, long freshMillis, long ttlMillis) {
+        mMaxPages = maxPages;
+        mFreshMillis = freshMillis;
+        mTtlMillis = ttlMillis;
+    }
+
+    /**
+     * Evicts pages once the sum of their estimated sizes exceeds memoryBudget.
+     */
+    public synchronized UCPageCache addMemoryBudget(long memoryBudget, IUCPageSizeEstimator sizeEstimator) {
+        mMemoryBudget = memoryBudget;
+        mSizeEstimator = sizeEstimator;
+        trim();
+        return this;
+    }
+
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Hits on pages older than freshMillis, which were fetched again in background.
+     */
+    public synchronized int getStaleHitCount() {
+        return mStaleHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    synchronized Entry get(int page) {
+        Entry entry = mEntries.get(page);
+        if (entry != null && age(entry) >= mTtlMillis) {
+            remove(page);
+            mEvictionCount++;
+            entry = null;
+        }
+        if (entry == null) {
+            mMissCount++;
+        } else if (isStale(entry)) {
+            mStaleHitCount++;
+        } else {
+            mHitCount++;
+        }
+        return entry;
+    }
+
+    synchronized boolean isStale(Entry entry) {
+        return age(entry) >= mFreshMillis;
+    }
+
+    synchronized void put(int page, ArrayList<Object> data, ArrayList<Object> parsedData, int nextPage,
+                          Boolean noMoreData) {
+        long size = mSizeEstimator != null ? mSizeEstimator.sizeOf(page, data, parsedData) : 0;
+        remove(page);
+        mEntries.put(page, new Entry(data, parsedData, nextPage, noMoreData, SystemClock.elapsedRealtime(),
+                size));
+        mSize += size;
+        trim();
+    }
+
+    synchronized void remove(int page) {
+        Entry removed = mEntries.remove(page);
+        if (removed != null) {
+            mSize -= removed.size;
+        }
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Integer, Entry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (age(entry) >= mTtlMillis || mEntries.size() > mMaxPages || mSize > mMemoryBudget) {
+                iterator.remove();
+                mSize -= entry.size;
+                mEvictionCount++;
+            }
+        }
+    }
+
+    private static long age(Entry entry) {
+        return SystemClock.elapsedRealtime() - entry.time;
+    }
+}
@@ -0,0 +1,846 @@
+package android.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks page requests of UCPaginatedList and hands their results back on the main thread.
+ * 1. Results are parsed inline or on a parse executor
+ * 2. Parsed pages are applied in the order they were requested, several pages may be in flight
+ * 3. A page zero refresh starts a new generation, results of older requests are dropped
+ * 4. Requests which fail or time out are fetched again with exponential backoff before the page fails
+ * 5. Rows of IUCStreamingPaginatedDatasource are pulled as the viewport gets close to the end of the list,
+ *    the next page shows its rows as they arrive
+ * All methods except the IUCPaginatedCallback ones must be called on the main thread.
+ */
+class UCPageLoader {
+
+    private static final int PARSE_THREADS = 2;
+    private static final int PARSE_QUEUE_CAPACITY = 32;
+    private static final long INITIAL_FETCH_LATENCY_MS = 500;
+    private static final float LATENCY_SMOOTHING = 0.3f;
+    static final long DEFAULT_TIMEOUT_MS = 30000;
+    static final int DEFAULT_MAX_RETRIES = 2;
+    static final long DEFAULT_RETRY_BACKOFF_MS = 1000;
+    static final int DEFAULT_STREAM_TARGET_ROWS = 20;
+
+    /**
+     * Next page after the loaded ones, applied strictly in request order
+     */
+    static final int TYPE_NEXT = 0;
+
+    /**
+     * Page evicted from the loaded window, applied as soon as it is ready
+     */
+    static final int TYPE_RESTORE = 1;
+
+    /**
+     * Page served from UCPageCache fetched again in background, applied as soon as it is ready
+     */
+    static final int TYPE_REVALIDATE = 2;
+
+    /**
+     * Page before the loaded ones of IUCBidirectionalPaginatedDatasource, applied as soon as it is ready
+     */
+    static final int TYPE_PREVIOUS = 3;
+
+    private static Executor sDefaultParseExecutor;
+
+    interface PageConsumer {
+
+        /**
+         * Parses raw data of a page, called on the parse executor if there is one.
+         */
+        ArrayList<Object> parsePage(ArrayList<Object> data, int currentPage);
+
+        /**
+         * Called on the main thread in request order, onApplied must run once the rows are applied.
+         */
+        void onPageReady(PageRequest request, Runnable onApplied);
+
+        /**
+         * Called on the main thread with parsed rows of a streamed next page before it is complete,
+         * the page follows the loaded rows. Returns false to keep the rows until the page is complete,
+         * onPageReady then skips only the request.appliedRows rows shown before.
+         */
+        boolean onRowsReady(PageRequest request, ArrayList<Object> rows);
+
+        /**
+         * Called when a streamed page whose first request.appliedRows rows are shown failed.
+         */
+        void onRowsRevoked(PageRequest request);
+
+        void onPageFailed();
+
+        /**
+         * Fetches request again from the datasource after it failed or timed out.
+         */
+        void fetchPage(PageRequest request);
+
+        /**
+         * Called when pageCount requests for next pages are dropped before being applied.
+         */
+        void onPagesDropped(int pageCount);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final PageConsumer mConsumer;
+    private final LinkedList<PageRequest> mRequests = new LinkedList<>();
+    // cancelled pages of legacy requests whose recievedDataSuccess may still arrive
+    private final HashSet<Integer> mCancelledLegacyPages = new HashSet<>();
+    private Executor mParseExecutor;
+    private int mGeneration;
+    private boolean mApplying;
+    private long mAverageFetchLatency = INITIAL_FETCH_LATENCY_MS;
+    private long mTimeoutMillis = DEFAULT_TIMEOUT_MS;
+    private int mMaxRetries = DEFAULT_MAX_RETRIES;
+    private long mRetryBackoffMillis = DEFAULT_RETRY_BACKOFF_MS;
+    private int mStreamRowsAhead;
+    private int mStreamTargetRows = DEFAULT_STREAM_TARGET_ROWS;
+
+    UCPageLoader(PageConsumer consumer) {
+        mConsumer = consumer;
+    }
+
+    void setParseExecutor(Executor parseExecutor) {
+        mParseExecutor = parseExecutor;
+    }
+
+    /**
+     * Requests not answered within timeoutMillis fail, 0 waits forever.
+     */
+    void setTimeout(long timeoutMillis) {
+        mTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * A failed request is fetched again up to maxRetries times, after backoffMillis
+     * doubled with every attempt.
+     */
+    void setRetryPolicy(int maxRetries, long backoffMillis) {
+        mMaxRetries = maxRetries;
+        mRetryBackoffMillis = backoffMillis;
+    }
+
+    /**
+     * Rows of the streamed next page are requested until targetRows rows are shown or requested
+     * after the viewport, rowsAhead rows are shown after it now.
+     */
+    void setStreamDemand(int rowsAhead, int targetRows) {
+        mStreamRowsAhead = rowsAhead;
+        mStreamTargetRows = targetRows;
+        PageRequest head = firstNext();
+        if (head != null) {
+            requestRows(head);
+        }
+    }
+
+    /**
+     * Returns true while a requested page is not applied yet.
+     */
+    boolean isLoading() {
+        return mApplying || !mRequests.isEmpty();
+    }
+
+    boolean isApplying() {
+        return mApplying;
+    }
+
+    /**
+     * Number of pending requests for pages after the loaded ones.
+     */
+    int getPendingCount() {
+        int count = 0;
+        for (PageRequest request : mRequests) {
+            if (request.type == TYPE_NEXT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the last page requested after the loaded ones which is not applied yet,
+     * -1 if there is none.
+     */
+    int getLastRequestedPage() {
+        int page = -1;
+        for (PageRequest request : mRequests) {
+            if (request.type == TYPE_NEXT) {
+                page = request.page;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Average time from request to a parsed page, in ms.
+     */
+    long getAverageFetchLatency() {
+        return mAverageFetchLatency;
+    }
+
+    boolean isRequested(int page) {
+        return isRequested(page, TYPE_NEXT);
+    }
+
+    boolean isRequested(int page, int type) {
+        for (PageRequest request : mRequests) {
+            if (request.page == page && request.type == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean hasRequest(int type) {
+        for (PageRequest request : mRequests) {
+            if (request.type == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    PageRequest request(int page) {
+        return request(page, TYPE_NEXT);
+    }
+
+    /**
+     * @param type one of TYPE_NEXT, TYPE_RESTORE, TYPE_REVALIDATE, TYPE_PREVIOUS
+     */
+    PageRequest request(int page, int type) {
+        PageRequest request = new PageRequest(page, mGeneration, type, 0);
+        mRequests.add(request);
+        startTimeout(request);
+        return request;
+    }
+
+    private void startTimeout(final PageRequest request) {
+        if (mTimeoutMillis <= 0) {
+            return;
+        }
+        request.timeout = new Runnable() {
+            @Override
+            public void run() {
+                if (!request.cancelled && request.delivered.compareAndSet(false, true)) {
+                    onRequestFailed(request);
+                }
+            }
+        };
+        mMainHandler.postDelayed(request.timeout, mTimeoutMillis);
+    }
+
+    private void stopTimeout(PageRequest request) {
+        if (request.timeout != null) {
+            mMainHandler.removeCallbacks(request.timeout);
+        }
+    }
+
+    /**
+     * Completes request with an already parsed page, e.g. from UCPageCache.
+     */
+    void deliverParsed(PageRequest request, ArrayList<Object> data, ArrayList<Object> parsedData,
+                       int nextPage, Boolean noMoreData) {
+        if (request.cancelled || !request.delivered.compareAndSet(false, true)) {
+            return;
+        }
+        request.data = data;
+        request.parsedData = parsedData;
+        request.nextPage = nextPage;
+        request.noMoreData = noMoreData;
+        request.parsed = true;
+        request.fromCache = true;
+        stopTimeout(request);
+        postReady(request);
+    }
+
+    /**
+     * Drops every request made so far, used when a page zero refresh supersedes them.
+     */
+    void cancelAll() {
+        mGeneration++;
+        mApplying = false;
+        cancelRequests(false);
+    }
+
+    /**
+     * Drops requests for next pages which are not applied yet, the page being applied is kept.
+     * Used when a page turns out to be the last one or the next page is not the one predicted,
+     * restored, revalidated and previous pages do not depend on it.
+     */
+    void cancelPending() {
+        cancelRequests(true);
+    }
+
+    private void cancelRequests(boolean nextOnly) {
+        int dropped = 0;
+        Iterator<PageRequest> iterator = mRequests.iterator();
+        while (iterator.hasNext()) {
+            PageRequest request = iterator.next();
+            if (nextOnly && request.type != TYPE_NEXT) {
+                continue;
+            }
+            cancel(request);
+            iterator.remove();
+            if (request.type == TYPE_NEXT) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            mConsumer.onPagesDropped(dropped);
+        }
+    }
+
+    /**
+     * Drops requests of type for pages before fromPage or after toPage which are not delivered yet,
+     * e.g. pages of a counted datasource the user scrolled past.
+     */
+    void cancelOutside(int type, int fromPage, int toPage) {
+        Iterator<PageRequest> iterator = mRequests.iterator();
+        while (iterator.hasNext()) {
+            PageRequest request = iterator.next();
+            if (request.type == type && (request.page < fromPage || request.page > toPage)
+                    && !request.delivered.get()) {
+                cancel(request);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void cancel(PageRequest request) {
+        if (request.legacy && !request.cancelled && !request.delivered.get()) {
+            // only a legacy result can not be told apart from the one of a later request
+            mCancelledLegacyPages.add(request.page);
+        }
+        request.cancelled = true;
+        stopTimeout(request);
+        if (request.subscription != null) {
+            request.subscription.cancel();
+        }
+    }
+
+    /**
+     * Result delivered through UCPaginatedList.recievedDataSuccess, matched to the oldest request
+     * for currentPage. A page which was not requested is applied only if nothing else is pending.
+     */
+    void deliverLegacySuccess(final ArrayList<Object> data, final int currentPage, final int nextPage,
+                              final Boolean noMoreData) {
+        if (!isMainThread()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliverLegacySuccess(data, currentPage, nextPage, noMoreData);
+                }
+            });
+            return;
+        }
+
+        PageRequest request = findUndelivered(currentPage);
+        if (request == null && mCancelledLegacyPages.remove(currentPage)) {
+            return;
+        }
+        if (request == null) {
+            if (currentPage == 0) {
+                cancelAll();
+            } else if (isLoading()) {
+                // response of a request superseded by page zero refresh
+                return;
+            }
+            request = request(currentPage);
+        }
+        deliverSuccess(request, data, nextPage, noMoreData);
+    }
+
+    /**
+     * Error delivered through UCPaginatedList.receivedDataError, fails the oldest pending request.
+     */
+    void deliverLegacyError() {
+        if (!isMainThread()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliverLegacyError();
+                }
+            });
+            return;
+        }
+
+        PageRequest request = findUndelivered(-1);
+        if (request != null) {
+            deliverError(request);
+        } else {
+            mConsumer.onPageFailed();
+        }
+    }
+
+    private PageRequest findUndelivered(int page) {
+        for (PageRequest request : mRequests) {
+            if ((page == -1 || request.page == page) && !request.delivered.get()) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void deliverSuccess(final PageRequest request, ArrayList<Object> data, int nextPage,
+                                Boolean noMoreData) {
+        if (request.cancelled || !request.delivered.compareAndSet(false, true)) {
+            return;
+        }
+        request.data = data;
+        request.nextPage = nextPage;
+        request.noMoreData = noMoreData;
+        request.fetchMillis = SystemClock.uptimeMillis() - request.requestTime;
+        stopTimeout(request);
+
+        final Executor parseExecutor = mParseExecutor;
+        if (parseExecutor != null) {
+            parseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (request.cancelled) {
+                        return;
+                    }
+                    parse(request);
+                    postReady(request);
+                }
+            });
+        } else {
+            // parsed on the main thread just before it is applied
+            postReady(request);
+        }
+    }
+
+    private void deliverSubscription(final PageRequest request, final IUCRowSubscription subscription) {
+        if (!isMainThread()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliverSubscription(request, subscription);
+                }
+            });
+            return;
+        }
+        if (request.cancelled || request.delivered.get()) {
+            subscription.cancel();
+            return;
+        }
+        request.subscription = subscription;
+        requestRows(request);
+    }
+
+    /**
+     * Parses rows of a streamed page on the calling thread, they are shown once the page is the next
+     * one to be applied.
+     */
+    private void deliverRows(final PageRequest request, ArrayList<Object> rows) {
+        if (request.cancelled || request.delivered.get() || rows == null) {
+            return;
+        }
+        int receivedCount = rows.size();
+        synchronized (request) {
+            // rows received by the failed attempt before this retry
+            int skipped = Math.min(request.skipRows, rows.size());
+            if (skipped > 0) {
+                request.skipRows -= skipped;
+                rows = new ArrayList<>(rows.subList(skipped, rows.size()));
+            }
+        }
+
+        long start = SystemClock.uptimeMillis();
+        ArrayList<Object> parsedRows = rows.isEmpty() ? null : mConsumer.parsePage(rows, request.page);
+        synchronized (request) {
+            request.receivedRows += receivedCount;
+            request.parseMillis += SystemClock.uptimeMillis() - start;
+            if (request.data == null) {
+                request.data = new ArrayList<>();
+                request.parsedData = new ArrayList<>();
+            }
+            request.data.addAll(rows);
+            if (parsedRows != null) {
+                request.parsedData.addAll(parsedRows);
+                request.pendingRows.addAll(parsedRows);
+            }
+        }
+        // the timeout applies to the gap between rows, not to the whole stream
+        stopTimeout(request);
+        startTimeout(request);
+
+        if (isMainThread()) {
+            applyStreamedRows(request);
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                applyStreamedRows(request);
+            }
+        });
+    }
+
+    private void deliverStreamComplete(PageRequest request, int nextPage, boolean noMoreData) {
+        if (request.cancelled || !request.delivered.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (request) {
+            if (request.data == null) {
+                request.data = new ArrayList<>();
+                request.parsedData = new ArrayList<>();
+            }
+        }
+        request.nextPage = nextPage;
+        request.noMoreData = noMoreData;
+        request.parsed = true;
+        request.fetchMillis = SystemClock.uptimeMillis() - request.requestTime;
+        stopTimeout(request);
+        postReady(request);
+    }
+
+    /**
+     * Hands the rows received so far to the consumer if request is the next page to be applied.
+     */
+    private void applyStreamedRows(PageRequest request) {
+        if (request.cancelled || request.ready || request.deferred || mApplying || request != firstNext()) {
+            return;
+        }
+        ArrayList<Object> rows;
+        synchronized (request) {
+            if (request.pendingRows.isEmpty()) {
+                return;
+            }
+            rows = request.pendingRows;
+            request.pendingRows = new ArrayList<>();
+        }
+        if (!mConsumer.onRowsReady(request, rows)) {
+            // nothing is shown until the page is complete, so it is not throttled either
+            request.deferred = true;
+        } else {
+            request.appliedRows += rows.size();
+            mStreamRowsAhead += rows.size();
+        }
+        requestRows(request);
+    }
+
+    /**
+     * Requests rows of a streamed page. The next page keeps mStreamTargetRows rows shown or requested
+     * after the viewport, later next pages request up to mStreamTargetRows rows ahead of time,
+     * other pages request all of their rows.
+     */
+    private void requestRows(PageRequest request) {
+        if (request.subscription == null || request.cancelled || request.delivered.get()
+                || request.requestedRows == Long.MAX_VALUE) {
+            return;
+        }
+        long rowCount;
+        if (request.type != TYPE_NEXT || request.deferred) {
+            rowCount = Long.MAX_VALUE;
+        } else {
+            long ahead;
+            if (request == firstNext()) {
+                int receivedRows;
+                synchronized (request) {
+                    receivedRows = request.receivedRows;
+                }
+                ahead = mStreamRowsAhead + request.requestedRows - receivedRows;
+            } else {
+                ahead = request.requestedRows;
+            }
+            rowCount = mStreamTargetRows - ahead;
+            if (rowCount <= 0) {
+                return;
+            }
+        }
+        request.requestedRows = rowCount == Long.MAX_VALUE ? rowCount : request.requestedRows + rowCount;
+        request.subscription.request(rowCount);
+    }
+
+    private PageRequest firstNext() {
+        for (PageRequest request : mRequests) {
+            if (request.type == TYPE_NEXT) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void deliverError(final PageRequest request) {
+        if (request.cancelled || !request.delivered.compareAndSet(false, true)) {
+            return;
+        }
+        stopTimeout(request);
+        if (isMainThread()) {
+            onRequestFailed(request);
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                onRequestFailed(request);
+            }
+        });
+    }
+
+    private void onRequestFailed(PageRequest request) {
+        if (request.cancelled) {
+            return;
+        }
+        int index = mRequests.indexOf(request);
+        if (index == -1 || request.attempt >= mMaxRetries) {
+            request.failed = true;
+            markReady(request);
+            return;
+        }
+
+        // the retry takes the place of the failed request, so pages are still applied in order
+        final PageRequest retry = new PageRequest(request.page, request.generation, request.type,
+                request.attempt + 1);
+        retry.resume(request);
+        mRequests.set(index, retry);
+        cancel(request);
+        mMainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                // a late legacy result may have been matched to the retry meanwhile
+                if (!retry.cancelled && !retry.delivered.get()) {
+                    startTimeout(retry);
+                    mConsumer.fetchPage(retry);
+                }
+            }
+        }, mRetryBackoffMillis << request.attempt);
+    }
+
+    private void postReady(final PageRequest request) {
+        if (isMainThread()) {
+            markReady(request);
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                markReady(request);
+            }
+        });
+    }
+
+    private void markReady(PageRequest request) {
+        if (request.cancelled) {
+            return;
+        }
+        request.ready = true;
+        if (!request.fromCache) {
+            long latency = SystemClock.uptimeMillis() - request.requestTime;
+            mAverageFetchLatency += (long) (LATENCY_SMOOTHING * (latency - mAverageFetchLatency));
+        }
+        drain();
+    }
+
+    /**
+     * Applies ready pages, next pages from the head of the queue until one is still in flight,
+     * other pages as soon as they are ready.
+     */
+    private void drain() {
+        PageRequest request;
+        while (!mApplying && (request = nextReady()) != null) {
+            mRequests.remove(request);
+
+            if (request.failed) {
+                if (request.appliedRows > 0) {
+                    mConsumer.onRowsRevoked(request);
+                }
+                if (request.type == TYPE_NEXT) {
+                    // later pages would leave a gap, they are fetched again after the failed one
+                    int dropped = 0;
+                    Iterator<PageRequest> iterator = mRequests.iterator();
+                    while (iterator.hasNext()) {
+                        PageRequest pending = iterator.next();
+                        if (pending.type == TYPE_NEXT) {
+                            cancel(pending);
+                            iterator.remove();
+                            dropped++;
+                        }
+                    }
+                    if (dropped > 0) {
+                        mConsumer.onPagesDropped(dropped);
+                    }
+                    mConsumer.onPageFailed();
+                }
+                continue;
+            }
+
+            if (!request.parsed) {
+                parse(request);
+            }
+
+            mApplying = true;
+            final PageRequest applied = request;
+            mConsumer.onPageReady(request, new Runnable() {
+                @Override
+                public void run() {
+                    if (applied.generation != mGeneration) {
+                        return;
+                    }
+                    mApplying = false;
+                    drain();
+                }
+            });
+        }
+
+        PageRequest head = firstNext();
+        if (!mApplying && head != null) {
+            // rows streamed while the pages before it were applied
+            applyStreamedRows(head);
+            requestRows(head);
+        }
+    }
+
+    private void parse(PageRequest request) {
+        long start = SystemClock.uptimeMillis();
+        request.parsedData = mConsumer.parsePage(request.data, request.page);
+        request.parseMillis = SystemClock.uptimeMillis() - start;
+        request.parsed = true;
+    }
+
+    private PageRequest nextReady() {
+        boolean blocked = false;
+        for (PageRequest request : mRequests) {
+            if (request.type != TYPE_NEXT) {
+                if (request.ready) {
+                    return request;
+                }
+            } else {
+                if (!blocked && request.ready) {
+                    return request;
+                }
+                blocked = true;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * Shared bounded executor used when background parsing is enabled without a custom executor.
+     * Runs the parse on the delivering thread once its queue is full.
+     */
+    static synchronized Executor getDefaultParseExecutor() {
+        if (sDefaultParseExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PARSE_THREADS, PARSE_THREADS,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(PARSE_QUEUE_CAPACITY),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "UCPaginatedList-parse");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultParseExecutor = executor;
+        }
+        return sDefaultParseExecutor;
+    }
+
+    /**
+     * Single page request, handed to IUCAsyncPaginatedDatasource as its callback
+     * and to IUCStreamingPaginatedDatasource as its subscriber.
+     */
+    final class PageRequest implements IUCPaginatedCallback, IUCRowSubscriber {
+        final int page;
+        final int generation;
+        final int type;
+        final int attempt; // 0 for the first fetch, incremented with every retry
+        final long requestTime = SystemClock.uptimeMillis();
+        final AtomicBoolean delivered = new AtomicBoolean();
+        volatile boolean cancelled;
+        volatile Runnable timeout;
+        // fetched through IUCPaginatedDatasource.fetchNextPage, the result arrives without the request
+        volatile boolean legacy;
+
+        // written before the request is posted to the main thread
+        ArrayList<Object> data;
+        ArrayList<Object> parsedData;
+        int nextPage;
+        Boolean noMoreData; // null if the datasource did not report it
+        boolean parsed;
+        long fetchMillis; // request until the datasource delivered it
+        long parseMillis;
+        boolean fromCache;
+        boolean failed;
+        boolean ready;
+
+        // streamed pages, data and parsedData collect the rows received so far
+        IUCRowSubscription subscription; // main thread
+        long requestedRows; // main thread
+        int appliedRows; // rows handed to onRowsReady, main thread
+        boolean deferred; // onRowsReady returned false, main thread
+        int receivedRows; // guarded by this
+        int skipRows; // guarded by this
+        ArrayList<Object> pendingRows = new ArrayList<>(); // parsed, not handed to onRowsReady, guarded by this
+
+        PageRequest(int page, int generation, int type, int attempt) {
+            this.page = page;
+            this.generation = generation;
+            this.type = type;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void onSuccess(ArrayList<Object> data, int nextPage, boolean noMoreData) {
+            deliverSuccess(this, data, nextPage, noMoreData);
+        }
+
+        @Override
+        public void onError() {
+            deliverError(this);
+        }
+
+        @Override
+        public void onSubscribe(IUCRowSubscription subscription) {
+            deliverSubscription(this, subscription);
+        }
+
+        @Override
+        public void onRows(ArrayList<Object> rows) {
+            deliverRows(this, rows);
+        }
+
+        @Override
+        public void onComplete(int nextPage, boolean noMoreData) {
+            deliverStreamComplete(this, nextPage, noMoreData);
+        }
+
+        /**
+         * Keeps the rows a failed streamed request received, they are skipped when streamed again.
+         */
+        void resume(PageRequest failed) {
+            synchronized (failed) {
+                if (failed.data == null) {
+                    return;
+                }
+                data = new ArrayList<>(failed.data);
+                parsedData = new ArrayList<>(failed.parsedData);
+                pendingRows = new ArrayList<>(failed.pendingRows);
+                skipRows = failed.receivedRows;
+                parseMillis = failed.parseMillis;
+            }
+            appliedRows = failed.appliedRows;
+            deferred = failed.deferred;
+        }
+    }
+}
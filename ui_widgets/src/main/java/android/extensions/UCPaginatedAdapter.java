@@ -1,9 +1,13 @@
 package android.extensions;
 
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by ilaagarwal on 25/03/17.
@@ -11,26 +15,188 @@ import java.util.ArrayList;
  */
 
 class UCPaginatedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    static final int PLACEHOLDER_VIEW_TYPE = Integer.MIN_VALUE;
+    static final int GROUP_HEADER_VIEW_TYPE = Integer.MIN_VALUE + 1;
+
+    // 64 bit FNV-1a of the reference id
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long HEADER_SEED = ~FNV_OFFSET;
+
     private IUCPaginatedAdapter mAdapterDelegate;
+    private IUCPlaceholderAdapter mPlaceholderDelegate;
+    private IUCGroupHeaderAdapter mGroupHeaderDelegate;
+    private IUCPayloadAdapter mPayloadDelegate;
+    private IUCReferenceIdExtractor mReferenceIdExtractor;
     private ArrayList<Object> mData;
+    private int mPlaceholderHeight = ViewGroup.LayoutParams.WRAP_CONTENT;
+    private UCViewTypeCache mViewTypeCache;
+    private IUCPaginatedListMetrics mMetrics;
+    private UCPreloadScheduler mPreloadScheduler;
 
     public UCPaginatedAdapter(ArrayList<Object> data, IUCPaginatedAdapter adapterDelegate) {
         mData = data;
         mAdapterDelegate = adapterDelegate;
+        if (adapterDelegate instanceof IUCPlaceholderAdapter) {
+            mPlaceholderDelegate = (IUCPlaceholderAdapter) adapterDelegate;
+        }
+        if (adapterDelegate instanceof IUCGroupHeaderAdapter) {
+            mGroupHeaderDelegate = (IUCGroupHeaderAdapter) adapterDelegate;
+        }
+        if (adapterDelegate instanceof IUCPayloadAdapter) {
+            mPayloadDelegate = (IUCPayloadAdapter) adapterDelegate;
+        }
+    }
+
+    /**
+     * Adapter of UCPaginatedList. Stable ids are set before the view type cache registers as observer,
+     * RecyclerView rejects setHasStableIds once the adapter has observers.
+     *
+     * @param stableIdExtractor derives stable ids from reference ids, null for no stable ids
+     */
+    static UCPaginatedAdapter create(ArrayList<Object> data, IUCPaginatedAdapter adapterDelegate,
+                                     boolean viewTypeCaching, IUCReferenceIdExtractor stableIdExtractor) {
+        UCPaginatedAdapter adapter = new UCPaginatedAdapter(data, adapterDelegate);
+        adapter.setReferenceIdExtractor(stableIdExtractor);
+        adapter.setViewTypeCaching(viewTypeCaching || adapterDelegate instanceof UCRowRegistry);
+        return adapter;
+    }
+
+    /**
+     * Derives stable ids of the rows from their reference id, must be set before the adapter has
+     * observers, i.e. before the view type cache and the RecyclerView. Pass null for no stable ids.
+     */
+    void setReferenceIdExtractor(IUCReferenceIdExtractor referenceIdExtractor) {
+        mReferenceIdExtractor = referenceIdExtractor;
+        setHasStableIds(referenceIdExtractor != null);
+    }
+
+    /**
+     * Caches the view type of each position, valid only if it depends on the row alone.
+     */
+    void setViewTypeCaching(boolean viewTypeCaching) {
+        if (viewTypeCaching && mViewTypeCache == null) {
+            mViewTypeCache = new UCViewTypeCache();
+            registerAdapterDataObserver(mViewTypeCache);
+        } else if (!viewTypeCaching && mViewTypeCache != null) {
+            unregisterAdapterDataObserver(mViewTypeCache);
+            mViewTypeCache = null;
+        }
+    }
+
+    /**
+     * Renders data instead, it must hold the same rows as the current data.
+     */
+    void setRows(ArrayList<Object> data) {
+        mData = data;
+    }
+
+    void setMetrics(IUCPaginatedListMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    void setPreloadScheduler(UCPreloadScheduler preloadScheduler) {
+        mPreloadScheduler = preloadScheduler;
+    }
+
+    /**
+     * Height of the default placeholder rows, usually the average row height.
+     */
+    void setPlaceholderHeight(int placeholderHeight) {
+        mPlaceholderHeight = placeholderHeight;
     }
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        if (mAdapterDelegate != null) {
+        if (viewType == PLACEHOLDER_VIEW_TYPE) {
+            if (mPlaceholderDelegate != null) {
+                return mPlaceholderDelegate.onCreatePlaceholderViewHolder(parent);
+            }
+            return new PlaceholderViewHolder(new View(parent.getContext()));
+        }
+        if (viewType == GROUP_HEADER_VIEW_TYPE) {
+            return createGroupHeaderViewHolder(parent);
+        }
+        if (mAdapterDelegate == null) {
+            return null;
+        }
+        if (mMetrics == null) {
             return mAdapterDelegate.onCreateViewHolder(viewType, parent, mData);
         }
-        return null;
+        long start = System.nanoTime();
+        RecyclerView.ViewHolder holder = mAdapterDelegate.onCreateViewHolder(viewType, parent, mData);
+        mMetrics.onRowCreated(viewType, System.nanoTime() - start);
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-        if (mAdapterDelegate != null) {
+        if (holder.getItemViewType() == PLACEHOLDER_VIEW_TYPE) {
+            if (mPlaceholderDelegate != null) {
+                mPlaceholderDelegate.onBindPlaceholderViewHolder(holder, position);
+            } else {
+                holder.itemView.setLayoutParams(new RecyclerView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, mPlaceholderHeight));
+            }
+            return;
+        }
+        if (holder.getItemViewType() == GROUP_HEADER_VIEW_TYPE) {
+            bindGroupHeader(holder, (UCGroupHeader) mData.get(position));
+            if (holder.itemView.getLayoutParams() instanceof StaggeredGridLayoutManager.LayoutParams) {
+                ((StaggeredGridLayoutManager.LayoutParams) holder.itemView.getLayoutParams()).setFullSpan(true);
+            }
+            return;
+        }
+        if (mAdapterDelegate == null) {
+            return;
+        }
+        if (mPreloadScheduler != null) {
+            mPreloadScheduler.onRowBound(mData.get(position));
+        }
+        if (mMetrics == null) {
             mAdapterDelegate.onBindViewHolder(holder, position, mData);
+            return;
+        }
+        long start = System.nanoTime();
+        mAdapterDelegate.onBindViewHolder(holder, position, mData);
+        mMetrics.onRowBound(holder.getItemViewType(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        int viewType = holder.getItemViewType();
+        if (payloads.isEmpty() || mPayloadDelegate == null || viewType == PLACEHOLDER_VIEW_TYPE
+                || viewType == GROUP_HEADER_VIEW_TYPE) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        if (mPreloadScheduler != null) {
+            mPreloadScheduler.onRowBound(mData.get(position));
+        }
+        if (mMetrics == null) {
+            mPayloadDelegate.onBindViewHolder(holder, position, mData, payloads);
+            return;
+        }
+        long start = System.nanoTime();
+        mPayloadDelegate.onBindViewHolder(holder, position, mData, payloads);
+        mMetrics.onRowBound(viewType, System.nanoTime() - start);
+    }
+
+    /**
+     * Also used for the sticky header of UCStickyHeaderDecoration.
+     */
+    RecyclerView.ViewHolder createGroupHeaderViewHolder(ViewGroup parent) {
+        if (mGroupHeaderDelegate != null) {
+            return mGroupHeaderDelegate.onCreateGroupHeaderViewHolder(parent);
+        }
+        return new GroupHeaderViewHolder(new TextView(parent.getContext()));
+    }
+
+    void bindGroupHeader(RecyclerView.ViewHolder holder, UCGroupHeader header) {
+        if (mGroupHeaderDelegate != null) {
+            mGroupHeaderDelegate.onBindGroupHeaderViewHolder(holder, header.getKey());
+        } else {
+            ((TextView) holder.itemView).setText(String.valueOf(header.getKey()));
         }
     }
 
@@ -43,11 +209,89 @@ class UCPaginatedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
+    /**
+     * Hash of the reference id, collisions are unlikely below millions of rows.
+     * Group headers hash their key and the reference id of the first row of their group, the same key
+     * may head several groups. Every row needs a reference id, an id of the position would move with
+     * the rows and bind views to the wrong rows.
+     */
+    @Override
+    public long getItemId(int position) {
+        if (mReferenceIdExtractor == null) {
+            return RecyclerView.NO_ID;
+        }
+        Object row = mData.get(position);
+        if (row instanceof UCGroupHeader) {
+            String firstReferenceId = position + 1 < mData.size()
+                    ? requireReferenceId(mData.get(position + 1), position + 1) : null;
+            if (firstReferenceId == null) {
+                throw new IllegalStateException("Group header at " + position + " has no rows");
+            }
+            return hash(firstReferenceId, hash(String.valueOf(((UCGroupHeader) row).getKey()), HEADER_SEED));
+        }
+        return hash(requireReferenceId(row, position), FNV_OFFSET);
+    }
+
+    private String requireReferenceId(Object row, int position) {
+        String referenceId = getReferenceId(row);
+        if (referenceId == null) {
+            throw new IllegalStateException("Stable ids need a reference id for every row, row at " + position
+                    + " has none");
+        }
+        return referenceId;
+    }
+
+    private String getReferenceId(Object row) {
+        if (row == UCPlaceholder.INSTANCE || row instanceof UCGroupHeader) {
+            return null;
+        }
+        return mReferenceIdExtractor.getReferenceId(row);
+    }
+
+    private static long hash(String value, long seed) {
+        long hash = seed;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // never NO_ID
+        return hash & Long.MAX_VALUE;
+    }
+
     @Override
     public int getItemViewType(int position) {
+        if (mViewTypeCache == null) {
+            return resolveItemViewType(position);
+        }
+        if (!mViewTypeCache.contains(position)) {
+            mViewTypeCache.put(position, resolveItemViewType(position));
+        }
+        return mViewTypeCache.get(position);
+    }
+
+    private int resolveItemViewType(int position) {
+        Object row = mData.get(position);
+        if (row == UCPlaceholder.INSTANCE) {
+            return PLACEHOLDER_VIEW_TYPE;
+        }
+        if (row instanceof UCGroupHeader) {
+            return GROUP_HEADER_VIEW_TYPE;
+        }
         if (mAdapterDelegate != null) {
             return mAdapterDelegate.getItemViewType(mData, position);
         }
         return -1;
     }
-}
\ No newline at end of file
+
+    private static class PlaceholderViewHolder extends RecyclerView.ViewHolder {
+        PlaceholderViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    private static class GroupHeaderViewHolder extends RecyclerView.ViewHolder {
+        GroupHeaderViewHolder(View itemView) {
+            super(itemView);
+        }
+    }
+}
@@ -3,12 +3,17 @@ package android.extensions;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.widget.SwipeRefreshLayout;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
+import android.util.SparseIntArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,13 +23,17 @@ import android.widget.TextView;
 
 import com.urbanclap.android.extension.R;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Extends RecyclerView list to support -
  * 1. Pull to refresh for first page of the list
- * 2. Pagination and delegate methods to fetch next page - IUCPaginatedDatasource
- * 3. fetches next page once mItemsOffsetBeforeNextPage appear from bottom of the screen
+ * 2. Pagination and delegate methods to fetch next page - IUCDatasource
+ * 3. fetches next page once mItemsOffsetBeforeNextPage rows appear from bottom of the screen
  * 4. Empty view in case of no data
  */
 
@@ -33,8 +42,14 @@ public class UCPaginatedList extends RelativeLayout {
     public static final int NO_NEXT_PAGE = -1;
 
     private static final int PAGINATION_COUNT = 10;
+    private static final int MAX_PAGINATION_COUNT = 100;
     private static final int TOP_PADDING = 8;
 
+    // values of the layoutType attribute
+    private static final int LAYOUT_LINEAR = 0;
+    private static final int LAYOUT_GRID = 1;
+    private static final int LAYOUT_STAGGERED_GRID = 2;
+
     //UI
     private RecyclerView mRecyclerView;
     private SwipeRefreshLayout mSwipeRefreshLayout;
@@ -42,26 +57,234 @@ public class UCPaginatedList extends RelativeLayout {
     private String mEmptyStateText;
     private ProgressBar mProgressBar;
     private TextView mEmptyViewTextView;
-    private LinearLayoutManager mLinearLayoutManager;
+    private RecyclerView.LayoutManager mLayoutManager;
+    private UCLayoutStrategy mLayoutStrategy = UCLayoutStrategy.linear();
     private int mEmptyTextColor = Color.BLACK;
     private boolean showTopPadding;
 
     //Pagination
     private int mItemsOffsetBeforeNextPage = 1;
     private int mPageNumber = 0;
+    private int mPreviousPageNumber = -1;
+    private boolean mNoMorePreviousData;
+    private final UCPrefetchPolicy mPrefetchPolicy = new UCPrefetchPolicy(PAGINATION_COUNT);
+    private final UCPageSizeController mPageSizeController =
+            new UCPageSizeController(PAGINATION_COUNT, MAX_PAGINATION_COUNT);
+    // rows requested per page of IUCSizedPaginatedDatasource, by page number
+    private final SparseIntArray mPageOffsets = new SparseIntArray();
+    private final SparseIntArray mPageSizes = new SparseIntArray();
+    private int mPageWindow;
+    private UCPageCache mPageCache;
+    private UCSnapshotPersister mSnapshotPersister;
 
     // Adapter
     private UCPaginatedAdapter mAdapter;
 
     // Delegates
     private IUCPaginatedAdapter mAdapterDelegate;
-    private IUCPaginatedDatasource mDatasourceDelegate;
-    private IUCDatasourceComparison mComparisonDelegate;
+    private IUCDatasource mDatasourceDelegate;
+    private boolean mViewTypeCaching;
+    private boolean mStableIds;
+    private IUCPaginatedListMetrics mMetrics;
+    private UCSharedViewPool mSharedViewPool;
+    private IUCPreloader mPreloader;
+    private int mPreloadRows;
+    private int mMaxConcurrentPreloads;
+    private UCPreloadScheduler mPreloadScheduler;
+    private long mProgressShownTime = -1;
 
     //API
-    private boolean mDataFetchInProgress;
+    private final UCPageLoader mPageLoader = new UCPageLoader(new UCPageLoader.PageConsumer() {
+        @Override
+        public ArrayList<Object> parsePage(ArrayList<Object> data, int currentPage) {
+            return UCPaginatedList.this.parsePage(data, currentPage);
+        }
+
+        @Override
+        public void onPageReady(UCPageLoader.PageRequest request, Runnable onApplied) {
+            if (!request.fromCache && isSized()) {
+                mPageSizeController.onPageLoaded(request.parsedData == null ? 0 : request.parsedData.size(),
+                        request.fetchMillis, request.parseMillis);
+            }
+            if (mMetrics != null && !request.fromCache) {
+                mMetrics.onPageFetched(request.page, request.fetchMillis);
+                mMetrics.onPageParsed(request.page,
+                        request.parsedData == null ? 0 : request.parsedData.size(), request.parseMillis);
+            }
+            if (mPageCache != null && !request.fromCache) {
+                mPageCache.put(request.page, request.data, request.parsedData, request.nextPage,
+                        request.noMoreData);
+            }
+            if (request.type == UCPageLoader.TYPE_RESTORE) {
+                restorePage(request.page, request.parsedData);
+                onApplied.run();
+            } else if (request.type == UCPageLoader.TYPE_PREVIOUS) {
+                prependPage(request.page, request.data, request.parsedData, request.nextPage,
+                        request.noMoreData);
+                onApplied.run();
+            } else if (request.type == UCPageLoader.TYPE_REVALIDATE) {
+                revalidatePage(request.page, request.data, request.parsedData, request.nextPage,
+                        request.noMoreData);
+                onApplied.run();
+            } else {
+                applyPage(request.data, request.parsedData, request.appliedRows, request.page,
+                        request.nextPage, request.noMoreData, onApplied);
+            }
+        }
+
+        @Override
+        public boolean onRowsReady(UCPageLoader.PageRequest request, ArrayList<Object> rows) {
+            if (request.page == 0 && request.appliedRows == 0 && !mData.isEmpty()) {
+                // a refresh is diffed against the rows shown once complete
+                return false;
+            }
+            mEmptyView.setVisibility(View.GONE);
+            appendData(request.page, rows);
+            setProgressVisible(false);
+            return true;
+        }
+
+        @Override
+        public void onRowsRevoked(UCPageLoader.PageRequest request) {
+            UCPageTable.Page page = mPageTable.size() == 0 ? null : mPageTable.get(mPageTable.size() - 1);
+            if (page != null && page.page == request.page) {
+                mMutationQueue.beginChange();
+                mListState.replacePageRows(page, new ArrayList<>(), false);
+                resetEmptyViewPageNumberState();
+            }
+        }
+
+        @Override
+        public void onPageFailed() {
+            onPageError();
+        }
+
+        @Override
+        public void fetchPage(UCPageLoader.PageRequest request) {
+            fetchFromDatasource(request);
+        }
+
+        @Override
+        public void onPagesDropped(int pageCount) {
+            if (mMetrics != null) {
+                mMetrics.onPrefetchDropped(pageCount);
+            }
+        }
+    });
     private boolean mNoMoreData;
-    private ArrayList<Object> mData;
+    // rows of IUCCountedPaginatedDatasource, -1 while unknown
+    private int mTotalCount = -1;
+    private UCListQueryRunner mQueryRunner;
+    private UCListGrouping mGrouping;
+    private boolean mStickyHeaders;
+    // payload of the update being applied, passed with the changes it is notified as
+    private Object mChangePayload;
+    // changes of the rows shown, the loaded rows or the result of the query
+    private final UCListState.Listener mAdapterNotifier = new UCListState.Listener() {
+        @Override
+        public void onInserted(int position, int count) {
+            if (mAdapter != null) {
+                mAdapter.notifyItemRangeInserted(position, count);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (mAdapter != null) {
+                mAdapter.notifyItemRangeRemoved(position, count);
+            }
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            if (mAdapter != null) {
+                mAdapter.notifyItemRangeChanged(position, count, mChangePayload);
+            }
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            if (mAdapter != null) {
+                mAdapter.notifyItemMoved(fromPosition, toPosition);
+            }
+        }
+
+        @Override
+        public void onReset() {
+            if (mAdapter != null) {
+                mAdapter.notifyDataSetChanged();
+            }
+        }
+    };
+    // changes of the loaded rows or the query result, before the group headers are added
+    private final UCListState.Listener mShownRowsListener = new UCListState.Listener() {
+        @Override
+        public void onInserted(int position, int count) {
+            getGroupingListener().onInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            getGroupingListener().onRemoved(position, count);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            getGroupingListener().onChanged(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            getGroupingListener().onMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onReset() {
+            getGroupingListener().onReset();
+        }
+    };
+    private final UCListState mListState = new UCListState(new UCListState.Listener() {
+        @Override
+        public void onInserted(int position, int count) {
+            mMutationQueue.onRowsChanged();
+            getRowsListener().onInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mMutationQueue.onRowsChanged();
+            getRowsListener().onRemoved(position, count);
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            mMutationQueue.onRowsChanged();
+            getRowsListener().onChanged(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mMutationQueue.onRowsChanged();
+            getRowsListener().onMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onReset() {
+            mMutationQueue.onRowsChanged();
+            getRowsListener().onReset();
+        }
+    });
+    private final ArrayList<Object> mData = mListState.getRows();
+    private final UCPageTable mPageTable = mListState.getPageTable();
+    private final UCListDiffer mDiffer = new UCListDiffer();
+    private final UCMutationQueue mMutationQueue = new UCMutationQueue(new Executor() {
+        private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            mMainHandler.post(command);
+        }
+    }, mData);
 
     private boolean initialized = false;
 
@@ -89,6 +312,18 @@ public class UCPaginatedList extends RelativeLayout {
     private void parseAttributeSet(AttributeSet attrs) {
         TypedArray ta = getContext().obtainStyledAttributes(attrs, R.styleable.UCPaginatedList);
         showTopPadding = ta.getBoolean(R.styleable.UCPaginatedList_showTopPadding, false);
+        mPrefetchPolicy.setMaxPages(ta.getInt(R.styleable.UCPaginatedList_prefetchPages, 1));
+        int spanCount = ta.getInt(R.styleable.UCPaginatedList_spanCount, 1);
+        switch (ta.getInt(R.styleable.UCPaginatedList_layoutType, LAYOUT_LINEAR)) {
+            case LAYOUT_GRID:
+                mLayoutStrategy = UCLayoutStrategy.grid(spanCount);
+                break;
+            case LAYOUT_STAGGERED_GRID:
+                mLayoutStrategy = UCLayoutStrategy.staggeredGrid(spanCount);
+                break;
+            default:
+                mLayoutStrategy = UCLayoutStrategy.linear();
+        }
         ta.recycle();
     }
 
@@ -105,11 +340,121 @@ public class UCPaginatedList extends RelativeLayout {
         return this;
     }
 
-    public UCPaginatedList addDataSourceDelegate(IUCPaginatedDatasource dataSourceDelegate) {
+    /**
+     * Caches view types per position in an int array.
+     * Only valid if IUCPaginatedAdapter.getItemViewType depends on the row at position alone,
+     * always on for UCRowRegistry.
+     */
+    public UCPaginatedList addViewTypeCaching(boolean viewTypeCaching) {
+        mViewTypeCaching = viewTypeCaching;
+        if (mAdapter != null) {
+            mAdapter.setViewTypeCaching(viewTypeCaching || mAdapterDelegate instanceof UCRowRegistry);
+        }
+        return this;
+    }
+
+    /**
+     * Gives rows stable ids derived from their reference id, so RecyclerView keeps their views
+     * across notifyDataSetChanged. Needs a reference id extractor, every row must have a reference id
+     * unique among the rows. Not available for IUCCountedPaginatedDatasource, its placeholders have
+     * none. Call before initialize, after adding the datasource delegate.
+     */
+    public UCPaginatedList addStableIds(boolean stableIds) {
+        mStableIds = stableIds;
+        return this;
+    }
+
+    public <T> UCPaginatedList addTypedDataSourceDelegate(IUCTypedPaginatedDatasource<T> dataSourceDelegate) {
+        addDataSourceDelegate(new UCTypedDatasourceWrapper<>(dataSourceDelegate));
+        if (dataSourceDelegate instanceof IUCDatasourceComparison) {
+            mListState.setComparison((IUCDatasourceComparison) dataSourceDelegate);
+        }
+        if (dataSourceDelegate instanceof IUCReferenceIdExtractor) {
+            addReferenceIdExtractor((IUCReferenceIdExtractor) dataSourceDelegate);
+        }
+        return this;
+    }
+
+    /**
+     * Stores the rows of a homogeneous list in the columns of schema instead of one object per row,
+     * see UCColumnarPage. Use it for large lists of small rows, e.g. catalogues.
+     */
+    public UCPaginatedList addColumnarDataSourceDelegate(IUCColumnarPaginatedDatasource dataSourceDelegate,
+                                                         UCColumnarSchema schema) {
+        addDataSourceDelegate(new UCColumnarDatasourceWrapper(dataSourceDelegate, schema));
+        if (dataSourceDelegate instanceof IUCDatasourceComparison) {
+            mListState.setComparison((IUCDatasourceComparison) dataSourceDelegate);
+        }
+        if (dataSourceDelegate instanceof IUCReferenceIdExtractor) {
+            addReferenceIdExtractor((IUCReferenceIdExtractor) dataSourceDelegate);
+        }
+        return this;
+    }
+
+    /**
+     * Pages through a cursor / keyset paginated API, rows already in the list are dropped
+     * if the datasource implements IUCReferenceIdExtractor.
+     */
+    public UCPaginatedList addCursorDataSourceDelegate(IUCCursorPaginatedDatasource dataSourceDelegate) {
+        addDataSourceDelegate(new UCCursorDatasourceWrapper(dataSourceDelegate));
+        if (dataSourceDelegate instanceof IUCDatasourceComparison) {
+            mListState.setComparison((IUCDatasourceComparison) dataSourceDelegate);
+        }
+        if (dataSourceDelegate instanceof IUCReferenceIdExtractor) {
+            addReferenceIdExtractor((IUCReferenceIdExtractor) dataSourceDelegate);
+        }
+        mListState.setDeduplicating(true);
+        return this;
+    }
+
+    /**
+     * Datasource of the pages, it implements IUCPaginatedDatasource, IUCAsyncPaginatedDatasource
+     * or IUCStreamingPaginatedDatasource.
+     */
+    public UCPaginatedList addDataSourceDelegate(IUCDatasource dataSourceDelegate) {
+        if (!(dataSourceDelegate instanceof IUCPaginatedDatasource
+                || dataSourceDelegate instanceof IUCAsyncPaginatedDatasource
+                || dataSourceDelegate instanceof IUCStreamingPaginatedDatasource)) {
+            throw new IllegalArgumentException("Datasource delegate has no way to fetch pages");
+        }
         mDatasourceDelegate = dataSourceDelegate;
         if (dataSourceDelegate instanceof IUCDatasourceComparison) {
-            mComparisonDelegate = (IUCDatasourceComparison) dataSourceDelegate;
+            mListState.setComparison((IUCDatasourceComparison) dataSourceDelegate);
         }
+        if (dataSourceDelegate instanceof IUCReferenceIdExtractor) {
+            addReferenceIdExtractor((IUCReferenceIdExtractor) dataSourceDelegate);
+        }
+        return this;
+    }
+
+    /**
+     * Indexes rows by reference id, making find / update / remove by reference id O(1).
+     * Set automatically if the datasource delegate implements IUCReferenceIdExtractor.
+     */
+    public UCPaginatedList addReferenceIdExtractor(IUCReferenceIdExtractor referenceIdExtractor) {
+        mListState.setReferenceIdExtractor(referenceIdExtractor);
+        return this;
+    }
+
+    /**
+     * Drops rows of new pages whose reference id is already in the list, needs a reference id extractor.
+     * Always on for addCursorDataSourceDelegate.
+     */
+    public UCPaginatedList addDeduplication(boolean deduplication) {
+        mListState.setDeduplicating(deduplication);
+        return this;
+    }
+
+    /**
+     * Shows a header row before every run of rows with the same key, rendered by the adapter delegate
+     * if it implements IUCGroupHeaderAdapter. Headers of a new page are computed for the page alone
+     * and merged with the last group. With stickyHeaders the header of the group at the top stays
+     * pinned above the rows. Positions of the other methods still refer to the loaded rows and pages
+     * are not evicted while grouping. Call before initialize.
+     */
+    public UCPaginatedList addGrouping(IUCGroupKeyExtractor keyExtractor, boolean stickyHeaders) {
+        mGrouping = new UCListGrouping(keyExtractor, getShownRows(), mAdapterNotifier);
+        mStickyHeaders = stickyHeaders;
         return this;
     }
 
@@ -128,44 +473,254 @@ public class UCPaginatedList extends RelativeLayout {
         return this;
     }
 
+    /**
+     * Layout of the rows, linear by default. Must be set before initialize().
+     * mItemsOffsetBeforeNextPage is counted in rows of this layout.
+     */
+    public UCPaginatedList addLayoutStrategy(UCLayoutStrategy layoutStrategy) {
+        mLayoutStrategy = layoutStrategy;
+        return this;
+    }
+
+    /**
+     * Maximum number of pages fetched ahead of the viewport at once, based on scroll velocity.
+     * Needs consecutive page numbers, out of order responses are applied in page order.
+     */
+    public UCPaginatedList addPrefetchPages(int prefetchPages) {
+        mPrefetchPolicy.setMaxPages(prefetchPages);
+        return this;
+    }
+
+    /**
+     * Range of the page sizes requested from an IUCSizedPaginatedDatasource, 10 to 100 rows by default.
+     */
+    public UCPaginatedList addPageSizeRange(int minPageSize, int maxPageSize) {
+        mPageSizeController.setRange(minPageSize, maxPageSize);
+        return this;
+    }
+
+    /**
+     * Keeps only pageWindow loaded pages around the visible ones, rows of other pages are replaced
+     * by placeholders and fetched again through fetchNextPage(page) when scrolled back to.
+     * 0 (default) keeps every page.
+     */
+    public UCPaginatedList addPageWindow(int pageWindow) {
+        mPageWindow = pageWindow;
+        return this;
+    }
+
+    /**
+     * Serves pages from pageCache and stores fetched pages in it.
+     * Pages older than its fresh time are shown right away and fetched again in background.
+     */
+    public UCPaginatedList addPageCache(UCPageCache pageCache) {
+        mPageCache = pageCache;
+        return this;
+    }
+
+    /**
+     * Persists the first maxPages pages with the pagination state to file, rows are written with codec.
+     * On startDataPopulation the snapshot is shown through overrideDataSource until the first page arrives.
+     */
+    public UCPaginatedList addSnapshotPersistence(File file, IUCRowCodec codec, int maxPages) {
+        mSnapshotPersister = new UCSnapshotPersister(file, codec, maxPages);
+        return this;
+    }
+
+    /**
+     * Parses pages on a shared bounded background executor, pages are still applied in order
+     * on the main thread. IUCDatasource.parseDataArray must be thread safe.
+     */
+    public UCPaginatedList addBackgroundParsing(boolean backgroundParsing) {
+        mPageLoader.setParseExecutor(backgroundParsing ? UCPageLoader.getDefaultParseExecutor() : null);
+        return this;
+    }
+
+    /**
+     * Parses pages on parseExecutor, pages are still applied in order on the main thread.
+     */
+    public UCPaginatedList addParseExecutor(Executor parseExecutor) {
+        mPageLoader.setParseExecutor(parseExecutor);
+        return this;
+    }
+
+    /**
+     * Page requests not answered within timeoutMillis are treated as failed, 0 waits forever.
+     * Defaults to 30 seconds.
+     */
+    public UCPaginatedList addRequestTimeout(long timeoutMillis) {
+        mPageLoader.setTimeout(timeoutMillis);
+        return this;
+    }
+
+    /**
+     * Failed or timed out page requests are fetched again up to maxRetries times, waiting
+     * backoffMillis before the first retry and doubling it for every further one.
+     * Defaults to 2 retries after 1 second, 0 retries reports the error right away.
+     */
+    public UCPaginatedList addRetryPolicy(int maxRetries, long backoffMillis) {
+        mPageLoader.setRetryPolicy(maxRetries, backoffMillis);
+        return this;
+    }
+
+    /**
+     * Reports page fetch and parse times, spinner time and row binds to metrics,
+     * e.g. an UCPaginatedListMetrics. Pass null to stop reporting.
+     */
+    public UCPaginatedList addMetricsListener(IUCPaginatedListMetrics metrics) {
+        mMetrics = metrics;
+        if (mAdapter != null) {
+            mAdapter.setMetrics(metrics);
+        }
+        if (mPreloadScheduler != null) {
+            mPreloadScheduler.setMetrics(metrics);
+        }
+        return this;
+    }
+
+    /**
+     * Shares recycled rows with the other lists using sharedViewPool and pre-inflates its rows
+     * on initialize. Call before initialize.
+     */
+    public UCPaginatedList addSharedViewPool(UCSharedViewPool sharedViewPool) {
+        mSharedViewPool = sharedViewPool;
+        return this;
+    }
+
+    /**
+     * Loads the resources of the next preloadRows rows beyond the viewport in the scroll direction
+     * through preloader, at most maxConcurrent at once, e.g. images into the image cache before their
+     * rows are bound. The adapter delegate lists the resources by implementing IUCPreloadAdapter.
+     * Hits are reported to the metrics listener. Call before initialize.
+     */
+    public UCPaginatedList addPreloader(IUCPreloader preloader, int preloadRows, int maxConcurrent) {
+        mPreloader = preloader;
+        mPreloadRows = preloadRows;
+        mMaxConcurrentPreloads = maxConcurrent;
+        return this;
+    }
+
     public void initialize() {
+        checkStableIds();
+        if (mPreloader != null && mAdapterDelegate instanceof IUCPreloadAdapter) {
+            mPreloadScheduler = new UCPreloadScheduler(mPreloader, (IUCPreloadAdapter) mAdapterDelegate,
+                    mMaxConcurrentPreloads);
+            mPreloadScheduler.setMetrics(mMetrics);
+        }
         initEmptyView();
         initRecycler();
         initSwipeRefresh();
-        mProgressBar.setVisibility(View.VISIBLE);
+        setProgressVisible(true);
         initialized = true;
+        if (mSharedViewPool != null && mAdapterDelegate != null) {
+            // own adapter, so the list adapter is still set with the first page
+            mSharedViewPool.preInflate(mRecyclerView, new UCPaginatedAdapter(mData, mAdapterDelegate), mMetrics);
+        }
+    }
+
+    private void checkStableIds() {
+        if (!mStableIds) {
+            return;
+        }
+        if (mListState.getReferenceIdExtractor() == null) {
+            throw new IllegalStateException("Stable ids need a reference id extractor");
+        }
+        if (mDatasourceDelegate instanceof IUCCountedPaginatedDatasource) {
+            throw new IllegalStateException("Stable ids are not available for IUCCountedPaginatedDatasource");
+        }
     }
 
     public void startDataPopulation() {
         if (initialized) {
             fetchData(0);
+            restoreSnapshot();
+        }
+    }
+
+    /**
+     * Shows the persisted snapshot until the first page arrives.
+     */
+    private void restoreSnapshot() {
+        if (mSnapshotPersister == null || !mData.isEmpty()) {
+            return;
+        }
+        mSnapshotPersister.load(new UCSnapshotPersister.OnSnapshotLoadedListener() {
+            @Override
+            public void onSnapshotLoaded(UCListSnapshot snapshot) {
+                if (snapshot == null || mPageTable.size() > 0 || !mData.isEmpty()) {
+                    // first page already arrived
+                    return;
+                }
+                mNoMoreData = snapshot.noMoreData;
+                overrideDataSource(snapshot.rows, snapshot.pageNumber);
+            }
+        });
+    }
+
+    /**
+     * Writes the first pages of the list to the snapshot file, in background.
+     * Called after pages are applied, call it as well after updating or removing rows
+     * if the snapshot should contain them.
+     */
+    public void saveSnapshot() {
+        if (mSnapshotPersister == null || mPageTable.size() == 0 || mPageTable.get(0).previous) {
+            // previous pages are not persisted, the snapshot starts at page zero
+            return;
         }
+        int pageCount = Math.min(mPageTable.size(), mSnapshotPersister.getMaxPages());
+        for (int i = 0; i < pageCount; i++) {
+            if (mPageTable.get(i).evicted) {
+                return;
+            }
+        }
+        UCPageTable.Page lastPage = mPageTable.get(pageCount - 1);
+        int pageNumber = pageCount < mPageTable.size() ? mPageTable.get(pageCount).page : mPageNumber;
+        boolean noMoreData = pageCount == mPageTable.size() && mNoMoreData;
+        mSnapshotPersister.save(new UCListSnapshot(new ArrayList<>(mData.subList(0, lastPage.end())),
+                pageNumber, noMoreData));
     }
 
 
+    /**
+     * @deprecated implement IUCAsyncPaginatedDatasource and use its callback instead
+     */
+    @Deprecated
     public void recievedDataSuccess(ArrayList<Object> data, int currentPage, int nextPage, boolean noMoreData) {
-        this.mNoMoreData = noMoreData;
-        recievedDataSuccess(data, currentPage, nextPage);
+        mPageLoader.deliverLegacySuccess(data, currentPage, nextPage, noMoreData);
     }
 
+    /**
+     * @deprecated implement IUCAsyncPaginatedDatasource and use its callback instead
+     */
+    @Deprecated
     public void recievedDataSuccess(ArrayList<Object> data, int currentPage, int nextPage) {
-        mEmptyView.setVisibility(View.GONE);
+        mPageLoader.deliverLegacySuccess(data, currentPage, nextPage, null);
+    }
 
-        if (mData == null) {
-            mData = new ArrayList<>();
+    private ArrayList<Object> parsePage(ArrayList<Object> data, int currentPage) {
+        if (mDatasourceDelegate == null || (currentPage == 0 && (data == null || data.size() == 0))) {
+            return null;
         }
+        return mDatasourceDelegate.parseDataArray(data);
+    }
 
-        if (currentPage == 0) {
-            mData.clear();
+    /**
+     * @param appliedRows rows of a streamed page already appended through onRowsReady
+     */
+    private void applyPage(ArrayList<Object> data, ArrayList<Object> parsedData, int appliedRows,
+                           int currentPage, int nextPage, Boolean noMoreData, final Runnable onApplied) {
+        if (noMoreData != null) {
+            mNoMoreData = noMoreData;
+        } else if (currentPage == 0) {
+            // may still be set by a restored snapshot
+            mNoMoreData = false;
         }
 
+        mEmptyView.setVisibility(View.GONE);
+
         if (currentPage == 0 && (data == null || data.size() == 0)) {
             mEmptyView.setVisibility(View.VISIBLE);
         } else {
-            if (mDatasourceDelegate != null) {
-                mData.addAll(mDatasourceDelegate.parseDataArray(data));
-            }
-
             if (nextPage != NO_NEXT_PAGE) {
                 mPageNumber = nextPage;
             } else {
@@ -175,37 +730,360 @@ public class UCPaginatedList extends RelativeLayout {
             }
         }
 
-        refreshAdapater();
+        if (mNoMoreData || data == null || data.size() == 0 || mPageNumber != currentPage + 1) {
+            // prefetched pages were requested assuming this page is followed by currentPage + 1
+            mPageLoader.cancelPending();
+        }
+
+        if (parsedData == null) {
+            parsedData = new ArrayList<>();
+        }
+        if (mLayoutManager != null) {
+            mPrefetchPolicy.onPageApplied(parsedData.size() / mLayoutStrategy.getItemsPerRow(mLayoutManager));
+        }
 
-        refreshLoaderState();
+        if (currentPage == 0) {
+            mPreviousPageNumber = -1;
+            mNoMorePreviousData = false;
+            final int rowCount = parsedData.size();
+            final int totalCount = getTotalCount();
+            if (totalCount > rowCount) {
+                // placeholders of the other pages, diffed with the ones shown so the list does not jump
+                parsedData = new ArrayList<>(parsedData);
+                parsedData.addAll(Collections.nCopies(totalCount - rowCount, UCPlaceholder.INSTANCE));
+            }
+            replaceData(parsedData, new Runnable() {
+                @Override
+                public void run() {
+                    mPageTable.clear();
+                    mPageTable.append(0, 0, rowCount);
+                    mTotalCount = totalCount;
+                    if (totalCount > rowCount) {
+                        mPageTable.appendEvicted(1, rowCount, totalCount - rowCount,
+                                ((IUCCountedPaginatedDatasource) mDatasourceDelegate).getPageSize());
+                    }
+                    refreshLoaderState();
+                    saveSnapshot();
+                    onApplied.run();
+                }
+            });
+        } else {
+            appendData(currentPage, parsedData.subList(Math.min(appliedRows, parsedData.size()),
+                    parsedData.size()));
+            if (mTotalCount < 0 && getTotalCount() >= 0) {
+                // count arrived after the first page, the following pages are fetched by their placeholders
+                mPageLoader.cancelPending();
+                updateTotalCount();
+            }
+            refreshLoaderState();
+            if (mSnapshotPersister != null && mPageTable.size() <= mSnapshotPersister.getMaxPages()) {
+                saveSnapshot();
+            }
+            onApplied.run();
+        }
+    }
 
-        mDataFetchInProgress = false;
+    /**
+     * Inserts a page of IUCBidirectionalPaginatedDatasource above the loaded rows.
+     * Notified as a range insert at the top, RecyclerView keeps the rows on screen in place.
+     */
+    private void prependPage(int page, ArrayList<Object> data, ArrayList<Object> parsedData,
+                             int nextPage, Boolean noMoreData) {
+        if (mPageTable.size() == 0) {
+            // list was cleared meanwhile
+            return;
+        }
+        if ((noMoreData != null && noMoreData) || data == null || data.size() == 0) {
+            mNoMorePreviousData = true;
+        }
+        mPreviousPageNumber = nextPage != NO_NEXT_PAGE ? nextPage : page - 1;
+        if (parsedData != null && parsedData.size() > 0) {
+            mMutationQueue.beginChange();
+            mListState.prependPage(page, parsedData);
+        }
+    }
+
+    /**
+     * Puts back the rows of a page evicted from the loaded window or not loaded yet.
+     */
+    private void restorePage(int pageNumber, ArrayList<Object> parsedData) {
+        UCPageTable.Page page = mPageTable.find(pageNumber);
+        if (page == null || !page.evicted) {
+            return;
+        }
+        mMutationQueue.beginChange();
+        mListState.replacePageRows(page, parsedData == null ? new ArrayList<>() : parsedData, false);
+        page.evicted = false;
+        if (mTotalCount >= 0) {
+            updateTotalCount();
+        }
+    }
+
+    /**
+     * Total count of an IUCCountedPaginatedDatasource, -1 if it is unknown.
+     * Unknown as well without a positive page size, pages of placeholders could not be laid out.
+     */
+    private int getTotalCount() {
+        if (!(mDatasourceDelegate instanceof IUCCountedPaginatedDatasource)) {
+            return -1;
+        }
+        IUCCountedPaginatedDatasource datasource = (IUCCountedPaginatedDatasource) mDatasourceDelegate;
+        if (datasource.getPageSize() <= 0) {
+            return -1;
+        }
+        return datasource.getTotalCount();
+    }
+
+    /**
+     * Adds or removes trailing placeholder pages if the total count changed since the first page.
+     */
+    private void updateTotalCount() {
+        int totalCount = getTotalCount();
+        if (totalCount < 0 || totalCount == mTotalCount) {
+            return;
+        }
+        mTotalCount = totalCount;
+        mMutationQueue.beginChange();
+        mListState.padToCount(totalCount, ((IUCCountedPaginatedDatasource) mDatasourceDelegate).getPageSize());
+    }
+
+    /**
+     * Updates rows of a page served from UCPageCache with the page fetched again,
+     * only rows which are not equal are rebound.
+     */
+    private void revalidatePage(int pageNumber, ArrayList<Object> data, ArrayList<Object> parsedData,
+                                int nextPage, Boolean noMoreData) {
+        UCPageTable.Page page = mPageTable.find(pageNumber);
+        if (page == null || page.evicted) {
+            return;
+        }
+        mMutationQueue.beginChange();
+        mListState.replacePageRows(page, parsedData == null ? new ArrayList<>() : parsedData, true);
+
+        boolean lastPage = mPageTable.get(mPageTable.size() - 1) == page;
+        if (lastPage && mPageLoader.getPendingCount() == 0) {
+            if (noMoreData != null) {
+                mNoMoreData = noMoreData;
+            }
+            if (nextPage != NO_NEXT_PAGE) {
+                mPageNumber = nextPage;
+            } else if (data != null && data.size() > 0) {
+                mPageNumber = pageNumber + 1;
+            }
+        }
+        resetEmptyViewPageNumberState();
+    }
+
+    /**
+     * Evicts loaded pages outside of mPageWindow pages around the visible ones and
+     * fetches again evicted pages which come near the viewport.
+     */
+    private void updatePageWindow(int firstVisible, int lastVisible) {
+        if (mPageTable.size() == 0) {
+            return;
+        }
+
+        int firstPage = mPageTable.indexOfPosition(Math.max(0, firstVisible));
+        int lastPage = mPageTable.indexOfPosition(lastVisible);
+        if (firstPage == -1 || lastPage == -1) {
+            return;
+        }
+
+        int slack = Math.max(0, mPageWindow - (lastPage - firstPage + 1));
+        int keepFrom = firstPage - slack / 2;
+        int keepTo = lastPage + (slack - slack / 2);
+        for (int i = 0; i < mPageTable.size(); i++) {
+            if (i < keepFrom || i > keepTo) {
+                mMutationQueue.beginChange();
+                mListState.evictPage(mPageTable.get(i));
+            }
+        }
+        restorePages(firstVisible, lastVisible);
+    }
+
+    /**
+     * Fetches evicted or not yet loaded pages within mItemsOffsetBeforeNextPage of the viewport.
+     * Requests of a counted datasource for pages away from it are dropped, so a fast scroll
+     * only loads the pages it stops at.
+     */
+    private void restorePages(int firstVisible, int lastVisible) {
+        int firstPage = mPageTable.indexOfPosition(Math.max(0, firstVisible));
+        int lastPage = mPageTable.indexOfPosition(lastVisible);
+        if (firstPage == -1 || lastPage == -1) {
+            return;
+        }
+
+        int offsetItems = (int) Math.ceil(mItemsOffsetBeforeNextPage
+                * mLayoutStrategy.getItemsPerRow(mLayoutManager));
+        int restoreFrom = mPageTable.indexOfPosition(Math.max(0, firstVisible - offsetItems));
+        int restoreTo = mPageTable.indexOfPosition(Math.min(mData.size() - 1, lastVisible + offsetItems));
+        if (restoreFrom == -1) {
+            restoreFrom = firstPage;
+        }
+        if (restoreTo == -1) {
+            restoreTo = lastPage;
+        }
+        for (int i = restoreFrom; i <= restoreTo; i++) {
+            UCPageTable.Page page = mPageTable.get(i);
+            if (page.evicted && !mPageLoader.isRequested(page.page, UCPageLoader.TYPE_RESTORE)) {
+                requestPage(page.page, false, UCPageLoader.TYPE_RESTORE);
+            }
+        }
+        if (mTotalCount >= 0) {
+            // page numbers of a counted datasource follow the positions
+            mPageLoader.cancelOutside(UCPageLoader.TYPE_RESTORE, mPageTable.get(restoreFrom).page,
+                    mPageTable.get(restoreTo).page);
+        }
+    }
+
+    private void appendData(int page, List<Object> parsedData) {
+        mMutationQueue.beginChange();
+        mListState.appendPage(page, parsedData);
+        if (mAdapter == null) {
+            refreshAdapater();
+        }
+    }
+
+    /**
+     * Replaces all rows with newData and notifies only the rows which changed.
+     * Large diffs are calculated off the main thread, onReplaced runs once newData is applied.
+     */
+    private void replaceData(final ArrayList<Object> newData, final Runnable onReplaced) {
+        if (mAdapter == null || mData.isEmpty() || newData.isEmpty()) {
+            mDiffer.cancel();
+            mMutationQueue.beginChange();
+            mListState.setRows(newData);
+            if (mAdapter == null) {
+                refreshAdapater();
+            }
+            onReplaced.run();
+            return;
+        }
+
+        final int dataVersion = mListState.getVersion();
+        mDiffer.calculateDiff(mListState, new ArrayList<>(mData), newData,
+                new UCListDiffer.OnDiffCalculatedListener() {
+                    @Override
+                    public void onDiffCalculated(UCListDiff result) {
+                        // reported as a reset if rows were updated or removed while diffing
+                        mMutationQueue.beginChange();
+                        mListState.applyDiff(newData, result, dataVersion);
+                        onReplaced.run();
+                    }
+                });
+    }
+
+    private UCListState.Listener getRowsListener() {
+        return mQueryRunner != null ? mQueryRunner : mShownRowsListener;
+    }
+
+    private UCListState.Listener getGroupingListener() {
+        return mGrouping != null ? mGrouping : mAdapterNotifier;
+    }
+
+    /**
+     * Loaded rows, the result of the query if one is set.
+     */
+    private ArrayList<Object> getShownRows() {
+        return mQueryRunner != null ? mQueryRunner.getRows() : mData;
+    }
+
+    /**
+     * Shown rows with the group headers if grouping is set.
+     */
+    private ArrayList<Object> getAdapterRows() {
+        return mGrouping != null ? mGrouping.getRows() : getShownRows();
     }
 
     private void refreshAdapater() {
         if (mAdapter == null) {
-            mAdapter = new UCPaginatedAdapter(mData, mAdapterDelegate);
+            mAdapter = UCPaginatedAdapter.create(getAdapterRows(), mAdapterDelegate, mViewTypeCaching,
+                    mStableIds ? mListState.getReferenceIdExtractor() : null);
+            mAdapter.setMetrics(mMetrics);
+            mAdapter.setPreloadScheduler(mPreloadScheduler);
             mRecyclerView.setAdapter(mAdapter);
         } else {
             mAdapter.notifyDataSetChanged();
         }
     }
 
+    /**
+     * @deprecated implement IUCAsyncPaginatedDatasource and use its callback instead
+     */
+    @Deprecated
     public void receivedDataError() {
-        mDataFetchInProgress = false;
-        mProgressBar.setVisibility(View.GONE);
+        mPageLoader.deliverLegacyError();
+    }
+
+    private void onPageError() {
+        setProgressVisible(false);
         mSwipeRefreshLayout.setRefreshing(false);
         mEmptyView.setRefreshing(false);
     }
 
-    public boolean removeItem(Object genericItem) {
-        if (mData != null && mData.contains(genericItem)) {
-            mData.remove(genericItem);
-            mAdapter.notifyDataSetChanged();
-            resetEmptyViewPageNumberState();
+    /**
+     * Like the other methods changing rows it may be called from any thread. Off the main thread
+     * the change is queued for the main thread and true is returned whether the row is found or not,
+     * read getRowsSnapshot afterwards for the result.
+     */
+    public boolean removeItem(final Object genericItem) {
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    removeItem(genericItem);
+                }
+            });
             return true;
         }
-        return false;
+        mMutationQueue.beginChange();
+        return removeItemAt(getItemPosition(genericItem));
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * Lookups index the rows lazily, so they change the index and must not race with the main thread.
+     */
+    private static void checkMainThread(String method) {
+        if (!isMainThread()) {
+            throw new IllegalStateException(method + " must be called on the main thread, "
+                    + "read getRowsSnapshot instead");
+        }
+    }
+
+    /**
+     * Immutable copy of the loaded rows as of the last change applied, may be read from any thread.
+     * The first read after a change copies the rows once the main thread is done changing them.
+     * The other methods reading rows must be called on the main thread.
+     */
+    public List<Object> getRowsSnapshot() {
+        return mMutationQueue.getSnapshot();
+    }
+
+    private boolean removeItemAt(int position) {
+        if (!mListState.removeAt(position)) {
+            return false;
+        }
+        resetEmptyViewPageNumberState();
+        return true;
+    }
+
+    /**
+     * Returns true for rows which are not loaded, e.g. of pages evicted by addPageWindow.
+     * Such rows are rendered by IUCPlaceholderAdapter and never passed to onBindViewHolder.
+     */
+    public static boolean isPlaceholder(Object o) {
+        return o == UCPlaceholder.INSTANCE;
+    }
+
+    /**
+     * Returns true for the header rows of addGrouping, which are never passed to onBindViewHolder.
+     */
+    public static boolean isGroupHeader(Object o) {
+        return o instanceof UCGroupHeader;
     }
 
     public
@@ -214,68 +1092,207 @@ public class UCPaginatedList extends RelativeLayout {
         return mRecyclerView;
     }
 
-    public void refreshList(boolean fromPageZero) {
+    public void refreshList(final boolean fromPageZero) {
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    refreshList(fromPageZero);
+                }
+            });
+            return;
+        }
+        mMutationQueue.beginChange();
         if (fromPageZero) {
             mNoMoreData = false;
             fetchData(0);
         } else {
             if (mAdapter != null) {
-                mAdapter.notifyDataSetChanged();
+                mAdapter.notifyItemRangeChanged(0, mAdapter.getItemCount());
             }
         }
     }
 
-    public int getItemPosition(@NonNull Object genericObject) {
-        if (mData != null) {
-            return mData.indexOf(genericObject);
+    /**
+     * Shows only the loaded rows matching query, in its order, see UCListQuery.
+     * Changes are published as minimal diffs, large lists are evaluated off the main thread and
+     * pages loaded later are filtered on their own. Pass null to show all loaded rows again.
+     * Positions of the other methods still refer to the loaded rows and pages are not evicted
+     * while a query is set.
+     */
+    public void setQuery(final UCListQuery query) {
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    setQuery(query);
+                }
+            });
+            return;
+        }
+        mMutationQueue.beginChange();
+        if (query == null) {
+            if (mQueryRunner != null) {
+                mQueryRunner.detach(new UCListQueryRunner.OnDetachedListener() {
+                    @Override
+                    public void onDetached() {
+                        // shown rows are the loaded ones now
+                        mQueryRunner = null;
+                        onShownRowsReplaced();
+                    }
+                });
+            }
+            return;
+        }
+        if (mQueryRunner == null) {
+            mQueryRunner = new UCListQueryRunner(mListState, mShownRowsListener);
+            onShownRowsReplaced();
+        }
+        mQueryRunner.setQuery(query);
+    }
+
+    /**
+     * The shown rows are held by another list now, with the same rows.
+     */
+    private void onShownRowsReplaced() {
+        if (mGrouping != null) {
+            mGrouping.setSource(getShownRows());
+        } else if (mAdapter != null) {
+            mAdapter.setRows(getShownRows());
         }
-        return RecyclerView.NO_POSITION;
     }
 
-    public boolean removeItemByReferenceId(String referenceId) {
-        Object found = findItemByReferenceId(referenceId);
-        if (found != null) {
-            removeItem(found);
+    /**
+     * Must be called on the main thread, like findItemByReferenceId.
+     */
+    public int getItemPosition(@NonNull Object genericObject) {
+        checkMainThread("getItemPosition");
+        return mListState.indexOf(genericObject);
+    }
+
+    /**
+     * Off the main thread the removal is queued and true is returned, see removeItem.
+     */
+    public boolean removeItemByReferenceId(final String referenceId) {
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    removeItemByReferenceId(referenceId);
+                }
+            });
             return true;
         }
-        return false;
+        mMutationQueue.beginChange();
+        return removeItemAt(findPositionByReferenceId(referenceId));
     }
 
+    /**
+     * Must be called on the main thread, other threads read getRowsSnapshot.
+     */
     public Object findItemByReferenceId(String referenceId) {
-        if (mData == null || mData.size() == 0)
+        checkMainThread("findItemByReferenceId");
+        int position = findPositionByReferenceId(referenceId);
+        if (position == RecyclerView.NO_POSITION) {
             return null;
+        }
+        return mData.get(position);
+    }
 
-        for (Object o : mData)
-            if (mComparisonDelegate != null) {
-                if (mComparisonDelegate.hasReferenceId(o, referenceId)) {
-                    return o;
-                }
-            }
-
-        return null;
+    private int findPositionByReferenceId(String referenceId) {
+        return mListState.indexOfReferenceId(referenceId);
     }
 
     public boolean updateItemByReferenceId(String referenceId, Object newItem) {
-        Object found = findItemByReferenceId(referenceId);
-        if (found != null) {
-            updateItem(found, newItem);
+        return updateItemByReferenceId(referenceId, newItem, null);
+    }
+
+    /**
+     * Rebinds the row through IUCPayloadAdapter with payload, e.g. the field which changed,
+     * if the adapter delegate implements it. Rebound in full while a query is set.
+     * Off the main thread the update is queued and true is returned, see removeItem.
+     */
+    public boolean updateItemByReferenceId(final String referenceId, final Object newItem,
+                                           final Object payload) {
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    updateItemByReferenceId(referenceId, newItem, payload);
+                }
+            });
             return true;
         }
-        return false;
+        mMutationQueue.beginChange();
+        return updateItemAt(findPositionByReferenceId(referenceId), newItem, payload);
     }
 
     public boolean updateItem(Object oldItem, Object newItem) {
-        if (mData != null) {
-            int position = mData.indexOf(oldItem);
-            if (position == -1) {
-                return false;
-            }
-            mData.set(position, newItem);
-            mAdapter.notifyItemChanged(position);
-            resetEmptyViewPageNumberState();
+        return updateItem(oldItem, newItem, null);
+    }
+
+    /**
+     * Rebinds the row through IUCPayloadAdapter with payload, e.g. the field which changed,
+     * if the adapter delegate implements it. Rebound in full while a query is set.
+     * Off the main thread the update is queued and true is returned, see removeItem.
+     */
+    public boolean updateItem(final Object oldItem, final Object newItem, final Object payload) {
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    updateItem(oldItem, newItem, payload);
+                }
+            });
             return true;
         }
-        return false;
+        mMutationQueue.beginChange();
+        return updateItemAt(getItemPosition(oldItem), newItem, payload);
+    }
+
+    /**
+     * Applies many updates, removals, inserts and moves in one pass over the rows with
+     * coalesced notifications, e.g. for a server push invalidating many rows.
+     * Returns the number of mutations applied, see UCListMutations, off the main thread they are
+     * queued and their count is returned.
+     */
+    public int applyMutations(final UCListMutations mutations) {
+        if (mutations.isEmpty()) {
+            return 0;
+        }
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    applyMutations(mutations);
+                }
+            });
+            return mutations.size();
+        }
+        mMutationQueue.beginChange();
+        int applied = mListState.apply(mutations);
+        if (applied > 0) {
+            resetEmptyViewPageNumberState();
+        }
+        return applied;
+    }
+
+    private boolean updateItemAt(int position, Object newItem) {
+        if (!mListState.updateAt(position, newItem)) {
+            return false;
+        }
+        resetEmptyViewPageNumberState();
+        return true;
+    }
+
+    private boolean updateItemAt(int position, Object newItem, Object payload) {
+        // the query runner notifies later, without it
+        mChangePayload = payload;
+        try {
+            return updateItemAt(position, newItem);
+        } finally {
+            mChangePayload = null;
+        }
     }
 
     private void inflateUI() {
@@ -307,30 +1324,108 @@ public class UCPaginatedList extends RelativeLayout {
     }
 
     private void initRecycler() {
-        mLinearLayoutManager = new LinearLayoutManager(getContext(), LinearLayoutManager.VERTICAL,
-                false);
-        mRecyclerView.setLayoutManager(mLinearLayoutManager);
+        mLayoutManager = mLayoutStrategy.createLayoutManager(getContext());
+        mRecyclerView.setLayoutManager(mLayoutManager);
+        if (mSharedViewPool != null) {
+            if (mLayoutManager instanceof LinearLayoutManager) {
+                // rows go back to the shared pool when the list is detached, e.g. its tab is destroyed
+                ((LinearLayoutManager) mLayoutManager).setRecycleChildrenOnDetach(true);
+            }
+            mRecyclerView.setRecycledViewPool(mSharedViewPool.getRecycledViewPool());
+        }
+        if (mGrouping != null) {
+            initGrouping();
+        }
         mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
                 super.onScrolled(recyclerView, dx, dy);
-                if (mDataFetchInProgress) {
+                mPrefetchPolicy.onScrolled(dy, SystemClock.uptimeMillis());
+                int firstVisible = mLayoutStrategy.findFirstVisibleItemPosition(mLayoutManager);
+                int lastVisible = mLayoutStrategy.findLastVisibleItemPosition(mLayoutManager);
+                if (firstVisible == RecyclerView.NO_POSITION || lastVisible == RecyclerView.NO_POSITION) {
                     return;
                 }
-                if (dy > 0) {
-                    int visibleItemCount = mLinearLayoutManager.getChildCount();
-                    int totalItemCount = mLinearLayoutManager.getItemCount();
-                    int pastVisibleItems = mLinearLayoutManager.findFirstVisibleItemPosition();
-                    if ((visibleItemCount + pastVisibleItems) + mItemsOffsetBeforeNextPage
-                            >= totalItemCount) {
-
-                        fetchData(mPageNumber);
+                int visibleRows = mLayoutStrategy.getRowsBetween(mLayoutManager, firstVisible, lastVisible);
+                float rowHeight = visibleRows > 0 ? (float) mRecyclerView.getHeight() / visibleRows : 0;
+                if (isSized() && rowHeight > 0) {
+                    float itemsPerRow = mLayoutStrategy.getItemsPerRow(mLayoutManager);
+                    mPageSizeController.onViewport(lastVisible - firstVisible + 1,
+                            mPrefetchPolicy.getVelocity() / rowHeight * itemsPerRow);
+                }
+                boolean counted = mTotalCount >= 0 && mPageTable.size() > 0;
+                if ((mPageWindow > 0 || counted) && mAdapter != null && mQueryRunner == null
+                        && mGrouping == null) {
+                    mAdapter.setPlaceholderHeight((int) rowHeight);
+                    if (mPageWindow > 0) {
+                        updatePageWindow(firstVisible, lastVisible);
+                    } else {
+                        restorePages(firstVisible, lastVisible);
+                    }
+                }
+                if (mPreloadScheduler != null) {
+                    int preloadItems = (int) Math.ceil(mPreloadRows
+                            * mLayoutStrategy.getItemsPerRow(mLayoutManager));
+                    mPreloadScheduler.onScrolled(getAdapterRows(), firstVisible, lastVisible, dy, preloadItems);
+                }
+                if (mDatasourceDelegate instanceof IUCStreamingPaginatedDatasource) {
+                    // two screens of rows after the viewport, at least the next page offset
+                    int offsetItems = (int) Math.ceil(mItemsOffsetBeforeNextPage
+                            * mLayoutStrategy.getItemsPerRow(mLayoutManager));
+                    mPageLoader.setStreamDemand(mLayoutManager.getItemCount() - 1 - lastVisible,
+                            2 * Math.max(lastVisible - firstVisible + 1, offsetItems));
+                }
+                if (dy < 0) {
+                    int rowsBefore = firstVisible == 0 ? 0
+                            : mLayoutStrategy.getRowsBetween(mLayoutManager, 0, firstVisible - 1);
+                    if (rowsBefore <= mItemsOffsetBeforeNextPage) {
+                        fetchPreviousPage();
+                    }
+                }
+                if (dy > 0 && !counted) {
+                    int rowsAhead = mLayoutStrategy.getRowsAfter(mLayoutManager, lastVisible,
+                            mLayoutManager.getItemCount());
+                    int pagesNeeded = mPrefetchPolicy.pagesNeeded(rowsAhead,
+                            mItemsOffsetBeforeNextPage, rowHeight,
+                            mPageLoader.getAverageFetchLatency());
+                    if (pagesNeeded > 0) {
+                        // spinner only once the user is within mItemsOffsetBeforeNextPage of the end
+                        prefetchPages(pagesNeeded, rowsAhead <= mItemsOffsetBeforeNextPage);
                     }
                 }
             }
         });
     }
 
+    private void initGrouping() {
+        if (mLayoutManager instanceof GridLayoutManager) {
+            // headers take a whole row
+            final GridLayoutManager gridLayoutManager = (GridLayoutManager) mLayoutManager;
+            GridLayoutManager.SpanSizeLookup spanSizeLookup = new GridLayoutManager.SpanSizeLookup() {
+                @Override
+                public int getSpanSize(int position) {
+                    return UCPaginatedList.isGroupHeader(mGrouping.getRows().get(position))
+                            ? gridLayoutManager.getSpanCount() : 1;
+                }
+
+                // found from the header positions, the default ones walk every row before position
+                @Override
+                public int getSpanIndex(int position, int spanCount) {
+                    return mGrouping.getGridSpanIndex(position, spanCount);
+                }
+
+                @Override
+                public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+                    return mGrouping.getGridRow(adapterPosition, spanCount);
+                }
+            };
+            gridLayoutManager.setSpanSizeLookup(spanSizeLookup);
+        }
+        if (mStickyHeaders) {
+            mRecyclerView.addItemDecoration(new UCStickyHeaderDecoration(mGrouping));
+        }
+    }
+
     private void initEmptyView() {
         mEmptyViewTextView.setTextColor(mEmptyTextColor);
         mEmptyViewTextView.setText(mEmptyStateText);
@@ -345,54 +1440,195 @@ public class UCPaginatedList extends RelativeLayout {
     }
 
     private void fetchData(int page) {
-        if (mDataFetchInProgress || mNoMoreData) {
+        if (mNoMoreData) {
+            return;
+        }
+
+        if (mPageLoader.isLoading()) {
+            if (page != 0 || mPageLoader.isRequested(0)) {
+                return;
+            }
+            // page zero refresh supersedes pages still in flight
+            mPageLoader.cancelAll();
+            mDiffer.cancel();
+        }
+
+        requestPage(page, true, UCPageLoader.TYPE_NEXT);
+    }
+
+    private void fetchPreviousPage() {
+        if (mNoMorePreviousData || !(mDatasourceDelegate instanceof IUCBidirectionalPaginatedDatasource)
+                || mPageTable.size() == 0 || mPageLoader.isRequested(0)
+                || mPageLoader.hasRequest(UCPageLoader.TYPE_PREVIOUS)) {
+            return;
+        }
+        requestPage(mPreviousPageNumber, false, UCPageLoader.TYPE_PREVIOUS);
+    }
+
+    /**
+     * Keeps up to pageCount pages in flight after the last loaded one.
+     * Pages ahead of the first are predicted as consecutive page numbers.
+     */
+    private void prefetchPages(int pageCount, boolean showProgress) {
+        if (mNoMoreData || mPageLoader.isApplying() || mPageLoader.isRequested(0)
+                || (mTotalCount >= 0 && mPageTable.size() > 0)) {
+            // pages of a counted datasource are fetched by their placeholders
             return;
         }
 
-        mDataFetchInProgress = true;
+        // cached pages are applied right away, so the loop is bounded by pageCount as well
+        for (int i = 0; i < pageCount && mPageLoader.getPendingCount() < pageCount && !mNoMoreData; i++) {
+            int lastRequestedPage = mPageLoader.getLastRequestedPage();
+            if (!requestPage(lastRequestedPage == -1 ? mPageNumber : lastRequestedPage + 1,
+                    showProgress, UCPageLoader.TYPE_NEXT)) {
+                return;
+            }
+        }
+    }
+
+    private boolean requestPage(int page, boolean showProgress, int type) {
+        if (mDatasourceDelegate == null) {
+            return false;
+        }
+        if (mPageLoader.isRequested(page, type)) {
+            // coalesced with the request in flight
+            return true;
+        }
 
-        if (mDatasourceDelegate != null) {
-            mDatasourceDelegate.fetchNextPage(page);
-            if (!mSwipeRefreshLayout.isRefreshing() && !mEmptyView.isRefreshing()) {
-                mProgressBar.setVisibility(View.VISIBLE);
+        if (isSized() && (type == UCPageLoader.TYPE_NEXT || mPageSizes.indexOfKey(page) < 0)) {
+            assignPageRange(page, type);
+        }
+        UCPageLoader.PageRequest request = mPageLoader.request(page, type);
+
+        if (mPageCache != null && type != UCPageLoader.TYPE_REVALIDATE) {
+            UCPageCache.Entry entry = mPageCache.get(page);
+            if (entry != null) {
+                // a pull to refresh always fetches the first page again
+                boolean revalidate = mPageCache.isStale(entry) || (page == 0
+                        && (mSwipeRefreshLayout.isRefreshing() || mEmptyView.isRefreshing()));
+                mPageLoader.deliverParsed(request, entry.data, entry.parsedData, entry.nextPage,
+                        entry.noMoreData);
+                if (revalidate && !mPageLoader.isRequested(page, UCPageLoader.TYPE_REVALIDATE)) {
+                    requestPage(page, false, UCPageLoader.TYPE_REVALIDATE);
+                }
+                return true;
             }
         }
+
+        fetchFromDatasource(request);
+        if (showProgress && !mSwipeRefreshLayout.isRefreshing() && !mEmptyView.isRefreshing()) {
+            setProgressVisible(true);
+        }
+        return true;
+    }
+
+    private boolean isSized() {
+        return mDatasourceDelegate instanceof IUCSizedPaginatedDatasource
+                && !(mDatasourceDelegate instanceof IUCCountedPaginatedDatasource);
+    }
+
+    /**
+     * Picks the size of a next page, it starts after the rows requested for the page before it.
+     * Other pages are fetched again with the range they were loaded with.
+     */
+    private void assignPageRange(int page, int type) {
+        if (type != UCPageLoader.TYPE_NEXT) {
+            // loaded without a range, e.g. from a snapshot
+            UCPageTable.Page loaded = mPageTable.find(page);
+            mPageOffsets.put(page, loaded == null ? 0 : loaded.start);
+            mPageSizes.put(page, loaded == null || loaded.count == 0
+                    ? mPageSizeController.getPageSize() : loaded.count);
+            return;
+        }
+        if (page == 0) {
+            mPageOffsets.clear();
+            mPageSizes.clear();
+            mPageOffsets.put(0, 0);
+            mPageSizes.put(0, mPageSizeController.getFirstPageSize());
+            return;
+        }
+        int previousPage = mPageLoader.getLastRequestedPage();
+        if (previousPage == -1 && mPageTable.size() > 0) {
+            previousPage = mPageTable.get(mPageTable.size() - 1).page;
+        }
+        int offset = mPageSizes.indexOfKey(previousPage) >= 0
+                ? mPageOffsets.get(previousPage) + mPageSizes.get(previousPage) : mData.size();
+        mPageOffsets.put(page, offset);
+        mPageSizes.put(page, mPageSizeController.getPageSize());
+    }
+
+    private void fetchFromDatasource(UCPageLoader.PageRequest request) {
+        int page = request.page;
+        UCPageTable.Page loaded = request.type == UCPageLoader.TYPE_NEXT ? null : mPageTable.find(page);
+        if (request.type == UCPageLoader.TYPE_PREVIOUS || (loaded != null && loaded.previous)) {
+            ((IUCBidirectionalPaginatedDatasource) mDatasourceDelegate).fetchPreviousPage(page, request);
+        } else if (mDatasourceDelegate instanceof IUCStreamingPaginatedDatasource) {
+            ((IUCStreamingPaginatedDatasource) mDatasourceDelegate).subscribe(page, request);
+        } else if (isSized()) {
+            ((IUCSizedPaginatedDatasource) mDatasourceDelegate).fetchNextPage(page,
+                    mPageOffsets.get(page), mPageSizes.get(page), request);
+        } else if (mDatasourceDelegate instanceof IUCAsyncPaginatedDatasource) {
+            ((IUCAsyncPaginatedDatasource) mDatasourceDelegate).fetchNextPage(page, request);
+        } else {
+            request.legacy = true;
+            ((IUCPaginatedDatasource) mDatasourceDelegate).fetchNextPage(page);
+        }
     }
 
     private void resetEmptyViewPageNumberState() {
-        if (mData != null && mData.size() == 0) {
+        if (mData.size() == 0) {
             mPageNumber = 0;
             mEmptyView.setVisibility(View.VISIBLE);
         }
 
-        if (mData != null && mData.size() != 0) {
+        if (mData.size() != 0) {
             mEmptyView.setVisibility(View.GONE);
 
         }
     }
 
-    public void overrideDataSource(ArrayList<Object> data, int skipToPage) {
+    public void overrideDataSource(final ArrayList<Object> data, final int skipToPage) {
         if (data == null || data.size() == 0) {
             return;
         }
-        if (mData != null) {
-            mData.clear();
-            mData.addAll(data);
-        } else {
-            mData = new ArrayList<>();
-            mData.addAll(data);
+        if (!isMainThread()) {
+            mMutationQueue.submit(new Runnable() {
+                @Override
+                public void run() {
+                    overrideDataSource(data, skipToPage);
+                }
+            });
+            return;
         }
-        refreshAdapater();
-
+        mMutationQueue.beginChange();
         if (skipToPage > 0) {
             mPageNumber = skipToPage;
         }
-        refreshLoaderState();
+        replaceData(new ArrayList<>(data), new Runnable() {
+            @Override
+            public void run() {
+                // rows do not map to single pages, they are never evicted
+                mPageTable.clear();
+                refreshLoaderState();
+            }
+        });
+    }
+
+    private void setProgressVisible(boolean visible) {
+        mProgressBar.setVisibility(visible ? View.VISIBLE : View.GONE);
+        if (visible && mProgressShownTime < 0) {
+            mProgressShownTime = SystemClock.uptimeMillis();
+        } else if (!visible && mProgressShownTime >= 0) {
+            if (mMetrics != null) {
+                mMetrics.onSpinnerHidden(SystemClock.uptimeMillis() - mProgressShownTime);
+            }
+            mProgressShownTime = -1;
+        }
     }
 
     private void refreshLoaderState() {
         mSwipeRefreshLayout.setVisibility(View.VISIBLE); // why this ?
-        mProgressBar.setVisibility(View.GONE);
+        setProgressVisible(false);
         mSwipeRefreshLayout.setRefreshing(false);
         mEmptyView.setRefreshing(false);
     }
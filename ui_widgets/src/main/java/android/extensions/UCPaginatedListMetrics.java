@@ -0,0 +1,136 @@
+package android.extensions;
+
+/**
+ * IUCPaginatedListMetrics which aggregates everything into histograms and counters,
+ * read them e.g. when the screen is closed and reset afterwards.
+ */
+public class UCPaginatedListMetrics implements IUCPaginatedListMetrics {
+
+    private final UCHistogram mFetchMillis = new UCHistogram();
+    private final UCHistogram mParseMillis = new UCHistogram();
+    private final UCHistogram mSpinnerMillis = new UCHistogram();
+    private final UCHistogram mCreateMicros = new UCHistogram();
+    private final UCHistogram mBindMicros = new UCHistogram();
+    private final UCHistogram mPreInflateMicros = new UCHistogram();
+    private long mDroppedPrefetchCount;
+    private long mPreloadHits;
+    private long mPreloadLoading;
+    private long mPreloadMisses;
+
+    @Override
+    public void onPageFetched(int page, long fetchMillis) {
+        mFetchMillis.record(fetchMillis);
+    }
+
+    @Override
+    public void onPageParsed(int page, int rowCount, long parseMillis) {
+        mParseMillis.record(parseMillis);
+    }
+
+    @Override
+    public void onSpinnerHidden(long visibleMillis) {
+        mSpinnerMillis.record(visibleMillis);
+    }
+
+    @Override
+    public void onRowCreated(int viewType, long createNanos) {
+        mCreateMicros.record(createNanos / 1000);
+    }
+
+    @Override
+    public void onRowBound(int viewType, long bindNanos) {
+        mBindMicros.record(bindNanos / 1000);
+    }
+
+    @Override
+    public void onRowPreInflated(int viewType, long createNanos) {
+        mPreInflateMicros.record(createNanos / 1000);
+    }
+
+    @Override
+    public synchronized void onRowPreloadChecked(int hits, int loading, int misses) {
+        mPreloadHits += hits;
+        mPreloadLoading += loading;
+        mPreloadMisses += misses;
+    }
+
+    @Override
+    public synchronized void onPrefetchDropped(int pageCount) {
+        mDroppedPrefetchCount += pageCount;
+    }
+
+    public UCHistogram getFetchMillis() {
+        return mFetchMillis;
+    }
+
+    public UCHistogram getParseMillis() {
+        return mParseMillis;
+    }
+
+    /**
+     * Count is how often the spinner was shown, i.e. the user waited for a page.
+     */
+    public UCHistogram getSpinnerMillis() {
+        return mSpinnerMillis;
+    }
+
+    public UCHistogram getCreateMicros() {
+        return mCreateMicros;
+    }
+
+    /**
+     * Count is the number of rows bound.
+     */
+    public UCHistogram getBindMicros() {
+        return mBindMicros;
+    }
+
+    public UCHistogram getPreInflateMicros() {
+        return mPreInflateMicros;
+    }
+
+    /**
+     * Rows created while scrolling per row bound, 0 means every bind reused a recycled or
+     * pre-inflated row. Tune UCSharedViewPool capacities with it.
+     */
+    public double getCreateRatio() {
+        long binds = mBindMicros.getCount();
+        return binds == 0 ? 0 : (double) mCreateMicros.getCount() / binds;
+    }
+
+    public synchronized long getDroppedPrefetchCount() {
+        return mDroppedPrefetchCount;
+    }
+
+    /**
+     * Resources of bound rows which were preloaded in time, 1 means no tile was shown blank.
+     * Raise the preload rows if loading ones are common, the concurrency if misses are.
+     */
+    public synchronized double getPreloadHitRate() {
+        long total = mPreloadHits + mPreloadLoading + mPreloadMisses;
+        return total == 0 ? 0 : (double) mPreloadHits / total;
+    }
+
+    public synchronized long getPreloadLoadingCount() {
+        return mPreloadLoading;
+    }
+
+    public synchronized long getPreloadMissCount() {
+        return mPreloadMisses;
+    }
+
+    public void reset() {
+        mFetchMillis.reset();
+        mParseMillis.reset();
+        mSpinnerMillis.reset();
+        mCreateMicros.reset();
+        mBindMicros.reset();
+        mPreInflateMicros.reset();
+        synchronized (this) {
+            mDroppedPrefetchCount = 0;
+            mPreloadHits = 0;
+            mPreloadLoading = 0;
+            mPreloadMisses = 0;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package android.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Preloads resources of the rows just beyond the viewport in the scroll direction through IUCPreloader.
+ * 1. At most maxConcurrent resources load at once, the nearest rows first
+ * 2. Queued resources are replaced on every scroll, loading ones are cancelled when the direction changes
+ * 3. Every row bound is checked against the loaded resources and reported to IUCPaginatedListMetrics
+ * Used on the main thread only.
+ */
+class UCPreloadScheduler {
+
+    // loaded resources remembered to check binds against, the image cache may hold more or fewer
+    private static final int LOADED_CAPACITY = 256;
+
+    private final IUCPreloader mPreloader;
+    private final IUCPreloadAdapter mPreloadAdapter;
+    private final int mMaxConcurrent;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LinkedHashSet<Object> mQueued = new LinkedHashSet<>();
+    private final HashSet<Object> mLoading = new HashSet<>();
+    private final LinkedHashMap<Object, Boolean> mLoaded = new LinkedHashMap<Object, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+            return size() > LOADED_CAPACITY;
+        }
+    };
+    private final ArrayList<Object> mResources = new ArrayList<>();
+    private IUCPaginatedListMetrics mMetrics;
+    private int mDirection = 1;
+
+    UCPreloadScheduler(IUCPreloader preloader, IUCPreloadAdapter preloadAdapter, int maxConcurrent) {
+        mPreloader = preloader;
+        mPreloadAdapter = preloadAdapter;
+        mMaxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    void setMetrics(IUCPaginatedListMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Queues the resources of preloadCount rows after lastVisible, or before firstVisible when
+     * scrolling up. dy of 0, e.g. after a layout, keeps the last direction.
+     */
+    void onScrolled(List<Object> rows, int firstVisible, int lastVisible, int dy, int preloadCount) {
+        int direction = dy > 0 ? 1 : dy < 0 ? -1 : mDirection;
+        if (direction != mDirection) {
+            // rows ahead are behind now
+            mDirection = direction;
+            cancelLoading();
+        }
+
+        mQueued.clear();
+        int position = direction > 0 ? lastVisible + 1 : firstVisible - 1;
+        for (int i = 0; i < preloadCount && position >= 0 && position < rows.size(); i++) {
+            Object row = rows.get(position);
+            position += direction;
+            if (UCPaginatedList.isPlaceholder(row) || UCPaginatedList.isGroupHeader(row)) {
+                continue;
+            }
+            mResources.clear();
+            mPreloadAdapter.getPreloadResources(row, mResources);
+            for (int j = 0; j < mResources.size(); j++) {
+                Object resource = mResources.get(j);
+                if (!mLoading.contains(resource) && !mLoaded.containsKey(resource)) {
+                    mQueued.add(resource);
+                }
+            }
+        }
+        mResources.clear();
+        startQueued();
+    }
+
+    /**
+     * Reports whether the resources of row were loaded by the time it is bound.
+     */
+    void onRowBound(Object row) {
+        if (mMetrics == null) {
+            return;
+        }
+        mResources.clear();
+        mPreloadAdapter.getPreloadResources(row, mResources);
+        if (mResources.isEmpty()) {
+            return;
+        }
+        int hits = 0;
+        int loading = 0;
+        for (int i = 0; i < mResources.size(); i++) {
+            Object resource = mResources.get(i);
+            if (mLoaded.get(resource) != null) {
+                hits++;
+            } else if (mLoading.contains(resource)) {
+                loading++;
+            }
+        }
+        mMetrics.onRowPreloadChecked(hits, loading, mResources.size() - hits - loading);
+        mResources.clear();
+    }
+
+    private void cancelLoading() {
+        for (Object resource : mLoading) {
+            mPreloader.cancel(resource);
+        }
+        mLoading.clear();
+    }
+
+    private void startQueued() {
+        while (mLoading.size() < mMaxConcurrent && !mQueued.isEmpty()) {
+            final Object resource = mQueued.iterator().next();
+            mQueued.remove(resource);
+            mLoading.add(resource);
+            mPreloader.preload(resource, new Runnable() {
+                @Override
+                public void run() {
+                    // posted, so a preloader completing from its memory cache does not re-enter startQueued
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoaded(resource);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    private void onLoaded(Object resource) {
+        if (!mLoading.remove(resource)) {
+            // cancelled meanwhile
+            return;
+        }
+        mLoaded.put(resource, Boolean.TRUE);
+        startQueued();
+    }
+}
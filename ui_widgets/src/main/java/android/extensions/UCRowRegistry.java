@@ -0,0 +1,49 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * Typed adapter delegate, maps row classes to view types and binders once instead of
+ * instanceof chains in getItemViewType.
+ * Rows of a subclass (or implementing an interface) of a registered class use its binder.
+ * View types of UCPaginatedList rows are cached per position when this delegate is used.
+ *
+ * @param <T> common type of all rows
+ */
+public class UCRowRegistry<T> implements IUCPaginatedAdapter {
+    private final UCRowTypes mViewTypes = new UCRowTypes();
+    private final ArrayList<IUCRowBinder<?, ?>> mBinders = new ArrayList<>();
+
+    public <R extends T, VH extends RecyclerView.ViewHolder> UCRowRegistry<T> register(
+            Class<R> rowClass, IUCRowBinder<R, VH> binder) {
+        mViewTypes.register(rowClass, mBinders.size());
+        mBinders.add(binder);
+        return this;
+    }
+
+    public int getViewType(Object row) {
+        return mViewTypes.getViewType(row);
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(int viewType, ViewGroup parent, ArrayList<Object> data) {
+        return mBinders.get(viewType).onCreateViewHolder(parent);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, ArrayList<Object> data) {
+        // binder was registered for the class of this row, see getViewType
+        IUCRowBinder<Object, RecyclerView.ViewHolder> binder =
+                (IUCRowBinder<Object, RecyclerView.ViewHolder>) mBinders.get(holder.getItemViewType());
+        binder.onBindViewHolder(holder, data.get(position), position);
+    }
+
+    @Override
+    public int getItemViewType(ArrayList<Object> data, int position) {
+        return getViewType(data.get(position));
+    }
+}
@@ -0,0 +1,85 @@
+package android.extensions;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * RecycledViewPool shared by several UCPaginatedList, e.g. the tabs of a ViewPager,
+ * set through UCPaginatedList.addSharedViewPool.
+ * 1. Capacity is set per view type, the view types must mean the same row in all lists
+ * 2. Holders added with addPreInflation are created while the main thread is idle,
+ *    one per idle pass, before the first page is bound
+ * Must be used on the main thread.
+ */
+public class UCSharedViewPool {
+
+    // RecycledViewPool default
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private final RecyclerView.RecycledViewPool mPool = new RecyclerView.RecycledViewPool();
+    private final SparseIntArray mMaxRecycledViews = new SparseIntArray();
+    private final SparseIntArray mPreInflateCounts = new SparseIntArray();
+    private final SparseIntArray mPreInflated = new SparseIntArray();
+
+    public UCSharedViewPool addMaxRecycledViews(int viewType, int maxRecycledViews) {
+        mMaxRecycledViews.put(viewType, maxRecycledViews);
+        mPool.setMaxRecycledViews(viewType, Math.max(maxRecycledViews, mPreInflateCounts.get(viewType)));
+        return this;
+    }
+
+    /**
+     * Creates count holders of viewType in idle time once the first list using the pool is initialized.
+     */
+    public UCSharedViewPool addPreInflation(int viewType, int count) {
+        mPreInflateCounts.put(viewType, count);
+        mPool.setMaxRecycledViews(viewType,
+                Math.max(count, mMaxRecycledViews.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS)));
+        return this;
+    }
+
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mPool;
+    }
+
+    /**
+     * Queues creation of the missing pre-inflated holders through adapter.
+     */
+    void preInflate(final RecyclerView parent, final UCPaginatedAdapter adapter,
+                    final IUCPaginatedListMetrics metrics) {
+        if (!hasPendingPreInflation()) {
+            return;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                for (int i = 0; i < mPreInflateCounts.size(); i++) {
+                    int viewType = mPreInflateCounts.keyAt(i);
+                    if (mPreInflated.get(viewType) >= mPreInflateCounts.valueAt(i)) {
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    RecyclerView.ViewHolder holder = adapter.createViewHolder(parent, viewType);
+                    if (metrics != null) {
+                        metrics.onRowPreInflated(viewType, System.nanoTime() - start);
+                    }
+                    mPool.putRecycledView(holder);
+                    mPreInflated.put(viewType, mPreInflated.get(viewType) + 1);
+                    break;
+                }
+                // keep the handler until every holder is created
+                return hasPendingPreInflation();
+            }
+        });
+    }
+
+    private boolean hasPendingPreInflation() {
+        for (int i = 0; i < mPreInflateCounts.size(); i++) {
+            if (mPreInflated.get(mPreInflateCounts.keyAt(i)) < mPreInflateCounts.valueAt(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package android.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads and writes the UCListSnapshot of a UCPaginatedList on a background thread shared by all lists.
+ * Saves requested while a write is running are coalesced, only the latest one is written.
+ */
+class UCSnapshotPersister {
+
+    private static final String TAG = "UCSnapshotPersister";
+
+    private static Executor sExecutor;
+
+    interface OnSnapshotLoadedListener {
+        void onSnapshotLoaded(UCListSnapshot snapshot);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicReference<UCListSnapshot> mPendingSave = new AtomicReference<>();
+    private final Executor mExecutor = getExecutor();
+    private final File mFile;
+    private final IUCRowCodec mCodec;
+    private final int mMaxPages;
+
+    UCSnapshotPersister(File file, IUCRowCodec codec, int maxPages) {
+        mFile = file;
+        mCodec = codec;
+        mMaxPages = maxPages;
+    }
+
+    int getMaxPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * Listener is called on the main thread, with null if there is no usable snapshot.
+     */
+    void load(final OnSnapshotLoadedListener listener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                UCListSnapshot snapshot = null;
+                try {
+                    snapshot = UCListSnapshot.read(mFile, mCodec);
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Could not read snapshot " + mFile, e);
+                    mFile.delete();
+                }
+                final UCListSnapshot loaded = snapshot;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onSnapshotLoaded(loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    void save(UCListSnapshot snapshot) {
+        if (mPendingSave.getAndSet(snapshot) != null) {
+            // a write is already queued, it picks up this snapshot
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                UCListSnapshot latest = mPendingSave.getAndSet(null);
+                if (latest == null) {
+                    return;
+                }
+                try {
+                    latest.write(mFile, mCodec);
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Could not write snapshot " + mFile, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Single thread in order of the requests, it stops while no list reads or writes a snapshot.
+     */
+    private static synchronized Executor getExecutor() {
+        if (sExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "UCPaginatedList-snapshot");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            sExecutor = executor;
+        }
+        return sExecutor;
+    }
+}
@@ -0,0 +1,66 @@
+package android.extensions;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Draws the header of the group at the top of UCPaginatedList over its rows, pushed up by the next header.
+ * The header is a single view holder of its own, bound only when the top group changes,
+ * so the rows underneath are never rebound.
+ */
+class UCStickyHeaderDecoration extends RecyclerView.ItemDecoration {
+    private final UCListGrouping mGrouping;
+    private RecyclerView.ViewHolder mHeader;
+    private UCGroupHeader mBoundHeader;
+    private int mMeasuredWidth = -1;
+
+    UCStickyHeaderDecoration(UCListGrouping grouping) {
+        mGrouping = grouping;
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (parent.getChildCount() == 0 || !(parent.getAdapter() instanceof UCPaginatedAdapter)) {
+            return;
+        }
+        int position = parent.getChildAdapterPosition(parent.getChildAt(0));
+        int group = position == RecyclerView.NO_POSITION ? -1 : mGrouping.indexOfGroupAt(position);
+        if (group == -1) {
+            return;
+        }
+
+        View header = getHeaderView(parent, (UCPaginatedAdapter) parent.getAdapter(), mGrouping.getHeader(group));
+        int offset = 0;
+        if (group + 1 < mGrouping.getGroupCount()) {
+            RecyclerView.ViewHolder next = parent.findViewHolderForAdapterPosition(
+                    mGrouping.getHeaderPosition(group + 1));
+            if (next != null && next.itemView.getTop() < header.getHeight()) {
+                offset = next.itemView.getTop() - header.getHeight();
+            }
+        }
+        int saveCount = c.save();
+        c.translate(0, offset);
+        header.draw(c);
+        c.restoreToCount(saveCount);
+    }
+
+    private View getHeaderView(RecyclerView parent, UCPaginatedAdapter adapter, UCGroupHeader groupHeader) {
+        if (mHeader == null) {
+            mHeader = adapter.createGroupHeaderViewHolder(parent);
+        }
+        boolean rebind = mBoundHeader == null || !mBoundHeader.equals(groupHeader);
+        if (rebind) {
+            adapter.bindGroupHeader(mHeader, groupHeader);
+            mBoundHeader = groupHeader;
+        }
+        View view = mHeader.itemView;
+        if (rebind || mMeasuredWidth != parent.getWidth()) {
+            mMeasuredWidth = parent.getWidth();
+            view.measure(View.MeasureSpec.makeMeasureSpec(mMeasuredWidth, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+            view.layout(0, 0, mMeasuredWidth, view.getMeasuredHeight());
+        }
+        return view;
+    }
+}
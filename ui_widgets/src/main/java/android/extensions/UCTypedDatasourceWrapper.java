@@ -0,0 +1,34 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapts IUCTypedPaginatedDatasource to the untyped delegate used by UCPaginatedList.
+ */
+class UCTypedDatasourceWrapper<T> implements IUCAsyncPaginatedDatasource {
+    private final IUCTypedPaginatedDatasource<T> mDelegate;
+
+    UCTypedDatasourceWrapper(IUCTypedPaginatedDatasource<T> delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public void fetchNextPage(int page, IUCPaginatedCallback callback) {
+        mDelegate.fetchNextPage(page, callback);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ArrayList<Object> parseDataArray(ArrayList<Object> data) {
+        List<? extends T> parsed = mDelegate.parseDataArray(data);
+        if (parsed == null) {
+            return null;
+        }
+        if (parsed instanceof ArrayList) {
+            // rows are only read back as Object
+            return (ArrayList<Object>) parsed;
+        }
+        return new ArrayList<Object>(parsed);
+    }
+}
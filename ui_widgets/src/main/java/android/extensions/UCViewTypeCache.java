@@ -0,0 +1,49 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * View type of each position of UCPaginatedAdapter, kept in a UCViewTypeTable.
+ * Registered as observer of the adapter, so every notification clears the positions it affects.
+ * Only valid if the view type depends on the row alone.
+ */
+class UCViewTypeCache extends RecyclerView.AdapterDataObserver {
+    private final UCViewTypeTable mViewTypes = new UCViewTypeTable();
+
+    boolean contains(int position) {
+        return mViewTypes.contains(position);
+    }
+
+    int get(int position) {
+        return mViewTypes.get(position);
+    }
+
+    void put(int position, int viewType) {
+        mViewTypes.put(position, viewType);
+    }
+
+    @Override
+    public void onChanged() {
+        mViewTypes.clear();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        mViewTypes.clear(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        mViewTypes.clearFrom(positionStart);
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        mViewTypes.clearFrom(positionStart);
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        mViewTypes.clearFrom(Math.min(fromPosition, toPosition));
+    }
+}
@@ -0,0 +1,297 @@
+package android.extensions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requests are answered by hand on the main looper, time only moves with ShadowLooper.idleMainLooper.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class UCPageLoaderTest {
+
+    private final RecordingConsumer mConsumer = new RecordingConsumer();
+    private UCPageLoader mLoader;
+
+    @Before
+    public void setUp() {
+        mLoader = new UCPageLoader(mConsumer);
+        mLoader.setTimeout(0);
+        mLoader.setRetryPolicy(0, 100);
+    }
+
+    @Test
+    public void appliesNextPagesInRequestOrder() {
+        UCPageLoader.PageRequest first = mLoader.request(1);
+        UCPageLoader.PageRequest second = mLoader.request(2);
+        UCPageLoader.PageRequest third = mLoader.request(3);
+        UCPageLoader.PageRequest restore = mLoader.request(7, UCPageLoader.TYPE_RESTORE);
+
+        third.onSuccess(page(3), 4, false);
+        second.onSuccess(page(2), 3, false);
+        restore.onSuccess(page(7), 8, false);
+        assertEquals(Collections.singletonList(7), mConsumer.applied);
+
+        first.onSuccess(page(1), 2, false);
+        assertEquals(Arrays.asList(7, 1, 2, 3), mConsumer.applied);
+        assertEquals(page(2), mConsumer.rows.get(2));
+        assertFalse(mLoader.isLoading());
+    }
+
+    @Test
+    public void waitsForThePageBeingApplied() {
+        mConsumer.holdApplied = true;
+        UCPageLoader.PageRequest first = mLoader.request(1);
+        UCPageLoader.PageRequest second = mLoader.request(2);
+
+        first.onSuccess(page(1), 2, false);
+        second.onSuccess(page(2), 3, false);
+        assertEquals(Collections.singletonList(1), mConsumer.applied);
+        assertTrue(mLoader.isApplying());
+
+        mConsumer.finishApplying();
+        assertEquals(Arrays.asList(1, 2), mConsumer.applied);
+    }
+
+    @Test
+    public void dropsResultsOfAnOlderGeneration() {
+        mConsumer.holdApplied = true;
+        UCPageLoader.PageRequest first = mLoader.request(1);
+        UCPageLoader.PageRequest second = mLoader.request(2);
+        first.onSuccess(page(1), 2, false);
+
+        mLoader.cancelAll();
+        UCPageLoader.PageRequest refresh = mLoader.request(0);
+        second.onSuccess(page(2), 3, false);
+        refresh.onSuccess(page(0), 1, false);
+        assertEquals(Arrays.asList(1, 0), mConsumer.applied);
+
+        // the page applied before the refresh finishes, the refreshed one is still being applied
+        mConsumer.pendingApplied.remove(0).run();
+        assertTrue(mLoader.isApplying());
+        mConsumer.finishApplying();
+        assertFalse(mLoader.isLoading());
+        assertEquals(Arrays.asList(1, 0), mConsumer.applied);
+    }
+
+    @Test
+    public void fetchesFailedRequestsAgainWithBackoff() {
+        mLoader.setRetryPolicy(2, 100);
+        UCPageLoader.PageRequest first = mLoader.request(1);
+        UCPageLoader.PageRequest second = mLoader.request(2);
+
+        first.onError();
+        second.onSuccess(page(2), 3, false);
+        ShadowLooper.idleMainLooper(99);
+        assertTrue(mConsumer.fetched.isEmpty());
+        ShadowLooper.idleMainLooper(1);
+        assertEquals(1, mConsumer.fetched.size());
+        assertEquals(1, mConsumer.fetched.get(0).attempt);
+
+        mConsumer.fetched.get(0).onError();
+        ShadowLooper.idleMainLooper(199);
+        assertEquals(1, mConsumer.fetched.size());
+        ShadowLooper.idleMainLooper(1);
+        assertEquals(2, mConsumer.fetched.size());
+
+        // the retry keeps the place of the failed request
+        mConsumer.fetched.get(1).onSuccess(page(1), 2, false);
+        assertEquals(Arrays.asList(1, 2), mConsumer.applied);
+        assertEquals(0, mConsumer.failed);
+    }
+
+    @Test
+    public void failsThePageAndDropsLaterOnesOnceRetriesRunOut() {
+        mLoader.setRetryPolicy(1, 100);
+        UCPageLoader.PageRequest first = mLoader.request(1);
+        mLoader.request(2);
+        UCPageLoader.PageRequest restore = mLoader.request(7, UCPageLoader.TYPE_RESTORE);
+
+        first.onError();
+        ShadowLooper.idleMainLooper(100);
+        mConsumer.fetched.get(0).onError();
+        ShadowLooper.idleMainLooper(1000);
+
+        assertEquals(1, mConsumer.fetched.size());
+        assertEquals(1, mConsumer.failed);
+        assertEquals(Collections.singletonList(1), mConsumer.dropped);
+        assertEquals(0, mLoader.getPendingCount());
+        assertTrue(mLoader.isRequested(7, UCPageLoader.TYPE_RESTORE));
+        restore.onSuccess(page(7), 8, false);
+        assertEquals(Collections.singletonList(7), mConsumer.applied);
+    }
+
+    @Test
+    public void failsRequestsWhichTimeOut() {
+        mLoader.setTimeout(1000);
+        UCPageLoader.PageRequest request = mLoader.request(1);
+
+        ShadowLooper.idleMainLooper(999);
+        assertEquals(0, mConsumer.failed);
+        ShadowLooper.idleMainLooper(1);
+        assertEquals(1, mConsumer.failed);
+
+        request.onSuccess(page(1), 2, false);
+        assertTrue(mConsumer.applied.isEmpty());
+    }
+
+    @Test
+    public void fetchesTimedOutRequestsAgain() {
+        mLoader.setTimeout(1000);
+        mLoader.setRetryPolicy(1, 100);
+        UCPageLoader.PageRequest request = mLoader.request(1);
+        request.onSuccess(page(1), 2, false);
+        UCPageLoader.PageRequest late = mLoader.request(2);
+
+        ShadowLooper.idleMainLooper(1100);
+        assertEquals(1, mConsumer.fetched.size());
+        late.onSuccess(page(2), 3, false);
+        mConsumer.fetched.get(0).onSuccess(page(2), 3, false);
+
+        assertEquals(Arrays.asList(1, 2), mConsumer.applied);
+        assertEquals(0, mConsumer.failed);
+        // the request answered in time does not time out after it was applied
+        ShadowLooper.idleMainLooper(5000);
+        assertEquals(0, mConsumer.failed);
+    }
+
+    @Test
+    public void matchesLegacyDeliveriesToTheirPages() {
+        legacyRequest(1);
+        legacyRequest(2);
+
+        mLoader.deliverLegacySuccess(page(2), 2, 3, null);
+        assertTrue(mConsumer.applied.isEmpty());
+        mLoader.deliverLegacySuccess(page(1), 1, 2, null);
+
+        assertEquals(Arrays.asList(1, 2), mConsumer.applied);
+        assertEquals(page(1), mConsumer.rows.get(0));
+    }
+
+    @Test
+    public void failsTheOldestLegacyRequestOnAnError() {
+        legacyRequest(1);
+        legacyRequest(2);
+
+        mLoader.deliverLegacyError();
+        mLoader.deliverLegacySuccess(page(2), 2, 3, null);
+
+        assertEquals(1, mConsumer.failed);
+        assertTrue(mConsumer.applied.isEmpty());
+        assertEquals(Collections.singletonList(1), mConsumer.dropped);
+    }
+
+    @Test
+    public void dropsLateLegacyResultsOfCancelledNextPages() {
+        legacyRequest(1);
+        legacyRequest(2);
+        UCPageLoader.PageRequest restore = mLoader.request(7, UCPageLoader.TYPE_RESTORE);
+
+        mLoader.cancelPending();
+        assertEquals(Collections.singletonList(2), mConsumer.dropped);
+        assertTrue(mLoader.isRequested(7, UCPageLoader.TYPE_RESTORE));
+
+        legacyRequest(3);
+        mLoader.deliverLegacySuccess(page(2), 2, 3, null);
+        mLoader.deliverLegacySuccess(page(1), 1, 2, null);
+        mLoader.deliverLegacySuccess(page(3), 3, 4, null);
+        restore.onSuccess(page(7), 8, false);
+
+        assertEquals(Arrays.asList(3, 7), mConsumer.applied);
+    }
+
+    @Test
+    public void remembersOnlyCancelledLegacyPages() {
+        // answered through its callback, a later legacy result of the page is not a stale one
+        mLoader.request(1);
+        mLoader.cancelPending();
+
+        mLoader.deliverLegacySuccess(page(1), 1, 2, null);
+
+        assertEquals(Collections.singletonList(1), mConsumer.applied);
+    }
+
+    private UCPageLoader.PageRequest legacyRequest(int page) {
+        UCPageLoader.PageRequest request = mLoader.request(page);
+        request.legacy = true;
+        return request;
+    }
+
+    private static ArrayList<Object> page(int page) {
+        ArrayList<Object> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(page + "-" + i);
+        }
+        return rows;
+    }
+
+    private static final class RecordingConsumer implements UCPageLoader.PageConsumer {
+        final List<Integer> applied = new ArrayList<>();
+        final List<List<Object>> rows = new ArrayList<>();
+        final List<UCPageLoader.PageRequest> fetched = new ArrayList<>();
+        final List<Integer> dropped = new ArrayList<>();
+        final List<Runnable> pendingApplied = new ArrayList<>();
+        int failed;
+        boolean holdApplied;
+
+        @Override
+        public ArrayList<Object> parsePage(ArrayList<Object> data, int currentPage) {
+            return new ArrayList<>(data);
+        }
+
+        @Override
+        public void onPageReady(UCPageLoader.PageRequest request, Runnable onApplied) {
+            applied.add(request.page);
+            rows.add(request.parsedData);
+            if (holdApplied) {
+                pendingApplied.add(onApplied);
+            } else {
+                onApplied.run();
+            }
+        }
+
+        void finishApplying() {
+            holdApplied = false;
+            while (!pendingApplied.isEmpty()) {
+                pendingApplied.remove(0).run();
+            }
+        }
+
+        @Override
+        public boolean onRowsReady(UCPageLoader.PageRequest request, ArrayList<Object> rows) {
+            return false;
+        }
+
+        @Override
+        public void onRowsRevoked(UCPageLoader.PageRequest request) {
+        }
+
+        @Override
+        public void onPageFailed() {
+            failed++;
+        }
+
+        @Override
+        public void fetchPage(UCPageLoader.PageRequest request) {
+            fetched.add(request);
+        }
+
+        @Override
+        public void onPagesDropped(int pageCount) {
+            dropped.add(pageCount);
+        }
+    }
+}
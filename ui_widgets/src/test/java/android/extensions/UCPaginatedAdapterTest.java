@@ -0,0 +1,173 @@
+package android.extensions;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class UCPaginatedAdapterTest {
+
+    private static final IUCReferenceIdExtractor REFERENCE_IDS = new IUCReferenceIdExtractor() {
+        @Override
+        public String getReferenceId(Object row) {
+            return (String) row;
+        }
+    };
+
+    @Test
+    public void createsRowRegistryAdapterWithStableIds() {
+        UCRowRegistry<String> registry = new UCRowRegistry<String>().register(String.class,
+                new IUCRowBinder<String, RecyclerView.ViewHolder>() {
+                    @Override
+                    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent) {
+                        return null;
+                    }
+
+                    @Override
+                    public void onBindViewHolder(RecyclerView.ViewHolder holder, String row, int position) {
+                    }
+                });
+
+        UCPaginatedAdapter adapter = UCPaginatedAdapter.create(rows("a", "b"), registry, false, REFERENCE_IDS);
+
+        assertTrue(adapter.hasStableIds());
+        // the view type cache, always on for UCRowRegistry
+        assertTrue(adapter.hasObservers());
+        assertNotEquals(adapter.getItemId(0), adapter.getItemId(1));
+        assertEquals(adapter.getItemId(0),
+                UCPaginatedAdapter.create(rows("a"), registry, true, REFERENCE_IDS).getItemId(0));
+    }
+
+    @Test
+    public void givesHeadersOfTheSameKeyDistinctIds() {
+        UCGroupHeader header = new UCGroupHeader("A");
+        ArrayList<Object> rows = rows(header, "a1", "a2", new UCGroupHeader("B"), "b1", header, "a3");
+        UCPaginatedAdapter adapter = UCPaginatedAdapter.create(rows, null, false, REFERENCE_IDS);
+
+        assertNotEquals(adapter.getItemId(0), adapter.getItemId(5));
+        assertNotEquals(adapter.getItemId(0), adapter.getItemId(1));
+        assertEquals(adapter.getItemId(0),
+                UCPaginatedAdapter.create(rows(header, "a1"), null, false, REFERENCE_IDS).getItemId(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsRowsWithoutAReferenceId() {
+        UCPaginatedAdapter adapter = UCPaginatedAdapter.create(rows("a", UCPlaceholder.INSTANCE), null, false,
+                REFERENCE_IDS);
+
+        adapter.getItemId(0);
+        adapter.getItemId(1);
+    }
+
+    @Test
+    public void checksPreloadedResourcesOnBothBindPaths() {
+        PayloadDelegate delegate = new PayloadDelegate();
+        UCPaginatedAdapter adapter = UCPaginatedAdapter.create(rows("a", "b"), delegate, false, null);
+        UCPreloadScheduler scheduler = new UCPreloadScheduler(new IUCPreloader() {
+            @Override
+            public void preload(Object resource, Runnable onComplete) {
+            }
+
+            @Override
+            public void cancel(Object resource) {
+            }
+        }, new IUCPreloadAdapter() {
+            @Override
+            public void getPreloadResources(Object row, List<Object> resources) {
+                resources.add(row + ".png");
+            }
+        }, 1);
+        RecordingMetrics metrics = new RecordingMetrics();
+        scheduler.setMetrics(metrics);
+        adapter.setPreloadScheduler(scheduler);
+        RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(new View(RuntimeEnvironment.application)) {
+        };
+
+        adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+        adapter.onBindViewHolder(holder, 1, Collections.<Object>singletonList("payload"));
+
+        assertEquals(1, delegate.payloadBinds);
+        assertEquals(2, metrics.preloadChecks);
+    }
+
+    private static final class PayloadDelegate implements IUCPaginatedAdapter, IUCPayloadAdapter {
+        int payloadBinds;
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(int viewType, ViewGroup parent, ArrayList<Object> data) {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, ArrayList<Object> data) {
+        }
+
+        @Override
+        public int getItemViewType(ArrayList<Object> data, int position) {
+            return 0;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, ArrayList<Object> data,
+                                     List<Object> payloads) {
+            payloadBinds++;
+        }
+    }
+
+    private static final class RecordingMetrics implements IUCPaginatedListMetrics {
+        int preloadChecks;
+
+        @Override
+        public void onPageFetched(int page, long fetchMillis) {
+        }
+
+        @Override
+        public void onPageParsed(int page, int rowCount, long parseMillis) {
+        }
+
+        @Override
+        public void onSpinnerHidden(long visibleMillis) {
+        }
+
+        @Override
+        public void onRowCreated(int viewType, long createNanos) {
+        }
+
+        @Override
+        public void onRowBound(int viewType, long bindNanos) {
+        }
+
+        @Override
+        public void onRowPreInflated(int viewType, long createNanos) {
+        }
+
+        @Override
+        public void onRowPreloadChecked(int hits, int loading, int misses) {
+            preloadChecks++;
+        }
+
+        @Override
+        public void onPrefetchDropped(int pageCount) {
+        }
+    }
+
+    private static ArrayList<Object> rows(Object... rows) {
+        return new ArrayList<>(Arrays.asList(rows));
+    }
+}
@@ -0,0 +1,116 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalogue rows as boxed CatalogueRow objects against UCColumnarPage, on and off heap:
+ * 1. parsePage - a page of pageSize rows built from parsed values, as parseDataArray does,
+ *    run with -prof gc for the bytes allocated per page
+ * 2. bindScreen - all columns of a screen of rows read, as onBindViewHolder does
+ * Retained bytes per row and GC pauses while scrolling are measured by UCRowFootprint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UCColumnarRowsBenchmark {
+
+    private static final int ROWS_PER_SCREEN = 10;
+
+    @Param({"objects", "columnar", "offheap"})
+    String storage;
+
+    @Param({"20", "100"})
+    int pageSize;
+
+    @Param({"10000"})
+    int rowCount;
+
+    private UCColumnarSchema mSchema;
+    private UCSyntheticRows.CatalogueRow[] mValues;
+    private ArrayList<Object> mRows;
+    private int mFrom;
+
+    @Setup
+    public void setUp() {
+        mSchema = "objects".equals(storage) ? null : UCSyntheticRows.catalogueSchema("offheap".equals(storage));
+        ArrayList<Object> values = UCSyntheticRows.catalogueRows(0, rowCount, null);
+        mValues = values.toArray(new UCSyntheticRows.CatalogueRow[values.size()]);
+        mRows = new ArrayList<>(rowCount);
+        for (int from = 0; from < rowCount; from += pageSize) {
+            mRows.addAll(UCSyntheticRows.catalogueRows(from, Math.min(pageSize, rowCount - from), mSchema));
+        }
+    }
+
+    @Benchmark
+    public ArrayList<Object> parsePage() {
+        int from = nextFrom(pageSize);
+        if (mSchema == null) {
+            ArrayList<Object> rows = new ArrayList<>(pageSize);
+            for (int i = from; i < from + pageSize; i++) {
+                UCSyntheticRows.CatalogueRow value = mValues[i];
+                // boxed again as a parser would
+                rows.add(new UCSyntheticRows.CatalogueRow(value.id, value.title, value.price.doubleValue(),
+                        value.rating.doubleValue(), value.stock.intValue(), value.updatedAt.longValue()));
+            }
+            return rows;
+        }
+        UCColumnarPage page = new UCColumnarPage(mSchema, pageSize);
+        for (int i = from; i < from + pageSize; i++) {
+            UCSyntheticRows.CatalogueRow value = mValues[i];
+            page.addRow()
+                    .setString(UCSyntheticRows.CATALOGUE_ID, value.id)
+                    .setString(UCSyntheticRows.CATALOGUE_TITLE, value.title)
+                    .setDouble(UCSyntheticRows.CATALOGUE_PRICE, value.price)
+                    .setDouble(UCSyntheticRows.CATALOGUE_RATING, value.rating)
+                    .setInt(UCSyntheticRows.CATALOGUE_STOCK, value.stock)
+                    .setLong(UCSyntheticRows.CATALOGUE_UPDATED_AT, value.updatedAt);
+        }
+        return page.getRows();
+    }
+
+    @Benchmark
+    public long bindScreen() {
+        int from = nextFrom(ROWS_PER_SCREEN);
+        long hash = 0;
+        for (int i = from; i < from + ROWS_PER_SCREEN; i++) {
+            Object row = mRows.get(i);
+            if (mSchema == null) {
+                UCSyntheticRows.CatalogueRow catalogueRow = (UCSyntheticRows.CatalogueRow) row;
+                hash += catalogueRow.id.length() + catalogueRow.title.length()
+                        + Double.doubleToLongBits(catalogueRow.price) + Double.doubleToLongBits(catalogueRow.rating)
+                        + catalogueRow.stock + catalogueRow.updatedAt;
+            } else {
+                UCColumnarRow columnarRow = (UCColumnarRow) row;
+                hash += columnarRow.getString(UCSyntheticRows.CATALOGUE_ID).length()
+                        + columnarRow.getString(UCSyntheticRows.CATALOGUE_TITLE).length()
+                        + Double.doubleToLongBits(columnarRow.getDouble(UCSyntheticRows.CATALOGUE_PRICE))
+                        + Double.doubleToLongBits(columnarRow.getDouble(UCSyntheticRows.CATALOGUE_RATING))
+                        + columnarRow.getInt(UCSyntheticRows.CATALOGUE_STOCK)
+                        + columnarRow.getLong(UCSyntheticRows.CATALOGUE_UPDATED_AT);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Start of the next count rows, walking through all rows like a scroll.
+     */
+    private int nextFrom(int count) {
+        if (mFrom + count > rowCount) {
+            mFrom = 0;
+        }
+        int from = mFrom;
+        mFrom += count;
+        return from;
+    }
+}
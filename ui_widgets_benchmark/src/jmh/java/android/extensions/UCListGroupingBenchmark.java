@@ -0,0 +1,62 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading rowCount rows page by page with group headers every 7 rows, so groups span page boundaries:
+ * 1. incremental - UCListGrouping groups each appended page on its own
+ * 2. regroup - headers of all rows computed again after every page, as parseDataArray based headers need
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UCListGroupingBenchmark {
+
+    @Param({"1000", "10000"})
+    int rowCount;
+
+    @Param({"incremental", "regroup"})
+    String mode;
+
+    private final IUCGroupKeyExtractor mKeyExtractor = new IUCGroupKeyExtractor() {
+        @Override
+        public Object getGroupKey(Object row) {
+            return Integer.parseInt(((UCSyntheticRows.Row) row).id.substring(4)) / 7;
+        }
+    };
+
+    private ArrayList<List<Object>> mPages;
+
+    @Setup
+    public void setUp() {
+        mPages = UCSyntheticRows.pages(rowCount, 20);
+    }
+
+    @Benchmark
+    public int appendPages() {
+        ArrayList<Object> rows = new ArrayList<>();
+        UCListGrouping grouping = new UCListGrouping(mKeyExtractor, rows, new UCSyntheticRows.CountingListener());
+        boolean regroup = "regroup".equals(mode);
+        for (int page = 0; page < mPages.size(); page++) {
+            int position = rows.size();
+            rows.addAll(mPages.get(page));
+            if (regroup) {
+                grouping.setSource(rows);
+            } else {
+                grouping.onInserted(position, mPages.get(page).size());
+            }
+        }
+        return grouping.getRows().size();
+    }
+}
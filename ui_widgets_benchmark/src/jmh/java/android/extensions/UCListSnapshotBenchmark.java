@@ -0,0 +1,57 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading the snapshot of addSnapshotPersistence, read is what a cold start waits for.
+ * The empty snapshot is the cost of opening and mapping the file alone, the cold start of a list
+ * without rows to restore.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UCListSnapshotBenchmark {
+
+    @Param({"0", "100", "1000"})
+    int rowCount;
+
+    private final UCSyntheticRows.Codec mCodec = new UCSyntheticRows.Codec();
+    private File mFile;
+    private UCListSnapshot mSnapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("uc_snapshot", ".bin");
+        mSnapshot = new UCListSnapshot(UCSyntheticRows.rows(rowCount), 1, false);
+        mSnapshot.write(mFile, mCodec);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public int read() throws IOException {
+        return UCListSnapshot.read(mFile, mCodec).rows.size();
+    }
+
+    @Benchmark
+    public File write() throws IOException {
+        mSnapshot.write(mFile, mCodec);
+        return mFile;
+    }
+}
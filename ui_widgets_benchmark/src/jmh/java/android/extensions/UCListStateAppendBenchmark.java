@@ -0,0 +1,53 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading rowCount rows page by page, as recievedDataSuccess does for every page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UCListStateAppendBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int rowCount;
+
+    @Param({"20"})
+    int pageSize;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    private ArrayList<List<Object>> mPages;
+    private final UCSyntheticRows.Comparison mComparison = new UCSyntheticRows.Comparison();
+
+    @Setup
+    public void setUp() {
+        mPages = UCSyntheticRows.pages(rowCount, pageSize);
+    }
+
+    @Benchmark
+    public int appendPages() {
+        UCListState state = new UCListState(new UCSyntheticRows.CountingListener());
+        state.setComparison(mComparison);
+        if (indexed) {
+            state.setReferenceIdExtractor(mComparison);
+        }
+        for (int page = 0; page < mPages.size(); page++) {
+            state.appendPage(page, mPages.get(page));
+        }
+        return state.size();
+    }
+}
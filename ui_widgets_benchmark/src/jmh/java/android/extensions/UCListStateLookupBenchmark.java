@@ -0,0 +1,71 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findItemByReferenceId, getItemPosition and updateItemByReferenceId on a loaded list,
+ * indexed by UCReferenceIndex or scanned through IUCDatasourceComparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UCListStateLookupBenchmark {
+
+    private static final int LOOKUPS = 1024; // power of two, cycled with a mask
+
+    @Param({"1000", "10000", "100000"})
+    int rowCount;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    private UCListState mState;
+    private String[] mIds;
+    private Object[] mRows;
+    private Object[] mUpdatedRows;
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        mState = UCSyntheticRows.state(rowCount, 20, indexed);
+        mIds = UCSyntheticRows.ids(rowCount, LOOKUPS);
+        mRows = new Object[mIds.length];
+        mUpdatedRows = new Object[mIds.length];
+        for (int i = 0; i < mIds.length; i++) {
+            mRows[i] = mState.get(mState.indexOfReferenceId(mIds[i]));
+            mUpdatedRows[i] = ((UCSyntheticRows.Row) mRows[i]).update();
+        }
+    }
+
+    @Benchmark
+    public Object findByReferenceId() {
+        int position = mState.indexOfReferenceId(mIds[next()]);
+        return mState.get(position);
+    }
+
+    @Benchmark
+    public int indexOfRow() {
+        return mState.indexOf(mRows[next()]);
+    }
+
+    @Benchmark
+    public boolean updateByReferenceId() {
+        int i = next();
+        int position = mState.indexOfReferenceId(mIds[i]);
+        // swaps between the original and the updated row
+        return mState.updateAt(position, mState.get(position) == mRows[i] ? mUpdatedRows[i] : mRows[i]);
+    }
+
+    private int next() {
+        return mNext = (mNext + 1) & (mIds.length - 1);
+    }
+}
@@ -0,0 +1,73 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page zero refresh replacing the list through UCListDiff, alternating between two fixed
+ * versions of the rows which differ as described by change:
+ * 1. unchanged - same rows
+ * 2. updated - every 10th row has new content
+ * 3. insertedHead - 20 new rows at the top
+ * 4. removedMiddle - 20 rows removed from the middle
+ * 5. replaced - no row in common, above UCListDiff.MAX_EDIT_DISTANCE so it is one removal and insertion
+ *    after up to UCListDiff.MAX_MOVE_CHECKS checks for moved rows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UCListStateRefreshBenchmark {
+
+    @Param({"1000", "10000"})
+    int rowCount;
+
+    @Param({"unchanged", "updated", "insertedHead", "removedMiddle", "replaced"})
+    String change;
+
+    private UCListState mState;
+    private List<Object> mRows;
+    private List<Object> mChangedRows;
+    private boolean mChanged;
+
+    @Setup
+    public void setUp() {
+        mState = UCSyntheticRows.state(rowCount, 20, true);
+        mRows = new ArrayList<>(mState.getRows());
+        mChangedRows = new ArrayList<>(mRows);
+        switch (change) {
+            case "updated":
+                for (int i = 0; i < mChangedRows.size(); i += 10) {
+                    mChangedRows.set(i, ((UCSyntheticRows.Row) mChangedRows.get(i)).update());
+                }
+                break;
+            case "insertedHead":
+                mChangedRows.addAll(0, UCSyntheticRows.rows(rowCount, 20));
+                break;
+            case "removedMiddle":
+                mChangedRows.subList(rowCount / 2, rowCount / 2 + 20).clear();
+                break;
+            case "replaced":
+                mChangedRows = UCSyntheticRows.rows(rowCount, rowCount);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Benchmark
+    public int refresh() {
+        mChanged = !mChanged;
+        mState.replaceRows(mChanged ? mChangedRows : mRows);
+        return mState.size();
+    }
+}
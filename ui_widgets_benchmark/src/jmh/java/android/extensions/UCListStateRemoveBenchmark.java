@@ -0,0 +1,55 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * removeItemByReferenceId of REMOVALS random rows, the list is loaded again before every iteration.
+ * The score is the time of all REMOVALS removals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = UCListStateRemoveBenchmark.REMOVALS)
+@Measurement(iterations = 20, batchSize = UCListStateRemoveBenchmark.REMOVALS)
+public class UCListStateRemoveBenchmark {
+
+    static final int REMOVALS = 100;
+
+    @Param({"1000", "10000", "100000"})
+    int rowCount;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    private String[] mIds;
+    private UCListState mState;
+    private int mNext;
+
+    @Setup
+    public void setUpTrial() {
+        mIds = UCSyntheticRows.ids(rowCount, REMOVALS);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        mState = UCSyntheticRows.state(rowCount, 20, indexed);
+        mNext = 0;
+    }
+
+    @Benchmark
+    public boolean removeByReferenceId() {
+        return mState.removeAt(mState.indexOfReferenceId(mIds[mNext++]));
+    }
+}
@@ -0,0 +1,168 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent stress of the single writer model, rows updated by reference id from three threads
+ * while another one reads all rows:
+ * 1. queue - updates are submitted to UCMutationQueue, one writer thread drains them into UCListState
+ *    and the reader copies a snapshot on its first read after each batch
+ * 2. locked - updates and reads take one lock around UCListState, the reader copies the rows
+ * Every read checks that it saw rowCount rows, so a torn read fails the run.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UCMutationQueueBenchmark {
+
+    // submitted but not applied updates, producers back off above it so the queue stays bounded
+    private static final int MAX_PENDING = 10000;
+
+    @Param({"1000", "10000"})
+    int rowCount;
+
+    private final Object mLock = new Object();
+    private final AtomicInteger mPending = new AtomicInteger();
+    private UCListState mState;
+    private UCMutationQueue mQueue;
+    private String[] mIds;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        mState = new UCListState(new UCListState.Listener() {
+            @Override
+            public void onInserted(int position, int count) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onReset() {
+                mQueue.onRowsChanged();
+            }
+        });
+        // the writer thread drains in a loop, nothing to schedule
+        mQueue = new UCMutationQueue(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        }, mState.getRows());
+        mState.setReferenceIdExtractor(new UCSyntheticRows.Comparison());
+        ArrayList<List<Object>> pages = UCSyntheticRows.pages(rowCount, 20);
+        for (int page = 0; page < pages.size(); page++) {
+            mState.appendPage(page, pages.get(page));
+        }
+        mQueue.drain();
+        mIds = UCSyntheticRows.ids(rowCount, rowCount);
+        mPending.set(0);
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(3)
+    public boolean submitUpdate() {
+        if (mPending.get() > MAX_PENDING) {
+            Thread.yield();
+            return false;
+        }
+        final String id = mIds[ThreadLocalRandom.current().nextInt(mIds.length)];
+        mPending.incrementAndGet();
+        mQueue.submit(new Runnable() {
+            @Override
+            public void run() {
+                update(id);
+                mPending.decrementAndGet();
+            }
+        });
+        return true;
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public int drain() {
+        mQueue.drain();
+        return mPending.get();
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public int readSnapshot() {
+        return check(mQueue.getSnapshot());
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public boolean lockedUpdate() {
+        String id = mIds[ThreadLocalRandom.current().nextInt(mIds.length)];
+        synchronized (mLock) {
+            return update(id);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public int lockedRead() {
+        ArrayList<Object> rows;
+        synchronized (mLock) {
+            rows = new ArrayList<>(mState.getRows());
+        }
+        return check(rows);
+    }
+
+    private boolean update(String id) {
+        int position = mState.indexOfReferenceId(id);
+        return mState.updateAt(position, ((UCSyntheticRows.Row) mState.get(position)).update());
+    }
+
+    /**
+     * Sums the row versions, the empty snapshot before the first drain is skipped.
+     */
+    private int check(List<Object> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        if (rows.size() != rowCount) {
+            throw new IllegalStateException("read " + rows.size() + " rows of " + rowCount);
+        }
+        int versions = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            versions += ((UCSyntheticRows.Row) rows.get(i)).version;
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,88 @@
+package android.extensions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UCListQuery keeping every other row sorted by title over the loaded rows:
+ * 1. evaluate - all rows, on the calling thread only for parallelism 1
+ * 2. appendPage - a page of 20 rows merged into the previous result
+ * 3. reevaluatePage - the same page by evaluating all rows again, as overrideDataSource would
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UCQueryEvaluatorBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int rowCount;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    private final UCListQuery mQuery = new UCListQuery(new IUCRowFilter() {
+        @Override
+        public boolean accept(Object row) {
+            return ((UCSyntheticRows.Row) row).id.hashCode() % 2 == 0;
+        }
+    }, new Comparator<Object>() {
+        @Override
+        public int compare(Object o1, Object o2) {
+            return ((UCSyntheticRows.Row) o1).title.compareTo(((UCSyntheticRows.Row) o2).title);
+        }
+    });
+
+    private ExecutorService mExecutor;
+    private UCListState mState;
+    private List<Object> mRows;
+    private List<Object> mRowsWithPage;
+    private List<Object> mPage;
+    private List<Object> mResult;
+
+    @Setup
+    public void setUp() {
+        mExecutor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism - 1) : null;
+        mState = UCSyntheticRows.state(0, 20, true);
+        mRows = UCSyntheticRows.rows(rowCount);
+        mPage = UCSyntheticRows.rows(rowCount, 20);
+        mRowsWithPage = new ArrayList<>(mRows);
+        mRowsWithPage.addAll(mPage);
+        mResult = UCQueryEvaluator.evaluate(mQuery, mRows, null, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return UCQueryEvaluator.evaluate(mQuery, mRows, mExecutor, parallelism).size();
+    }
+
+    @Benchmark
+    public int appendPage() {
+        return UCQueryEvaluator.append(mQuery, mResult, mPage, mExecutor, parallelism).rows.size();
+    }
+
+    @Benchmark
+    public int reevaluatePage() {
+        return UCQueryEvaluator.replace(mState, mQuery, mResult, mRowsWithPage, mExecutor, parallelism).rows.size();
+    }
+}
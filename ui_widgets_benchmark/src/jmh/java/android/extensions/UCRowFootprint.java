@@ -0,0 +1,108 @@
+package android.extensions;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Memory of catalogue rows kept by UCListState, as boxed CatalogueRow objects against UCColumnarPage
+ * on and off heap:
+ * 1. retained - heap and direct buffer bytes per row of ROW_COUNT rows, after a full GC
+ * 2. scrolling - SCROLLED_ROWS rows parsed page by page while the last ROW_COUNT stay loaded,
+ *    with the collections, their total time and the slowest page, which includes the longest pause
+ * Run with a fixed heap so the collections are comparable.
+ * ./gradlew :ui_widgets_benchmark:measureRowFootprint
+ */
+public final class UCRowFootprint {
+
+    private static final int ROW_COUNT = 200000;
+    private static final int SCROLLED_ROWS = 2000000;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] STORAGES = {"objects", "columnar", "offheap"};
+
+    private UCRowFootprint() {
+    }
+
+    public static void main(String[] args) {
+        System.out.println(String.format(Locale.US, "%-9s %10s %11s %6s %8s %13s",
+                "storage", "heap B/row", "direct B/row", "GCs", "GC ms", "worst page ms"));
+        for (String storage : STORAGES) {
+            UCColumnarSchema schema = "objects".equals(storage) ? null
+                    : UCSyntheticRows.catalogueSchema("offheap".equals(storage));
+
+            long heap = usedHeap();
+            long direct = usedDirect();
+            UCListState state = new UCListState(new UCSyntheticRows.CountingListener());
+            for (int page = 0; page * PAGE_SIZE < ROW_COUNT; page++) {
+                state.appendPage(page, UCSyntheticRows.catalogueRows(page * PAGE_SIZE, PAGE_SIZE, schema));
+            }
+            long heapPerRow = (usedHeap() - heap) / state.size();
+            long directPerRow = (usedDirect() - direct) / state.size();
+            state = null;
+
+            long[] gc = scroll(schema);
+            System.out.println(String.format(Locale.US, "%-9s %10d %11d %6d %8d %13.2f",
+                    storage, heapPerRow, directPerRow, gc[0], gc[1], gc[2] / 1e6));
+        }
+    }
+
+    /**
+     * @return collections, their total ms and the slowest page in ns
+     */
+    private static long[] scroll(UCColumnarSchema schema) {
+        ArrayDeque<List<Object>> loaded = new ArrayDeque<>();
+        long collections = -collectionCount();
+        long collectionMillis = -collectionMillis();
+        long worstPage = 0;
+        for (int from = 0; from < SCROLLED_ROWS; from += PAGE_SIZE) {
+            long start = System.nanoTime();
+            loaded.addLast(UCSyntheticRows.catalogueRows(from, PAGE_SIZE, schema));
+            if (loaded.size() * PAGE_SIZE > ROW_COUNT) {
+                loaded.pollFirst();
+            }
+            worstPage = Math.max(worstPage, System.nanoTime() - start);
+        }
+        collections += collectionCount();
+        collectionMillis += collectionMillis();
+        loaded.clear();
+        return new long[]{collections, collectionMillis, worstPage};
+    }
+
+    private static long usedHeap() {
+        // a few rounds, finalized direct buffers are only freed by a later one
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedDirect() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
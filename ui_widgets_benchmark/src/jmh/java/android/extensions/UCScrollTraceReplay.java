@@ -0,0 +1,234 @@
+package android.extensions;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Replays scroll traces against a fake datasource and counts spinner stalls, the times the user reached
+ * the end of the loaded rows before the next page arrived:
+ * 1. fixed-N - pages of N rows, as with a datasource which does not take a page size
+ * 2. adaptive - page sizes of UCPageSizeController, as with an IUCSizedPaginatedDatasource
+ * Both prefetch through UCPrefetchPolicy like UCPaginatedList. A trace is a text file of
+ * "uptimeMillis dy" lines, e.g. logged by a RecyclerView.OnScrollListener. Without one, synthetic
+ * traces of reading and flinging generated from UCSyntheticRows.SEED are replayed.
+ * ./gradlew :ui_widgets_benchmark:replayScrollTraces [-PscrollTrace=trace.txt]
+ */
+public final class UCScrollTraceReplay {
+
+    private static final int ROW_HEIGHT_PX = 240;
+    private static final int SCREEN_HEIGHT_PX = 1920;
+    private static final int ITEMS_OFFSET_BEFORE_NEXT_PAGE = 1;
+    private static final int PREFETCH_PAGES = 2;
+    private static final int MIN_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int[] FIXED_PAGE_SIZES = {10, 20, 50};
+    private static final long FRAME_MS = 16;
+    private static final long TRACE_MS = 120000;
+
+    // same smoothing as the fetch latency of UCPageLoader
+    private static final float LATENCY_SMOOTHING = 0.3f;
+    private static final long INITIAL_FETCH_LATENCY_MS = 500;
+
+    private static final class Network {
+        final String name;
+        final long roundTripMillis;
+        final float transferMillisPerRow;
+        final float parseMillisPerRow;
+
+        Network(String name, long roundTripMillis, float transferMillisPerRow, float parseMillisPerRow) {
+            this.name = name;
+            this.roundTripMillis = roundTripMillis;
+            this.transferMillisPerRow = transferMillisPerRow;
+            this.parseMillisPerRow = parseMillisPerRow;
+        }
+    }
+
+    private static final Network[] NETWORKS = {
+            new Network("wifi", 150, 0.5f, 0.3f),
+            new Network("3g", 900, 4, 0.3f),
+    };
+
+    private static final class Trace {
+        final String name;
+        final long[] times;
+        final int[] dys;
+
+        Trace(String name, ArrayList<long[]> events) {
+            this.name = name;
+            times = new long[events.size()];
+            dys = new int[events.size()];
+            for (int i = 0; i < events.size(); i++) {
+                times[i] = events.get(i)[0];
+                dys[i] = (int) events.get(i)[1];
+            }
+        }
+    }
+
+    private static final class Result {
+        int stalls;
+        long stallMillis;
+        int requests;
+        long rowsFetched;
+    }
+
+    private UCScrollTraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<Trace> traces = new ArrayList<>();
+        if (args.length > 0) {
+            for (String path : args) {
+                traces.add(readTrace(path));
+            }
+        } else {
+            Random random = new Random(UCSyntheticRows.SEED);
+            traces.add(synthesize("reading", random, 0));
+            traces.add(synthesize("mixed", random, 0.5f));
+            traces.add(synthesize("flinging", random, 1));
+        }
+
+        System.out.println(String.format(Locale.US, "%-10s %-6s %-10s %7s %9s %9s %12s",
+                "trace", "net", "pages", "stalls", "stall ms", "requests", "rows fetched"));
+        for (Trace trace : traces) {
+            for (Network network : NETWORKS) {
+                for (int pageSize : FIXED_PAGE_SIZES) {
+                    print(trace, network, "fixed-" + pageSize, replay(trace, network, pageSize));
+                }
+                print(trace, network, "adaptive", replay(trace, network, 0));
+            }
+        }
+    }
+
+    private static void print(Trace trace, Network network, String pages, Result result) {
+        System.out.println(String.format(Locale.US, "%-10s %-6s %-10s %7d %9d %9d %12d", trace.name,
+                network.name, pages, result.stalls, result.stallMillis, result.requests, result.rowsFetched));
+    }
+
+    /**
+     * @param fixedPageSize rows per page, 0 for the sizes of UCPageSizeController
+     */
+    private static Result replay(Trace trace, Network network, int fixedPageSize) {
+        UCPrefetchPolicy prefetchPolicy = new UCPrefetchPolicy(MIN_PAGE_SIZE);
+        prefetchPolicy.setMaxPages(PREFETCH_PAGES);
+        UCPageSizeController pageSizeController = new UCPageSizeController(MIN_PAGE_SIZE, MAX_PAGE_SIZE);
+        Result result = new Result();
+        // pages in flight as {arrival time, rows, fetch ms, parse ms}, applied in request order
+        ArrayDeque<long[]> inFlight = new ArrayDeque<>();
+        long averageLatency = INITIAL_FETCH_LATENCY_MS;
+        long loadedRows = 0;
+        long scrollPx = 0;
+        long stallStart = -1;
+        int rowsPerScreen = SCREEN_HEIGHT_PX / ROW_HEIGHT_PX;
+
+        long start = trace.times.length == 0 ? 0 : trace.times[0];
+        request(inFlight, network, fixedPageSize > 0 ? fixedPageSize : pageSizeController.getFirstPageSize(),
+                start, result);
+        for (int i = 0; i < trace.times.length; i++) {
+            long time = trace.times[i];
+            int dy = trace.dys[i];
+
+            while (!inFlight.isEmpty() && inFlight.peekFirst()[0] <= time) {
+                long[] page = inFlight.pollFirst();
+                loadedRows += page[1];
+                prefetchPolicy.onPageApplied(page[1]);
+                pageSizeController.onPageLoaded((int) page[1], page[2], page[3]);
+                averageLatency += (long) (LATENCY_SMOOTHING * (page[2] + page[3] - averageLatency));
+                if (stallStart >= 0) {
+                    result.stallMillis += page[0] - stallStart;
+                    stallStart = -1;
+                }
+            }
+
+            long maxScrollPx = Math.max(0, loadedRows * ROW_HEIGHT_PX - SCREEN_HEIGHT_PX);
+            if (dy > 0 && scrollPx + dy > maxScrollPx) {
+                scrollPx = maxScrollPx;
+                if (stallStart < 0) {
+                    result.stalls++;
+                    stallStart = time;
+                }
+            } else {
+                scrollPx = Math.max(0, scrollPx + dy);
+            }
+
+            prefetchPolicy.onScrolled(dy, time);
+            pageSizeController.onViewport(rowsPerScreen, prefetchPolicy.getVelocity() / ROW_HEIGHT_PX);
+            if (dy > 0 || stallStart >= 0) {
+                long lastVisible = Math.min(loadedRows, (scrollPx + SCREEN_HEIGHT_PX) / ROW_HEIGHT_PX) - 1;
+                int rowsAhead = (int) (loadedRows - 1 - lastVisible);
+                int pagesNeeded = prefetchPolicy.pagesNeeded(rowsAhead, ITEMS_OFFSET_BEFORE_NEXT_PAGE,
+                        ROW_HEIGHT_PX, averageLatency);
+                while (inFlight.size() < pagesNeeded) {
+                    request(inFlight, network, fixedPageSize > 0 ? fixedPageSize
+                            : pageSizeController.getPageSize(), time, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void request(ArrayDeque<long[]> inFlight, Network network, int pageSize, long time,
+                                Result result) {
+        long fetchMillis = network.roundTripMillis + (long) (network.transferMillisPerRow * pageSize);
+        long parseMillis = (long) (network.parseMillisPerRow * pageSize);
+        long arrival = time + fetchMillis + parseMillis;
+        if (!inFlight.isEmpty()) {
+            arrival = Math.max(arrival, inFlight.peekLast()[0]);
+        }
+        inFlight.addLast(new long[]{arrival, pageSize, fetchMillis, parseMillis});
+        result.requests++;
+        result.rowsFetched += pageSize;
+    }
+
+    /**
+     * Frames of flings with decaying velocity and of slow reading scrolls, separated by pauses.
+     * @param flingShare share of gestures which are flings
+     */
+    private static Trace synthesize(String name, Random random, float flingShare) {
+        ArrayList<long[]> events = new ArrayList<>();
+        long time = 0;
+        while (time < TRACE_MS) {
+            if (random.nextFloat() < flingShare) {
+                // mostly down, sometimes back up
+                float velocity = (6 + 6 * random.nextFloat()) * (random.nextFloat() < 0.1f ? -1 : 1);
+                while (Math.abs(velocity) > 0.3f) {
+                    time += FRAME_MS;
+                    events.add(new long[]{time, Math.round(velocity * FRAME_MS)});
+                    velocity *= 0.97f;
+                }
+                time += 300 + random.nextInt(500);
+            } else {
+                long end = time + 1000 + random.nextInt(1000);
+                while (time < end) {
+                    time += FRAME_MS;
+                    events.add(new long[]{time, 4 + random.nextInt(7)});
+                }
+                time += 2000 + random.nextInt(3000);
+            }
+        }
+        return new Trace(name, events);
+    }
+
+    private static Trace readTrace(String path) throws IOException {
+        ArrayList<long[]> events = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                events.add(new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1])});
+            }
+        } finally {
+            reader.close();
+        }
+        return new Trace(path.substring(path.lastIndexOf('/') + 1), events);
+    }
+}
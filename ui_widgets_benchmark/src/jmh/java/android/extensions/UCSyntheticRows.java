@@ -0,0 +1,255 @@
+package android.extensions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic rows shared by the benchmarks, generated from a fixed seed so results of
+ * different releases are comparable. Never change the seed or the shape of the rows.
+ */
+final class UCSyntheticRows {
+
+    static final long SEED = 0x55435057;
+
+    static final class Row {
+        final String id;
+        final String title;
+        final int version;
+
+        Row(String id, String title, int version) {
+            this.id = id;
+            this.title = title;
+            this.version = version;
+        }
+
+        Row update() {
+            return new Row(id, title, version + 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Row)) {
+                return false;
+            }
+            Row row = (Row) o;
+            return version == row.version && id.equals(row.id) && title.equals(row.title);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * id.hashCode() + title.hashCode()) + version;
+        }
+    }
+
+    static final class Comparison implements IUCDatasourceDiffComparison, IUCReferenceIdExtractor {
+
+        @Override
+        public boolean hasReferenceId(Object o, String referenceId) {
+            return ((Row) o).id.equals(referenceId);
+        }
+
+        @Override
+        public String getReferenceId(Object row) {
+            return ((Row) row).id;
+        }
+
+        @Override
+        public boolean areItemsTheSame(Object oldItem, Object newItem) {
+            return ((Row) oldItem).id.equals(((Row) newItem).id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(Object oldItem, Object newItem) {
+            return oldItem.equals(newItem);
+        }
+    }
+
+    static final class Codec implements IUCRowCodec {
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void encode(Object row, DataOutput out) throws IOException {
+            Row r = (Row) row;
+            out.writeUTF(r.id);
+            out.writeUTF(r.title);
+            out.writeInt(r.version);
+        }
+
+        @Override
+        public Object decode(DataInput in) throws IOException {
+            return new Row(in.readUTF(), in.readUTF(), in.readInt());
+        }
+    }
+
+    /**
+     * Catalogue row with boxed fields, as parsed by reflection based JSON parsers,
+     * compared against the same columns in a UCColumnarPage.
+     */
+    static final class CatalogueRow {
+        final String id;
+        final String title;
+        final Double price;
+        final Double rating;
+        final Integer stock;
+        final Long updatedAt;
+
+        CatalogueRow(String id, String title, Double price, Double rating, Integer stock, Long updatedAt) {
+            this.id = id;
+            this.title = title;
+            this.price = price;
+            this.rating = rating;
+            this.stock = stock;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    // columns of catalogueSchema
+    static final int CATALOGUE_ID = 0;
+    static final int CATALOGUE_TITLE = 1;
+    static final int CATALOGUE_PRICE = 2;
+    static final int CATALOGUE_RATING = 3;
+    static final int CATALOGUE_STOCK = 4;
+    static final int CATALOGUE_UPDATED_AT = 5;
+
+    /**
+     * Counts reported changes so they are not optimized away.
+     */
+    static final class CountingListener implements UCListState.Listener {
+        int events;
+
+        @Override
+        public void onInserted(int position, int count) {
+            events += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events += count;
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            events += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            events++;
+        }
+
+        @Override
+        public void onReset() {
+            events++;
+        }
+    }
+
+    private UCSyntheticRows() {
+    }
+
+    static ArrayList<Object> rows(int count) {
+        return rows(0, count);
+    }
+
+    /**
+     * Rows with ids row-from to row-(from + count - 1), titles are the same on every call.
+     */
+    static ArrayList<Object> rows(int from, int count) {
+        Random random = new Random(SEED + from);
+        ArrayList<Object> rows = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            rows.add(new Row("row-" + i, "Service " + random.nextInt(1000) + " in area " + random.nextInt(100), 0));
+        }
+        return rows;
+    }
+
+    static ArrayList<List<Object>> pages(int rowCount, int pageSize) {
+        ArrayList<List<Object>> pages = new ArrayList<>();
+        for (int from = 0; from < rowCount; from += pageSize) {
+            pages.add(rows(from, Math.min(pageSize, rowCount - from)));
+        }
+        return pages;
+    }
+
+    static UCListState state(int rowCount, int pageSize, boolean indexed) {
+        UCListState state = new UCListState(new CountingListener());
+        Comparison comparison = new Comparison();
+        state.setComparison(comparison);
+        if (indexed) {
+            state.setReferenceIdExtractor(comparison);
+        }
+        ArrayList<List<Object>> pages = pages(rowCount, pageSize);
+        for (int page = 0; page < pages.size(); page++) {
+            state.appendPage(page, pages.get(page));
+        }
+        return state;
+    }
+
+    static UCColumnarSchema catalogueSchema(boolean offHeap) {
+        return new UCColumnarSchema()
+                .addStringColumn("id")
+                .addStringColumn("title")
+                .addDoubleColumn("price")
+                .addDoubleColumn("rating")
+                .addIntColumn("stock")
+                .addLongColumn("updatedAt")
+                .addOffHeapStorage(offHeap);
+    }
+
+    /**
+     * Catalogue rows with ids item-from to item-(from + count - 1), as CatalogueRow objects
+     * or, with a schema of catalogueSchema, in a UCColumnarPage. Values are the same on every call.
+     */
+    static ArrayList<Object> catalogueRows(int from, int count, UCColumnarSchema schema) {
+        Random random = new Random(SEED + from);
+        UCColumnarPage page = schema == null ? null : new UCColumnarPage(schema, count);
+        ArrayList<Object> rows = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            String id = "item-" + i;
+            String title = "Item " + random.nextInt(1000) + " by brand " + random.nextInt(100);
+            double price = random.nextInt(100000) / 100.0;
+            double rating = random.nextInt(50) / 10.0;
+            int stock = random.nextInt(500);
+            long updatedAt = 1500000000000L + random.nextInt(1000000000);
+            if (page == null) {
+                rows.add(new CatalogueRow(id, title, price, rating, stock, updatedAt));
+            } else {
+                page.addRow()
+                        .setString(CATALOGUE_ID, id)
+                        .setString(CATALOGUE_TITLE, title)
+                        .setDouble(CATALOGUE_PRICE, price)
+                        .setDouble(CATALOGUE_RATING, rating)
+                        .setInt(CATALOGUE_STOCK, stock)
+                        .setLong(CATALOGUE_UPDATED_AT, updatedAt);
+            }
+        }
+        return page == null ? rows : page.getRows();
+    }
+
+    /**
+     * count distinct ids out of the first rowCount rows, in random order.
+     */
+    static String[] ids(int rowCount, int count) {
+        ArrayList<Integer> positions = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            positions.add(i);
+        }
+        Collections.shuffle(positions, new Random(SEED));
+        String[] ids = new String[Math.min(count, rowCount)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "row-" + positions.get(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,20 @@
+package android.extensions;
+
+/**
+ * Optional extension of IUCDatasourceComparison.
+ * UCPaginatedList uses it to match rows when a page zero refresh replaces the list,
+ * so only rows which really changed are inserted, removed or rebound.
+ * Rows are matched with equals() if the datasource does not implement it.
+ */
+public interface IUCDatasourceDiffComparison extends IUCDatasourceComparison {
+
+    /**
+     * Returns true if both objects represent the same row, e.g. have the same reference id.
+     */
+    boolean areItemsTheSame(Object oldItem, Object newItem);
+
+    /**
+     * Called only for rows which are the same, returns true if the row does not need a rebind.
+     */
+    boolean areContentsTheSame(Object oldItem, Object newItem);
+}
@@ -0,0 +1,12 @@
+package android.extensions;
+
+/**
+ * Group of a row for UCPaginatedList.addGrouping, consecutive rows with equal keys share a header.
+ */
+public interface IUCGroupKeyExtractor {
+
+    /**
+     * Key compared with equals(), null is a key as well.
+     */
+    Object getGroupKey(Object row);
+}
@@ -0,0 +1,15 @@
+package android.extensions;
+
+/**
+ * Optional interface for the datasource delegate.
+ * When implemented UCPaginatedList keeps a referenceId to position index, so finding, updating
+ * and removing rows does not scan the whole list.
+ * Rows which are equal must return the same reference id.
+ */
+public interface IUCReferenceIdExtractor {
+
+    /**
+     * Returns reference id of the row or null if the row has none (e.g. headers).
+     */
+    String getReferenceId(Object o);
+}
@@ -0,0 +1,23 @@
+package android.extensions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes parsed rows for the snapshot written by UCPaginatedList.addSnapshotPersistence.
+ */
+public interface IUCRowCodec {
+
+    /**
+     * Snapshots written with another version are ignored, bump it whenever the encoding changes.
+     */
+    int getVersion();
+
+    /**
+     * Writes at least one byte, snapshots with fewer bytes than rows are rejected as corrupt.
+     */
+    void encode(Object row, DataOutput out) throws IOException;
+
+    Object decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,9 @@
+package android.extensions;
+
+/**
+ * Filter of a UCListQuery, called off the main thread.
+ */
+public interface IUCRowFilter {
+
+    boolean accept(Object row);
+}
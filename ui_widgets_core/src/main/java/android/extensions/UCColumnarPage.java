@@ -0,0 +1,264 @@
+package android.extensions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/**
+ * Rows of a page stored column by column instead of one object per row:
+ * 1. int, long and double columns are primitive arrays, or regions of one direct ByteBuffer
+ *    with UCColumnarSchema.addOffHeapStorage
+ * 2. string columns are String arrays
+ * 3. each row of the list is a UCColumnarRow holding only the page and its index. It is not one row view
+ *    rebound per ViewHolder: UCListState, its diffs, mutations and reference index tell rows apart as
+ *    objects, so every row keeps this small handle while its fields stay in the columns
+ * A page is written while parsing and read afterwards on the main thread, it is not thread safe.
+ */
+public final class UCColumnarPage {
+
+    private final UCColumnarSchema mSchema;
+    private final ArrayList<Object> mRows;
+    // int[], long[], double[] or String[] per column, null for the columns of mBuffer
+    private final Object[] mColumns;
+    private ByteBuffer mBuffer;
+    private int mCapacity;
+
+    /**
+     * @param capacity expected number of rows, the page grows past it
+     */
+    public UCColumnarPage(UCColumnarSchema schema, int capacity) {
+        schema.freeze();
+        mSchema = schema;
+        mCapacity = Math.max(1, capacity);
+        mRows = new ArrayList<>(mCapacity);
+        mColumns = new Object[schema.getColumnCount()];
+        allocate(mCapacity);
+    }
+
+    /**
+     * Adds a row with all columns 0 or null, set them on the returned row.
+     */
+    public UCColumnarRow addRow() {
+        if (mRows.size() == mCapacity) {
+            grow(mCapacity * 2);
+        }
+        UCColumnarRow row = new UCColumnarRow(this, mRows.size());
+        mRows.add(row);
+        return row;
+    }
+
+    public int size() {
+        return mRows.size();
+    }
+
+    public UCColumnarSchema getSchema() {
+        return mSchema;
+    }
+
+    /**
+     * Rows in the order they were added, to return from parseDataArray.
+     */
+    public ArrayList<Object> getRows() {
+        return mRows;
+    }
+
+    int getInt(int row, int column) {
+        checkType(column, UCColumnarSchema.TYPE_INT);
+        if (mColumns[column] == null) {
+            return mBuffer.getInt(position(row, column, 4));
+        }
+        return ((int[]) mColumns[column])[row];
+    }
+
+    long getLong(int row, int column) {
+        checkType(column, UCColumnarSchema.TYPE_LONG);
+        if (mColumns[column] == null) {
+            return mBuffer.getLong(position(row, column, 8));
+        }
+        return ((long[]) mColumns[column])[row];
+    }
+
+    double getDouble(int row, int column) {
+        checkType(column, UCColumnarSchema.TYPE_DOUBLE);
+        if (mColumns[column] == null) {
+            return mBuffer.getDouble(position(row, column, 8));
+        }
+        return ((double[]) mColumns[column])[row];
+    }
+
+    String getString(int row, int column) {
+        checkType(column, UCColumnarSchema.TYPE_STRING);
+        return ((String[]) mColumns[column])[row];
+    }
+
+    void setInt(int row, int column, int value) {
+        checkType(column, UCColumnarSchema.TYPE_INT);
+        if (mColumns[column] == null) {
+            mBuffer.putInt(position(row, column, 4), value);
+        } else {
+            ((int[]) mColumns[column])[row] = value;
+        }
+    }
+
+    void setLong(int row, int column, long value) {
+        checkType(column, UCColumnarSchema.TYPE_LONG);
+        if (mColumns[column] == null) {
+            mBuffer.putLong(position(row, column, 8), value);
+        } else {
+            ((long[]) mColumns[column])[row] = value;
+        }
+    }
+
+    void setDouble(int row, int column, double value) {
+        checkType(column, UCColumnarSchema.TYPE_DOUBLE);
+        if (mColumns[column] == null) {
+            mBuffer.putDouble(position(row, column, 8), value);
+        } else {
+            ((double[]) mColumns[column])[row] = value;
+        }
+    }
+
+    void setString(int row, int column, String value) {
+        checkType(column, UCColumnarSchema.TYPE_STRING);
+        ((String[]) mColumns[column])[row] = value;
+    }
+
+    private int position(int row, int column, int width) {
+        return mCapacity * mSchema.getOffset(column) + row * width;
+    }
+
+    private void checkType(int column, int type) {
+        if (mSchema.getType(column) != type) {
+            throw new IllegalArgumentException("Column " + mSchema.getColumnName(column) + " has another type");
+        }
+    }
+
+    private void allocate(int capacity) {
+        boolean offHeap = mSchema.isOffHeap();
+        for (int column = 0; column < mColumns.length; column++) {
+            switch (mSchema.getType(column)) {
+                case UCColumnarSchema.TYPE_INT:
+                    mColumns[column] = offHeap ? null : new int[capacity];
+                    break;
+                case UCColumnarSchema.TYPE_LONG:
+                    mColumns[column] = offHeap ? null : new long[capacity];
+                    break;
+                case UCColumnarSchema.TYPE_DOUBLE:
+                    mColumns[column] = offHeap ? null : new double[capacity];
+                    break;
+                default:
+                    mColumns[column] = new String[capacity];
+                    break;
+            }
+        }
+        if (offHeap && mSchema.getRowBytes() > 0) {
+            mBuffer = ByteBuffer.allocateDirect(capacity * mSchema.getRowBytes()).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private void grow(int capacity) {
+        Object[] columns = mColumns.clone();
+        ByteBuffer buffer = mBuffer;
+        int oldCapacity = mCapacity;
+        allocate(capacity);
+        for (int column = 0; column < mColumns.length; column++) {
+            if (columns[column] == null) {
+                // region of the column moves, rows past the old capacity stay 0
+                int width = mSchema.getType(column) == UCColumnarSchema.TYPE_INT ? 4 : 8;
+                ByteBuffer region = buffer.duplicate();
+                region.limit(oldCapacity * (mSchema.getOffset(column) + width));
+                region.position(oldCapacity * mSchema.getOffset(column));
+                ByteBuffer target = mBuffer.duplicate();
+                target.position(capacity * mSchema.getOffset(column));
+                target.put(region);
+            } else {
+                System.arraycopy(columns[column], 0, mColumns[column], 0, oldCapacity);
+            }
+        }
+        mCapacity = capacity;
+    }
+
+    /**
+     * Copy of row in a page of its own, e.g. to change it with UCPaginatedList.updateItem.
+     */
+    UCColumnarRow copy(int row) {
+        UCColumnarPage page = new UCColumnarPage(mSchema, 1);
+        UCColumnarRow copy = page.addRow();
+        for (int column = 0; column < mColumns.length; column++) {
+            switch (mSchema.getType(column)) {
+                case UCColumnarSchema.TYPE_INT:
+                    page.setInt(0, column, getInt(row, column));
+                    break;
+                case UCColumnarSchema.TYPE_LONG:
+                    page.setLong(0, column, getLong(row, column));
+                    break;
+                case UCColumnarSchema.TYPE_DOUBLE:
+                    page.setDouble(0, column, getDouble(row, column));
+                    break;
+                default:
+                    page.setString(0, column, getString(row, column));
+                    break;
+            }
+        }
+        return copy;
+    }
+
+    boolean equalRows(int row, UCColumnarPage other, int otherRow) {
+        if (other.mSchema != mSchema) {
+            return false;
+        }
+        for (int column = 0; column < mColumns.length; column++) {
+            switch (mSchema.getType(column)) {
+                case UCColumnarSchema.TYPE_INT:
+                    if (getInt(row, column) != other.getInt(otherRow, column)) {
+                        return false;
+                    }
+                    break;
+                case UCColumnarSchema.TYPE_LONG:
+                    if (getLong(row, column) != other.getLong(otherRow, column)) {
+                        return false;
+                    }
+                    break;
+                case UCColumnarSchema.TYPE_DOUBLE:
+                    // same as Double.equals
+                    if (Double.doubleToLongBits(getDouble(row, column))
+                            != Double.doubleToLongBits(other.getDouble(otherRow, column))) {
+                        return false;
+                    }
+                    break;
+                default:
+                    String value = getString(row, column);
+                    String otherValue = other.getString(otherRow, column);
+                    if (value == null ? otherValue != null : !value.equals(otherValue)) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    int hashRow(int row) {
+        int hash = 1;
+        for (int column = 0; column < mColumns.length; column++) {
+            long value;
+            switch (mSchema.getType(column)) {
+                case UCColumnarSchema.TYPE_INT:
+                    value = getInt(row, column);
+                    break;
+                case UCColumnarSchema.TYPE_LONG:
+                    value = getLong(row, column);
+                    break;
+                case UCColumnarSchema.TYPE_DOUBLE:
+                    value = Double.doubleToLongBits(getDouble(row, column));
+                    break;
+                default:
+                    String string = getString(row, column);
+                    value = string == null ? 0 : string.hashCode();
+                    break;
+            }
+            hash = 31 * hash + (int) (value ^ (value >>> 32));
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,83 @@
+package android.extensions;
+
+/**
+ * Row of a UCColumnarPage, a handle reading its columns from the page, created once per row by addRow.
+ * Set the columns while parsing, e.g. page.addRow().setString(ID, id).setDouble(PRICE, price).
+ * To change a row already shown pass a changed copy() to UCPaginatedList.updateItem,
+ * a row changed in place is not rebound.
+ * Rows are equal when all their columns are.
+ */
+public final class UCColumnarRow {
+
+    private final UCColumnarPage mPage;
+    private final int mIndex;
+
+    UCColumnarRow(UCColumnarPage page, int index) {
+        mPage = page;
+        mIndex = index;
+    }
+
+    public UCColumnarSchema getSchema() {
+        return mPage.getSchema();
+    }
+
+    public int getInt(int column) {
+        return mPage.getInt(mIndex, column);
+    }
+
+    public long getLong(int column) {
+        return mPage.getLong(mIndex, column);
+    }
+
+    public double getDouble(int column) {
+        return mPage.getDouble(mIndex, column);
+    }
+
+    public String getString(int column) {
+        return mPage.getString(mIndex, column);
+    }
+
+    public UCColumnarRow setInt(int column, int value) {
+        mPage.setInt(mIndex, column, value);
+        return this;
+    }
+
+    public UCColumnarRow setLong(int column, long value) {
+        mPage.setLong(mIndex, column, value);
+        return this;
+    }
+
+    public UCColumnarRow setDouble(int column, double value) {
+        mPage.setDouble(mIndex, column, value);
+        return this;
+    }
+
+    public UCColumnarRow setString(int column, String value) {
+        mPage.setString(mIndex, column, value);
+        return this;
+    }
+
+    /**
+     * Copy of the row in a page of its own, its columns can be changed without touching this row.
+     */
+    public UCColumnarRow copy() {
+        return mPage.copy(mIndex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UCColumnarRow)) {
+            return false;
+        }
+        UCColumnarRow row = (UCColumnarRow) o;
+        return mPage.equalRows(mIndex, row.mPage, row.mIndex);
+    }
+
+    @Override
+    public int hashCode() {
+        return mPage.hashRow(mIndex);
+    }
+}
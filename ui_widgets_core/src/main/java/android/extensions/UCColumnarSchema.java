@@ -0,0 +1,125 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Columns of the rows of a homogeneous list stored in UCColumnarPage.
+ * Columns are numbered in the order they are added, resolve them once into constants:
+ * <pre>
+ * SCHEMA = new UCColumnarSchema().addStringColumn("id").addDoubleColumn("price");
+ * ID = SCHEMA.getColumnIndex("id");
+ * </pre>
+ * The schema can't change once a page was created with it.
+ */
+public final class UCColumnarSchema {
+
+    static final int TYPE_INT = 0;
+    static final int TYPE_LONG = 1;
+    static final int TYPE_DOUBLE = 2;
+    static final int TYPE_STRING = 3;
+
+    // bytes per value in the off heap buffer, strings always stay on the heap
+    private static final int[] WIDTHS = {4, 8, 8, 0};
+
+    private final ArrayList<String> mNames = new ArrayList<>();
+    private int[] mTypes = new int[0];
+    private int[] mOffsets;
+    private int mRowBytes;
+    private boolean mOffHeap;
+    private boolean mFrozen;
+
+    public UCColumnarSchema addIntColumn(String name) {
+        return addColumn(name, TYPE_INT);
+    }
+
+    public UCColumnarSchema addLongColumn(String name) {
+        return addColumn(name, TYPE_LONG);
+    }
+
+    public UCColumnarSchema addDoubleColumn(String name) {
+        return addColumn(name, TYPE_DOUBLE);
+    }
+
+    public UCColumnarSchema addStringColumn(String name) {
+        return addColumn(name, TYPE_STRING);
+    }
+
+    /**
+     * Keeps int, long and double columns in a direct ByteBuffer outside of the Java heap,
+     * so they are never scanned or copied by the garbage collector.
+     */
+    public UCColumnarSchema addOffHeapStorage(boolean offHeap) {
+        checkNotFrozen();
+        mOffHeap = offHeap;
+        return this;
+    }
+
+    public int getColumnCount() {
+        return mNames.size();
+    }
+
+    public int getColumnIndex(String name) {
+        int column = mNames.indexOf(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("No column " + name);
+        }
+        return column;
+    }
+
+    public String getColumnName(int column) {
+        return mNames.get(column);
+    }
+
+    boolean isOffHeap() {
+        return mOffHeap;
+    }
+
+    int getType(int column) {
+        return mTypes[column];
+    }
+
+    /**
+     * Bytes per row before column in the off heap buffer, a page of capacity rows stores the column
+     * from capacity * offset.
+     */
+    int getOffset(int column) {
+        return mOffsets[column];
+    }
+
+    int getRowBytes() {
+        return mRowBytes;
+    }
+
+    /**
+     * Called by every page, possibly on several parsing threads at once.
+     */
+    synchronized void freeze() {
+        if (mFrozen) {
+            return;
+        }
+        mOffsets = new int[mTypes.length];
+        for (int column = 0; column < mTypes.length; column++) {
+            mOffsets[column] = mRowBytes;
+            mRowBytes += WIDTHS[mTypes[column]];
+        }
+        mFrozen = true;
+    }
+
+    private UCColumnarSchema addColumn(String name, int type) {
+        checkNotFrozen();
+        if (mNames.contains(name)) {
+            throw new IllegalArgumentException("Duplicate column " + name);
+        }
+        mNames.add(name);
+        mTypes = Arrays.copyOf(mTypes, mTypes.length + 1);
+        mTypes[mTypes.length - 1] = type;
+        return this;
+    }
+
+    private void checkNotFrozen() {
+        if (mFrozen) {
+            throw new IllegalStateException("Schema already used by a page");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package android.extensions;
+
+import java.util.List;
+
+/**
+ * Compares rows of two snapshots of UCPaginatedList for UCListDiff.
+ * Without IUCDatasourceDiffComparison rows are matched by reference id if there is an
+ * IUCReferenceIdExtractor, otherwise with equals(). Placeholders only match placeholders.
+ */
+class UCDiffCallback {
+    private final List<Object> mOldData;
+    private final List<Object> mNewData;
+    private final IUCDatasourceDiffComparison mComparison;
+    private final IUCReferenceIdExtractor mReferenceIdExtractor;
+
+    UCDiffCallback(List<Object> oldData, List<Object> newData, IUCDatasourceDiffComparison comparison,
+                   IUCReferenceIdExtractor referenceIdExtractor) {
+        mOldData = oldData;
+        mNewData = newData;
+        mComparison = comparison;
+        mReferenceIdExtractor = referenceIdExtractor;
+    }
+
+    int getOldListSize() {
+        return mOldData.size();
+    }
+
+    int getNewListSize() {
+        return mNewData.size();
+    }
+
+    boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        Object oldItem = mOldData.get(oldItemPosition);
+        Object newItem = mNewData.get(newItemPosition);
+        if (oldItem == UCPlaceholder.INSTANCE || newItem == UCPlaceholder.INSTANCE) {
+            return oldItem == newItem;
+        }
+        if (mComparison != null) {
+            return mComparison.areItemsTheSame(oldItem, newItem);
+        }
+        if (mReferenceIdExtractor != null) {
+            String oldReferenceId = mReferenceIdExtractor.getReferenceId(oldItem);
+            if (oldReferenceId != null) {
+                return oldReferenceId.equals(mReferenceIdExtractor.getReferenceId(newItem));
+            }
+        }
+        return equal(oldItem, newItem);
+    }
+
+    boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        Object oldItem = mOldData.get(oldItemPosition);
+        Object newItem = mNewData.get(newItemPosition);
+        if (oldItem == UCPlaceholder.INSTANCE || newItem == UCPlaceholder.INSTANCE) {
+            return oldItem == newItem;
+        }
+        if (mComparison != null) {
+            return mComparison.areContentsTheSame(oldItem, newItem);
+        }
+        return equal(oldItem, newItem);
+    }
+
+    private static boolean equal(Object oldItem, Object newItem) {
+        return oldItem == null ? newItem == null : oldItem.equals(newItem);
+    }
+}
@@ -0,0 +1,35 @@
+package android.extensions;
+
+/**
+ * Header row shown by UCPaginatedList before every group, see IUCGroupKeyExtractor.
+ * Headers of equal keys are equal.
+ */
+public final class UCGroupHeader {
+
+    private final Object mKey;
+
+    UCGroupHeader(Object key) {
+        mKey = key;
+    }
+
+    public Object getKey() {
+        return mKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UCGroupHeader)) {
+            return false;
+        }
+        Object key = ((UCGroupHeader) o).mKey;
+        return mKey == null ? key == null : mKey.equals(key);
+    }
+
+    @Override
+    public int hashCode() {
+        return mKey == null ? 0 : mKey.hashCode();
+    }
+}
@@ -0,0 +1,76 @@
+package android.extensions;
+
+/**
+ * Histogram of non negative values in power of two buckets.
+ * Recording does not allocate, percentiles are accurate to the bucket, i.e. within a factor of two.
+ */
+public class UCHistogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    // bucket i holds values in [2^(i-1), 2^i), bucket 0 holds 0
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mSum;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax;
+
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mBuckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)]++;
+        mCount++;
+        mSum += value;
+        mMin = Math.min(mMin, value);
+        mMax = Math.max(mMax, value);
+    }
+
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    public synchronized long getSum() {
+        return mSum;
+    }
+
+    public synchronized long getMin() {
+        return mCount == 0 ? 0 : mMin;
+    }
+
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    public synchronized double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * Returns an upper bound of the value below which percentile (0 - 100) of the values fall.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * mCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank && mBuckets[i] > 0) {
+                return Math.min(mMax, i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return mMax;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+    }
+}
@@ -0,0 +1,355 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Shortest edit script between two snapshots of rows, Myers' O((N + M) D) algorithm.
+ * 1. Common head and tail rows are matched before running the algorithm
+ * 2. Above MAX_EDIT_DISTANCE inserted + removed rows the search stops, rows matched along the
+ *    furthest reaching path are kept and the rest of both lists is removed and inserted, so large
+ *    refreshes are never a data set reset
+ * 3. Removed rows which are the same as inserted ones are reported as moves, like DiffUtil with
+ *    detectMoves, checking at most MAX_MOVE_CHECKS pairs of rows
+ */
+final class UCListDiff {
+
+    static final int MAX_EDIT_DISTANCE = 500;
+    static final int MAX_MOVE_CHECKS = MAX_EDIT_DISTANCE * MAX_EDIT_DISTANCE;
+
+    private static final int INVALID = -1;
+
+    private final UCDiffCallback mCallback;
+    // runs of matched rows as (old position, new position, length), ascending
+    private final ArrayList<int[]> mSnakes;
+    // new position of each removed row which moved and old position of each inserted one, null without moves
+    private int[] mMovedTo;
+    private int[] mMovedFrom;
+
+    private UCListDiff(UCDiffCallback callback, ArrayList<int[]> snakes) {
+        mCallback = callback;
+        mSnakes = snakes;
+    }
+
+    static UCListDiff calculate(UCDiffCallback callback) {
+        int oldSize = callback.getOldListSize();
+        int newSize = callback.getNewListSize();
+
+        int head = 0;
+        while (head < oldSize && head < newSize && callback.areItemsTheSame(head, head)) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < oldSize - head && tail < newSize - head
+                && callback.areItemsTheSame(oldSize - 1 - tail, newSize - 1 - tail)) {
+            tail++;
+        }
+
+        ArrayList<int[]> middle = findSnakes(callback, head, oldSize - head - tail, newSize - head - tail);
+        ArrayList<int[]> snakes = new ArrayList<>(middle.size() + 2);
+        if (head > 0) {
+            snakes.add(new int[]{0, 0, head});
+        }
+        for (int i = middle.size() - 1; i >= 0; i--) {
+            snakes.add(middle.get(i));
+        }
+        if (tail > 0) {
+            snakes.add(new int[]{oldSize - tail, newSize - tail, tail});
+        }
+        UCListDiff diff = new UCListDiff(callback, snakes);
+        diff.detectMoves();
+        return diff;
+    }
+
+    /**
+     * Pairs removed rows with inserted rows which are the same, the first unpaired removed row wins.
+     */
+    private void detectMoves() {
+        int oldSize = mCallback.getOldListSize();
+        int newSize = mCallback.getNewListSize();
+        int[] removed = new int[oldSize];
+        int removedCount = 0;
+        int[] inserted = new int[newSize];
+        int insertedCount = 0;
+        int oldPosition = 0;
+        int newPosition = 0;
+        for (int i = 0; i <= mSnakes.size(); i++) {
+            int[] snake = i == mSnakes.size() ? new int[]{oldSize, newSize, 0} : mSnakes.get(i);
+            while (oldPosition < snake[0]) {
+                removed[removedCount++] = oldPosition++;
+            }
+            while (newPosition < snake[1]) {
+                inserted[insertedCount++] = newPosition++;
+            }
+            oldPosition += snake[2];
+            newPosition += snake[2];
+        }
+        if (removedCount == 0 || insertedCount == 0) {
+            return;
+        }
+
+        int checks = 0;
+        for (int i = 0; i < insertedCount && removedCount > 0; i++) {
+            for (int j = 0; j < removedCount; j++) {
+                if (checks++ == MAX_MOVE_CHECKS) {
+                    return;
+                }
+                if (mCallback.areItemsTheSame(removed[j], inserted[i])) {
+                    if (mMovedTo == null) {
+                        mMovedTo = new int[oldSize];
+                        mMovedFrom = new int[newSize];
+                        Arrays.fill(mMovedTo, INVALID);
+                        Arrays.fill(mMovedFrom, INVALID);
+                    }
+                    mMovedTo[removed[j]] = inserted[i];
+                    mMovedFrom[inserted[i]] = removed[j];
+                    System.arraycopy(removed, j + 1, removed, j, --removedCount - j);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the snakes of the middle part starting at offset in both lists, descending.
+     * If it needs more than MAX_EDIT_DISTANCE edits, only the snakes of the path reaching furthest
+     * into both lists, the rows after it are left unmatched.
+     */
+    private static ArrayList<int[]> findSnakes(UCDiffCallback callback, int offset, int oldCount,
+                                               int newCount) {
+        ArrayList<int[]> snakes = new ArrayList<>();
+        if (oldCount == 0 || newCount == 0) {
+            return snakes;
+        }
+
+        // furthest x reached on each diagonal k = x - y after d edits, index k + d
+        ArrayList<int[]> trace = new ArrayList<>();
+        int maxEdits = Math.min(oldCount + newCount, MAX_EDIT_DISTANCE);
+        for (int d = 0; d <= maxEdits; d++) {
+            int[] previous = d == 0 ? null : trace.get(d - 1);
+            int[] current = new int[2 * d + 1];
+            for (int k = -d; k <= d; k += 2) {
+                int x = d == 0 ? 0 : start(previous, d - 1, k, oldCount, newCount);
+                if (x == INVALID) {
+                    current[k + d] = INVALID;
+                    continue;
+                }
+                int y = x - k;
+                while (x < oldCount && y < newCount && callback.areItemsTheSame(offset + x, offset + y)) {
+                    x++;
+                    y++;
+                }
+                current[k + d] = x;
+                if (x == oldCount && y == newCount) {
+                    trace.add(current);
+                    backtrack(trace, d, offset, x, y, oldCount, newCount, snakes);
+                    return snakes;
+                }
+            }
+            trace.add(current);
+        }
+
+        int[] last = trace.get(maxEdits);
+        int furthestK = 0;
+        int furthest = INVALID;
+        for (int k = -maxEdits; k <= maxEdits; k += 2) {
+            int x = last[k + maxEdits];
+            if (x != INVALID && (furthest == INVALID || 2 * x - k > 2 * furthest - furthestK)) {
+                furthest = x;
+                furthestK = k;
+            }
+        }
+        backtrack(trace, maxEdits, offset, furthest, furthest - furthestK, oldCount, newCount, snakes);
+        return snakes;
+    }
+
+    /**
+     * Start of the snake on diagonal k after d + 1 edits, the furthest of an insertion from
+     * diagonal k + 1 and a removal from diagonal k - 1, INVALID if both leave the grid.
+     */
+    private static int start(int[] previous, int d, int k, int oldCount, int newCount) {
+        int insertion = valueAt(previous, d, k + 1);
+        if (insertion != INVALID && insertion - k > newCount) {
+            insertion = INVALID;
+        }
+        int removal = valueAt(previous, d, k - 1);
+        if (removal != INVALID && ++removal > oldCount) {
+            removal = INVALID;
+        }
+        return removal == INVALID || insertion >= removal ? insertion : removal;
+    }
+
+    private static int valueAt(int[] values, int d, int k) {
+        if (k < -d || k > d) {
+            return INVALID;
+        }
+        return values[k + d];
+    }
+
+    /**
+     * Collects the snakes of the path ending at (x, y) after edits edits.
+     */
+    private static void backtrack(ArrayList<int[]> trace, int edits, int offset, int x, int y,
+                                  int oldCount, int newCount, ArrayList<int[]> snakes) {
+        for (int d = edits; d >= 0; d--) {
+            int k = x - y;
+            int startX = d == 0 ? 0 : start(trace.get(d - 1), d - 1, k, oldCount, newCount);
+            if (x > startX) {
+                snakes.add(new int[]{offset + startX, offset + startX - k, x - startX});
+            }
+            if (d > 0) {
+                int insertion = valueAt(trace.get(d - 1), d - 1, k + 1);
+                if (startX == insertion) {
+                    x = insertion;
+                    y = insertion - k - 1;
+                } else {
+                    x = startX - 1;
+                    y = x - k + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the changes from the old to the new rows, positions are valid at the time of each call.
+     */
+    void dispatchUpdatesTo(UCListState.Listener listener) {
+        // backwards, so the positions before the current snake are still the old ones
+        ArrayList<PostponedMove> postponed = new ArrayList<>();
+        int oldEnd = mCallback.getOldListSize();
+        int newEnd = mCallback.getNewListSize();
+        for (int i = mSnakes.size(); i >= 0; i--) {
+            int[] snake = i == 0 ? new int[]{0, 0, 0} : mSnakes.get(i - 1);
+            int oldStart = snake[0] + snake[2];
+            int newStart = snake[1] + snake[2];
+            dispatchRemovals(listener, postponed, oldStart, oldEnd);
+            dispatchInsertions(listener, postponed, oldStart, newStart, newEnd);
+
+            int changedStart = -1;
+            for (int j = 0; j < snake[2]; j++) {
+                boolean changed = !mCallback.areContentsTheSame(snake[0] + j, snake[1] + j);
+                if (changed && changedStart == -1) {
+                    changedStart = j;
+                } else if (!changed && changedStart != -1) {
+                    listener.onChanged(snake[0] + changedStart, j - changedStart);
+                    changedStart = -1;
+                }
+            }
+            if (changedStart != -1) {
+                listener.onChanged(snake[0] + changedStart, snake[2] - changedStart);
+            }
+
+            oldEnd = snake[0];
+            newEnd = snake[1];
+        }
+    }
+
+    /**
+     * Removes the old rows from start to end, runs of rows which did not move are removed together.
+     * A moved row whose insertion was not reached yet stays in place until it is.
+     */
+    private void dispatchRemovals(UCListState.Listener listener, ArrayList<PostponedMove> postponed,
+                                  int start, int end) {
+        int runEnd = end;
+        for (int position = end - 1; position >= start; position--) {
+            int movedTo = mMovedTo == null ? INVALID : mMovedTo[position];
+            if (movedTo == INVALID) {
+                shift(postponed, -1);
+                continue;
+            }
+            if (runEnd > position + 1) {
+                listener.onRemoved(position + 1, runEnd - position - 1);
+            }
+            runEnd = position;
+
+            PostponedMove insertion = takePostponed(postponed, movedTo, false);
+            if (insertion == null) {
+                postponed.add(new PostponedMove(position, position, true));
+                continue;
+            }
+            listener.onMoved(position, insertion.currentPosition - 1);
+            if (!mCallback.areContentsTheSame(position, movedTo)) {
+                listener.onChanged(insertion.currentPosition - 1, 1);
+            }
+        }
+        if (runEnd > start) {
+            listener.onRemoved(start, runEnd - start);
+        }
+    }
+
+    /**
+     * Inserts the new rows from newStart to newEnd at position, runs of rows which did not move are
+     * inserted together. A moved row whose removal was not reached yet leaves a gap until it is.
+     */
+    private void dispatchInsertions(UCListState.Listener listener, ArrayList<PostponedMove> postponed,
+                                    int position, int newStart, int newEnd) {
+        int count = 0;
+        for (int newPosition = newEnd - 1; newPosition >= newStart; newPosition--) {
+            int movedFrom = mMovedFrom == null ? INVALID : mMovedFrom[newPosition];
+            if (movedFrom == INVALID) {
+                shift(postponed, 1);
+                count++;
+                continue;
+            }
+            if (count > 0) {
+                listener.onInserted(position, count);
+                count = 0;
+            }
+
+            PostponedMove removal = takePostponed(postponed, movedFrom, true);
+            if (removal == null) {
+                postponed.add(new PostponedMove(newPosition, position, false));
+                continue;
+            }
+            listener.onMoved(removal.currentPosition, position);
+            if (!mCallback.areContentsTheSame(movedFrom, newPosition)) {
+                listener.onChanged(position, 1);
+            }
+        }
+        if (count > 0) {
+            listener.onInserted(position, count);
+        }
+    }
+
+    private static void shift(ArrayList<PostponedMove> postponed, int delta) {
+        for (int i = 0; i < postponed.size(); i++) {
+            postponed.get(i).currentPosition += delta;
+        }
+    }
+
+    /**
+     * Takes the postponed half of a move, the ones postponed after it lie between both ends of
+     * the move and shift by one.
+     */
+    private static PostponedMove takePostponed(ArrayList<PostponedMove> postponed, int listPosition,
+                                               boolean removal) {
+        for (int i = postponed.size() - 1; i >= 0; i--) {
+            PostponedMove move = postponed.get(i);
+            if (move.listPosition == listPosition && move.removal == removal) {
+                postponed.remove(i);
+                for (int j = i; j < postponed.size(); j++) {
+                    postponed.get(j).currentPosition += removal ? 1 : -1;
+                }
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removal or insertion of a moved row reached before the other half of the move.
+     */
+    private static final class PostponedMove {
+        // position in the old rows for a removal, in the new rows for an insertion
+        final int listPosition;
+        // position of the row or of the gap in the rows reported so far
+        int currentPosition;
+        final boolean removal;
+
+        PostponedMove(int listPosition, int currentPosition, boolean removal) {
+            this.listPosition = listPosition;
+            this.currentPosition = currentPosition;
+            this.removal = removal;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows shown by UCPaginatedList with a UCGroupHeader before every run of rows with the same group key.
+ * 1. Rows appended after the source rows, e.g. a new page, are grouped on their own and continue the last
+ *    group if they start with its key, rows inserted at the top merge with the first group the same way
+ * 2. Rows changed in place keep their headers if their keys did not change
+ * 3. Any other change groups all rows again and reports the difference to the previous rows,
+ *    rows which did not move are not notified
+ * Placeholder rows continue the group before them. Not thread safe, UCPaginatedList uses it on the main thread.
+ */
+final class UCListGrouping implements UCListState.Listener {
+
+    private final IUCGroupKeyExtractor mKeyExtractor;
+    private final UCListState.Listener mListener;
+    private List<Object> mSource;
+    private int mSourceSize;
+    private final ArrayList<Object> mRows = new ArrayList<>();
+    private ArrayList<UCGroupHeader> mHeaders = new ArrayList<>();
+    // source position of the first row of each group
+    private int[] mStarts = new int[16];
+    // grid row of the header of each group, valid while mGridSpanCount is not 0
+    private int[] mGridRows;
+    private int mGridSpanCount;
+
+    UCListGrouping(IUCGroupKeyExtractor keyExtractor, List<Object> source, UCListState.Listener listener) {
+        mKeyExtractor = keyExtractor;
+        mListener = listener;
+        setSource(source);
+    }
+
+    /**
+     * Rows to be shown, the source rows with headers.
+     */
+    ArrayList<Object> getRows() {
+        return mRows;
+    }
+
+    /**
+     * Groups source without reporting changes, e.g. when it holds the rows shown before.
+     */
+    void setSource(List<Object> source) {
+        mSource = source;
+        mSourceSize = source.size();
+        group(source);
+    }
+
+    int getGroupCount() {
+        return mHeaders.size();
+    }
+
+    UCGroupHeader getHeader(int group) {
+        return mHeaders.get(group);
+    }
+
+    /**
+     * Position of the header of group in the shown rows.
+     */
+    int getHeaderPosition(int group) {
+        return mStarts[group] + group;
+    }
+
+    /**
+     * Group the shown row at position belongs to, -1 before the first header.
+     */
+    int indexOfGroupAt(int position) {
+        int low = 0;
+        int high = mHeaders.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getHeaderPosition(mid) <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Row of the shown row at position in a grid of spanCount columns in which headers take a whole row,
+     * as GridLayoutManager.SpanSizeLookup.getSpanGroupIndex would count it.
+     * The rows of the headers are counted once after the groups change.
+     */
+    int getGridRow(int position, int spanCount) {
+        int group = indexOfGroupAt(position);
+        if (group == -1) {
+            return position / spanCount;
+        }
+        int headerPosition = getHeaderPosition(group);
+        int headerRow = getGridRows(spanCount)[group];
+        return position == headerPosition ? headerRow : headerRow + 1 + (position - headerPosition - 1) / spanCount;
+    }
+
+    /**
+     * Column of the shown row at position in a grid of spanCount columns in which headers take a whole row.
+     */
+    int getGridSpanIndex(int position, int spanCount) {
+        int group = indexOfGroupAt(position);
+        if (group == -1) {
+            return position % spanCount;
+        }
+        int headerPosition = getHeaderPosition(group);
+        return position == headerPosition ? 0 : (position - headerPosition - 1) % spanCount;
+    }
+
+    private int[] getGridRows(int spanCount) {
+        if (mGridSpanCount == spanCount) {
+            return mGridRows;
+        }
+        int groupCount = mHeaders.size();
+        if (mGridRows == null || mGridRows.length < groupCount) {
+            mGridRows = new int[mStarts.length];
+        }
+        // placeholders before the first header fill rows of their own
+        int row = groupCount == 0 ? 0 : (getHeaderPosition(0) + spanCount - 1) / spanCount;
+        for (int group = 0; group < groupCount; group++) {
+            mGridRows[group] = row;
+            int end = group + 1 < groupCount ? getHeaderPosition(group + 1) : mRows.size();
+            row += 1 + (end - getHeaderPosition(group) - 1 + spanCount - 1) / spanCount;
+        }
+        mGridSpanCount = spanCount;
+        return mGridRows;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (mSourceSize + count != mSource.size()) {
+            regroup();
+        } else if (position == mSourceSize) {
+            append(count);
+        } else if (position == 0) {
+            prepend(count);
+        } else {
+            regroup();
+        }
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        regroup();
+    }
+
+    @Override
+    public void onChanged(int position, int count) {
+        if (mSourceSize != mSource.size()) {
+            regroup();
+            return;
+        }
+        for (int i = position; i < position + count; i++) {
+            int rowPosition = rowPosition(i);
+            if (!sameGroup(mRows.get(rowPosition), mSource.get(i))) {
+                regroup();
+                return;
+            }
+        }
+
+        int changedStart = -1;
+        int changedCount = 0;
+        for (int i = position; i < position + count; i++) {
+            int rowPosition = rowPosition(i);
+            mRows.set(rowPosition, mSource.get(i));
+            if (changedCount > 0 && changedStart + changedCount != rowPosition) {
+                // a header splits the range
+                mListener.onChanged(changedStart, changedCount);
+                changedCount = 0;
+            }
+            if (changedCount == 0) {
+                changedStart = rowPosition;
+            }
+            changedCount++;
+        }
+        if (changedCount > 0) {
+            mListener.onChanged(changedStart, changedCount);
+        }
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        regroup();
+    }
+
+    @Override
+    public void onReset() {
+        regroup();
+    }
+
+    private void append(int count) {
+        mGridSpanCount = 0;
+        int rowsStart = mRows.size();
+        int sourceStart = mSourceSize;
+        Object key = mHeaders.isEmpty() ? null : mHeaders.get(mHeaders.size() - 1).getKey();
+        for (int i = sourceStart; i < sourceStart + count; i++) {
+            Object row = mSource.get(i);
+            if (row != UCPlaceholder.INSTANCE) {
+                Object rowKey = mKeyExtractor.getGroupKey(row);
+                if (mHeaders.isEmpty() || !equal(key, rowKey)) {
+                    addGroup(mHeaders.size(), i, rowKey);
+                    mRows.add(mHeaders.get(mHeaders.size() - 1));
+                }
+                key = rowKey;
+            }
+            mRows.add(row);
+        }
+        mSourceSize += count;
+        if (mRows.size() > rowsStart) {
+            mListener.onInserted(rowsStart, mRows.size() - rowsStart);
+        }
+    }
+
+    private void prepend(int count) {
+        mGridSpanCount = 0;
+        ArrayList<Object> rows = new ArrayList<>();
+        ArrayList<UCGroupHeader> headers = new ArrayList<>();
+        int[] starts = new int[Math.max(16, mHeaders.size() + count)];
+        Object key = null;
+        for (int i = 0; i < count; i++) {
+            Object row = mSource.get(i);
+            if (row != UCPlaceholder.INSTANCE) {
+                Object rowKey = mKeyExtractor.getGroupKey(row);
+                if (headers.isEmpty() || !equal(key, rowKey)) {
+                    starts[headers.size()] = i;
+                    headers.add(new UCGroupHeader(rowKey));
+                    rows.add(headers.get(headers.size() - 1));
+                }
+                key = rowKey;
+            }
+            rows.add(mSource.get(i));
+        }
+
+        // the first group continues the prepended rows, its header moves up
+        if (!headers.isEmpty() && !mHeaders.isEmpty() && equal(key, mHeaders.get(0).getKey())) {
+            int headerPosition = getHeaderPosition(0);
+            mRows.remove(headerPosition);
+            mHeaders.remove(0);
+            System.arraycopy(mStarts, 1, mStarts, 0, mHeaders.size());
+            mListener.onRemoved(headerPosition, 1);
+        }
+        for (int group = 0; group < mHeaders.size(); group++) {
+            starts[headers.size() + group] = mStarts[group] + count;
+        }
+        headers.addAll(mHeaders);
+        mHeaders = headers;
+        mStarts = starts;
+        mRows.addAll(0, rows);
+        mSourceSize += count;
+        if (!rows.isEmpty()) {
+            mListener.onInserted(0, rows.size());
+        }
+    }
+
+    private void regroup() {
+        ArrayList<Object> oldRows = new ArrayList<>(mRows);
+        mSourceSize = mSource.size();
+        group(mSource);
+        UCListDiff.calculate(new UCDiffCallback(oldRows, mRows, null, null)).dispatchUpdatesTo(mListener);
+    }
+
+    private void group(List<Object> source) {
+        mGridSpanCount = 0;
+        mRows.clear();
+        mHeaders = new ArrayList<>();
+        Object key = null;
+        for (int i = 0; i < source.size(); i++) {
+            Object row = source.get(i);
+            if (row != UCPlaceholder.INSTANCE) {
+                Object rowKey = mKeyExtractor.getGroupKey(row);
+                if (mHeaders.isEmpty() || !equal(key, rowKey)) {
+                    addGroup(mHeaders.size(), i, rowKey);
+                    mRows.add(mHeaders.get(mHeaders.size() - 1));
+                }
+                key = rowKey;
+            }
+            mRows.add(row);
+        }
+    }
+
+    private void addGroup(int group, int start, Object key) {
+        if (group == mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, mStarts.length * 2);
+        }
+        mStarts[group] = start;
+        mHeaders.add(new UCGroupHeader(key));
+    }
+
+    /**
+     * Position in the shown rows of the source row at sourcePosition.
+     */
+    private int rowPosition(int sourcePosition) {
+        // number of groups starting at or before sourcePosition
+        int low = 0;
+        int high = mHeaders.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mStarts[mid] <= sourcePosition) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return sourcePosition + low;
+    }
+
+    private boolean sameGroup(Object oldRow, Object newRow) {
+        if (oldRow == UCPlaceholder.INSTANCE || newRow == UCPlaceholder.INSTANCE) {
+            return oldRow == newRow;
+        }
+        return equal(mKeyExtractor.getGroupKey(oldRow), mKeyExtractor.getGroupKey(newRow));
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
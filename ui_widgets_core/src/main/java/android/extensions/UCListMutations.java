@@ -0,0 +1,87 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Batch of row changes applied by UCPaginatedList.applyMutations in one pass over the rows,
+ * with coalesced adapter notifications and a single empty view check.
+ * 1. Updates and removals target rows as they are before the batch, a row both updated
+ *    and removed is removed, rows which are not found are skipped
+ * 2. Inserts and moves follow in the order they were added, their positions are in the list
+ *    as it is at that point
+ * Targets are found in O(1) with an IUCReferenceIdExtractor, otherwise in a single scan.
+ */
+public class UCListMutations {
+
+    static final int TYPE_UPDATE = 0;
+    static final int TYPE_REMOVE = 1;
+    static final int TYPE_INSERT = 2;
+    static final int TYPE_MOVE = 3;
+
+    static final class Mutation {
+        final int type;
+        final Object item; // target row, null if referenceId is set
+        final String referenceId;
+        final Object newItem;
+        final int position;
+
+        Mutation(int type, Object item, String referenceId, Object newItem, int position) {
+            this.type = type;
+            this.item = item;
+            this.referenceId = referenceId;
+            this.newItem = newItem;
+            this.position = position;
+        }
+    }
+
+    private final ArrayList<Mutation> mMutations = new ArrayList<>();
+
+    public UCListMutations addUpdate(Object oldItem, Object newItem) {
+        mMutations.add(new Mutation(TYPE_UPDATE, oldItem, null, newItem, UCListState.NO_POSITION));
+        return this;
+    }
+
+    public UCListMutations addUpdateByReferenceId(String referenceId, Object newItem) {
+        mMutations.add(new Mutation(TYPE_UPDATE, null, referenceId, newItem, UCListState.NO_POSITION));
+        return this;
+    }
+
+    public UCListMutations addRemove(Object item) {
+        mMutations.add(new Mutation(TYPE_REMOVE, item, null, null, UCListState.NO_POSITION));
+        return this;
+    }
+
+    public UCListMutations addRemoveByReferenceId(String referenceId) {
+        mMutations.add(new Mutation(TYPE_REMOVE, null, referenceId, null, UCListState.NO_POSITION));
+        return this;
+    }
+
+    /**
+     * position is clamped to the rows, inserted rows belong to the page they are inserted into.
+     */
+    public UCListMutations addInsert(int position, Object item) {
+        mMutations.add(new Mutation(TYPE_INSERT, null, null, item, position));
+        return this;
+    }
+
+    public UCListMutations addMoveByReferenceId(String referenceId, int toPosition) {
+        mMutations.add(new Mutation(TYPE_MOVE, null, referenceId, null, toPosition));
+        return this;
+    }
+
+    public int size() {
+        return mMutations.size();
+    }
+
+    public boolean isEmpty() {
+        return mMutations.isEmpty();
+    }
+
+    public void clear() {
+        mMutations.clear();
+    }
+
+    Mutation get(int index) {
+        return mMutations.get(index);
+    }
+}
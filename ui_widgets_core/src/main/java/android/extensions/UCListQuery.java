@@ -0,0 +1,34 @@
+package android.extensions;
+
+import java.util.Comparator;
+
+/**
+ * Filter and order of the rows shown by UCPaginatedList, set through UCPaginatedList.setQuery.
+ * 1. Rows are kept if filter accepts them, all rows if it is null
+ * 2. Kept rows are sorted with comparator, ties and a null comparator keep the loaded order
+ * 3. Placeholder rows are never shown
+ * Both are called off the main thread, possibly from several threads at once, and must only
+ * depend on the row.
+ */
+public final class UCListQuery {
+
+    private final IUCRowFilter mFilter;
+    private final Comparator<Object> mComparator;
+
+    public UCListQuery(IUCRowFilter filter, Comparator<Object> comparator) {
+        mFilter = filter;
+        mComparator = comparator;
+    }
+
+    public IUCRowFilter getFilter() {
+        return mFilter;
+    }
+
+    public Comparator<Object> getComparator() {
+        return mComparator;
+    }
+
+    boolean matches(Object row) {
+        return row != UCPlaceholder.INSTANCE && (mFilter == null || mFilter.accept(row));
+    }
+}
@@ -0,0 +1,123 @@
+package android.extensions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Rows and pagination state of UCPaginatedList persisted to a file.
+ * Written to a temporary file which replaces the old one, read through a memory mapped buffer.
+ * Layout: magic, format version, codec version, page number, no more data, row count, rows
+ */
+class UCListSnapshot {
+
+    private static final int MAGIC = 0x55435053; // UCPS
+    private static final int FORMAT_VERSION = 1;
+
+    final ArrayList<Object> rows;
+    final int pageNumber;
+    final boolean noMoreData;
+
+    UCListSnapshot(ArrayList<Object> rows, int pageNumber, boolean noMoreData) {
+        this.rows = rows;
+        this.pageNumber = pageNumber;
+        this.noMoreData = noMoreData;
+    }
+
+    void write(File file, IUCRowCodec codec) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tempFile);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(codec.getVersion());
+            out.writeInt(pageNumber);
+            out.writeBoolean(noMoreData);
+            out.writeInt(rows.size());
+            for (Object row : rows) {
+                codec.encode(row, out);
+            }
+            out.flush();
+            fileOut.getChannel().force(false);
+        } finally {
+            fileOut.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not replace snapshot " + file);
+        }
+    }
+
+    /**
+     * Returns null if there is no snapshot or it was written with another format or codec version.
+     * Throws IOException if the snapshot is corrupt, e.g. it holds fewer bytes than its row count.
+     */
+    static UCListSnapshot read(File file, IUCRowCodec codec) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION || buffer.getInt() != codec.getVersion()) {
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+            int pageNumber = in.readInt();
+            boolean noMoreData = in.readBoolean();
+            int rowCount = in.readInt();
+            if (rowCount < 0 || rowCount > buffer.remaining()) {
+                // every row takes at least one byte, a corrupt count would allocate a huge list
+                throw new IOException("Corrupt snapshot " + file + ", " + rowCount + " rows in "
+                        + buffer.remaining() + " bytes");
+            }
+            ArrayList<Object> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(codec.decode(in));
+            }
+            return new UCListSnapshot(rows, pageNumber, noMoreData);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
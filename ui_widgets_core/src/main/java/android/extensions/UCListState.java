@@ -0,0 +1,612 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Rows of UCPaginatedList and the state derived from them, free of Android classes so it
+ * can be run and benchmarked on the JVM.
+ * 1. Every change is reported to the Listener, UCPaginatedList forwards it to its adapter
+ * 2. Rows are found by reference id through UCReferenceIndex if there is an IUCReferenceIdExtractor,
+ *    otherwise by a scan with IUCDatasourceComparison
+ * 3. Positions of the loaded pages are tracked in UCPageTable
+ * Not thread safe, UCPaginatedList uses it on the main thread only.
+ */
+public class UCListState {
+
+    public static final int NO_POSITION = -1;
+
+    public interface Listener {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        /**
+         * Rows changed in a way which can not be described by the other calls.
+         */
+        void onReset();
+    }
+
+    private final ArrayList<Object> mData = new ArrayList<>();
+    private final UCPageTable mPageTable = new UCPageTable();
+    private final Listener mListener;
+    private IUCDatasourceComparison mComparison;
+    private IUCReferenceIdExtractor mReferenceIdExtractor;
+    private UCReferenceIndex mReferenceIndex;
+    private boolean mDeduplicating;
+    private int mVersion;
+
+    public UCListState(Listener listener) {
+        mListener = listener;
+    }
+
+    public void setComparison(IUCDatasourceComparison comparison) {
+        mComparison = comparison;
+    }
+
+    /**
+     * Indexes rows by reference id, making lookups by reference id O(1).
+     */
+    public void setReferenceIdExtractor(IUCReferenceIdExtractor referenceIdExtractor) {
+        mReferenceIdExtractor = referenceIdExtractor;
+        if (referenceIdExtractor == null) {
+            mReferenceIndex = null;
+        } else {
+            mReferenceIndex = new UCReferenceIndex(referenceIdExtractor);
+            mReferenceIndex.setData(mData);
+        }
+    }
+
+    public IUCReferenceIdExtractor getReferenceIdExtractor() {
+        return mReferenceIdExtractor;
+    }
+
+    /**
+     * Drops rows of appended and prepended pages whose reference id is already in the list,
+     * e.g. rows shifted to the next page of a live feed. Needs an IUCReferenceIdExtractor.
+     */
+    public void setDeduplicating(boolean deduplicating) {
+        mDeduplicating = deduplicating;
+    }
+
+    /**
+     * Live list of rows, must not be modified directly.
+     */
+    public ArrayList<Object> getRows() {
+        return mData;
+    }
+
+    public int size() {
+        return mData.size();
+    }
+
+    public boolean isEmpty() {
+        return mData.isEmpty();
+    }
+
+    public Object get(int position) {
+        return mData.get(position);
+    }
+
+    /**
+     * Changes on every modification of the rows, e.g. to detect changes while a diff is calculated.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    UCPageTable getPageTable() {
+        return mPageTable;
+    }
+
+    /**
+     * Appends rows of page after all rows, to the last page if it is the same one,
+     * e.g. a page streamed in several parts.
+     */
+    public void appendPage(int page, List<Object> rows) {
+        rows = deduplicate(rows);
+        int positionStart = mData.size();
+        mData.addAll(rows);
+        UCPageTable.Page last = mPageTable.size() == 0 ? null : mPageTable.get(mPageTable.size() - 1);
+        if (last != null && last.page == page && !last.evicted && !last.previous
+                && last.end() == positionStart) {
+            last.count += rows.size();
+        } else {
+            mPageTable.append(page, positionStart, rows.size());
+        }
+        if (mReferenceIndex != null) {
+            mReferenceIndex.onInserted(positionStart, rows.size());
+        }
+        mVersion++;
+        if (!rows.isEmpty()) {
+            mListener.onInserted(positionStart, rows.size());
+        }
+    }
+
+    /**
+     * Inserts rows of a page loaded before the first one above all rows.
+     */
+    public void prependPage(int page, List<Object> rows) {
+        rows = deduplicate(rows);
+        mData.addAll(0, rows);
+        mPageTable.prepend(page, rows.size());
+        if (mReferenceIndex != null) {
+            mReferenceIndex.onInserted(0, rows.size());
+        }
+        mVersion++;
+        if (!rows.isEmpty()) {
+            mListener.onInserted(0, rows.size());
+        }
+    }
+
+    private List<Object> deduplicate(List<Object> rows) {
+        if (!mDeduplicating || mReferenceIndex == null) {
+            return rows;
+        }
+        List<Object> distinct = null;
+        HashSet<String> pageIds = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Object row = rows.get(i);
+            String referenceId = mReferenceIdExtractor.getReferenceId(row);
+            boolean duplicate = referenceId != null
+                    && (!pageIds.add(referenceId) || mReferenceIndex.indexOf(referenceId) != NO_POSITION);
+            if (duplicate && distinct == null) {
+                // copied only once the first duplicate is found
+                distinct = new ArrayList<>(rows.subList(0, i));
+            } else if (!duplicate && distinct != null) {
+                distinct.add(row);
+            }
+        }
+        return distinct == null ? rows : distinct;
+    }
+
+    /**
+     * Replaces all rows without diffing, reported as removal of the old rows and insertion of the new.
+     * Pages are not tracked for newRows.
+     */
+    public void setRows(List<Object> newRows) {
+        int oldSize = mData.size();
+        mData.clear();
+        mData.addAll(newRows);
+        mPageTable.clear();
+        if (mReferenceIndex != null) {
+            mReferenceIndex.invalidate();
+        }
+        mVersion++;
+        if (oldSize > 0) {
+            mListener.onRemoved(0, oldSize);
+        }
+        if (!newRows.isEmpty()) {
+            mListener.onInserted(0, newRows.size());
+        }
+    }
+
+    /**
+     * Replaces all rows reporting only the rows which changed. Pages are not tracked for newRows.
+     */
+    public void replaceRows(List<Object> newRows) {
+        applyDiff(newRows, calculateDiff(new ArrayList<>(mData), newRows), mVersion);
+    }
+
+    /**
+     * Diff from oldRows to newRows, may be called on any thread if neither list is modified meanwhile.
+     */
+    UCListDiff calculateDiff(List<Object> oldRows, List<Object> newRows) {
+        IUCDatasourceDiffComparison diffComparison = null;
+        if (mComparison instanceof IUCDatasourceDiffComparison) {
+            diffComparison = (IUCDatasourceDiffComparison) mComparison;
+        }
+        return UCListDiff.calculate(new UCDiffCallback(oldRows, newRows, diffComparison,
+                mReferenceIdExtractor));
+    }
+
+    /**
+     * Replaces all rows with newRows, diff is reported if the rows did not change since version.
+     */
+    void applyDiff(List<Object> newRows, UCListDiff diff, int version) {
+        boolean stale = version != mVersion;
+        mData.clear();
+        mData.addAll(newRows);
+        mPageTable.clear();
+        if (mReferenceIndex != null) {
+            mReferenceIndex.invalidate();
+        }
+        mVersion++;
+        if (stale) {
+            mListener.onReset();
+        } else {
+            diff.dispatchUpdatesTo(mListener);
+        }
+    }
+
+    /**
+     * Replaces the rows of page with rows, if changedOnly rows which are equal are kept.
+     */
+    void replacePageRows(UCPageTable.Page page, List<Object> rows, boolean changedOnly) {
+        int replacedCount = Math.min(page.count, rows.size());
+        for (int i = 0; i < replacedCount; i++) {
+            int position = page.start + i;
+            Object newItem = rows.get(i);
+            Object oldItem = mData.get(position);
+            if (changedOnly && (oldItem == newItem || (oldItem != null && oldItem.equals(newItem)))) {
+                continue;
+            }
+            mData.set(position, newItem);
+            if (mReferenceIndex != null) {
+                mReferenceIndex.onChanged(position, oldItem, newItem);
+            }
+            if (changedOnly) {
+                mListener.onChanged(position, 1);
+            }
+        }
+        if (!changedOnly && replacedCount > 0) {
+            mListener.onChanged(page.start, replacedCount);
+        }
+
+        if (rows.size() > page.count) {
+            // page grew since it was loaded
+            int positionStart = page.end();
+            int itemCount = rows.size() - page.count;
+            mData.addAll(positionStart, rows.subList(page.count, rows.size()));
+            if (mReferenceIndex != null) {
+                mReferenceIndex.onInserted(positionStart, itemCount);
+            }
+            mListener.onInserted(positionStart, itemCount);
+        } else if (rows.size() < page.count) {
+            int positionStart = page.start + rows.size();
+            int itemCount = page.count - rows.size();
+            for (int i = itemCount - 1; i >= 0; i--) {
+                Object removed = mData.remove(positionStart + i);
+                if (mReferenceIndex != null) {
+                    mReferenceIndex.onRemoved(positionStart + i, removed);
+                }
+            }
+            mListener.onRemoved(positionStart, itemCount);
+        }
+
+        mPageTable.resize(page, rows.size());
+        mVersion++;
+    }
+
+    /**
+     * Replaces the rows of page with placeholders.
+     */
+    void evictPage(UCPageTable.Page page) {
+        if (page.evicted || page.count == 0) {
+            return;
+        }
+        for (int position = page.start; position < page.end(); position++) {
+            Object evicted = mData.set(position, UCPlaceholder.INSTANCE);
+            if (mReferenceIndex != null) {
+                mReferenceIndex.onChanged(position, evicted, UCPlaceholder.INSTANCE);
+            }
+        }
+        page.evicted = true;
+        mVersion++;
+        mListener.onChanged(page.start, page.count);
+    }
+
+    /**
+     * Pads the rows with evicted pages of pageSize placeholders up to totalCount rows, e.g. pages of
+     * a datasource which knows its total count that are not loaded yet. Trailing evicted pages after
+     * totalCount are removed. Nothing is done if the rows do not end with a page or pageSize is not
+     * positive.
+     */
+    void padToCount(int totalCount, int pageSize) {
+        int size = mData.size();
+        UCPageTable.Page last = mPageTable.size() == 0 ? null : mPageTable.get(mPageTable.size() - 1);
+        if (last == null || last.end() != size || size == totalCount || pageSize <= 0) {
+            return;
+        }
+
+        if (size < totalCount) {
+            // placeholders share one instance, a page not loaded costs a reference per row
+            mData.addAll(Collections.nCopies(totalCount - size, UCPlaceholder.INSTANCE));
+            mPageTable.appendEvicted(last.page + 1, size, totalCount - size, pageSize);
+            if (mReferenceIndex != null) {
+                mReferenceIndex.onInserted(size, totalCount - size);
+            }
+            mVersion++;
+            mListener.onInserted(size, totalCount - size);
+            return;
+        }
+
+        int removeFrom = size;
+        while (mPageTable.size() > 0 && removeFrom > totalCount) {
+            last = mPageTable.get(mPageTable.size() - 1);
+            if (!last.evicted) {
+                break;
+            }
+            if (last.start >= totalCount) {
+                removeFrom = last.start;
+                mPageTable.removeLast();
+            } else {
+                removeFrom = totalCount;
+                last.count = totalCount - last.start;
+            }
+        }
+        if (removeFrom == size) {
+            return;
+        }
+        for (int position = size - 1; position >= removeFrom; position--) {
+            Object removed = mData.remove(position);
+            if (mReferenceIndex != null) {
+                mReferenceIndex.onRemoved(position, removed);
+            }
+        }
+        mVersion++;
+        mListener.onRemoved(removeFrom, size - removeFrom);
+    }
+
+    public int indexOf(Object row) {
+        if (mReferenceIndex != null) {
+            return mReferenceIndex.indexOf(row);
+        }
+        return mData.indexOf(row);
+    }
+
+    public int indexOfReferenceId(String referenceId) {
+        if (mData.isEmpty()) {
+            return NO_POSITION;
+        }
+
+        if (mReferenceIndex != null) {
+            return mReferenceIndex.indexOf(referenceId);
+        }
+
+        if (mComparison != null) {
+            for (int i = 0; i < mData.size(); i++) {
+                Object o = mData.get(i);
+                if (o != UCPlaceholder.INSTANCE && mComparison.hasReferenceId(o, referenceId)) {
+                    return i;
+                }
+            }
+        }
+
+        return NO_POSITION;
+    }
+
+    public boolean removeAt(int position) {
+        if (position == NO_POSITION) {
+            return false;
+        }
+        Object removed = mData.remove(position);
+        if (mReferenceIndex != null) {
+            mReferenceIndex.onRemoved(position, removed);
+        }
+        mPageTable.onRemoved(position);
+        mVersion++;
+        mListener.onRemoved(position, 1);
+        return true;
+    }
+
+    public boolean updateAt(int position, Object newRow) {
+        if (position == NO_POSITION) {
+            return false;
+        }
+        Object oldRow = mData.set(position, newRow);
+        if (mReferenceIndex != null) {
+            mReferenceIndex.onChanged(position, oldRow, newRow);
+        }
+        mVersion++;
+        mListener.onChanged(position, 1);
+        return true;
+    }
+
+    /**
+     * Applies mutations in one pass over the rows, see UCListMutations.
+     * Returns the number of mutations applied, removals of the same row are counted once.
+     */
+    public int apply(UCListMutations mutations) {
+        int size = mData.size();
+        int[] targets = resolveTargets(mutations);
+        int applied = 0;
+
+        boolean[] removed = null;
+        for (int i = 0; i < mutations.size(); i++) {
+            if (mutations.get(i).type == UCListMutations.TYPE_REMOVE && targets[i] != NO_POSITION) {
+                if (removed == null) {
+                    removed = new boolean[size];
+                }
+                // removals of the same row count once
+                if (!removed[targets[i]]) {
+                    removed[targets[i]] = true;
+                    applied++;
+                }
+            }
+        }
+
+        boolean[] changed = null;
+        for (int i = 0; i < mutations.size(); i++) {
+            UCListMutations.Mutation mutation = mutations.get(i);
+            int position = targets[i];
+            if (mutation.type != UCListMutations.TYPE_UPDATE || position == NO_POSITION
+                    || (removed != null && removed[position])) {
+                continue;
+            }
+            Object oldItem = mData.set(position, mutation.newItem);
+            if (mReferenceIndex != null) {
+                mReferenceIndex.onChanged(position, oldItem, mutation.newItem);
+            }
+            if (changed == null) {
+                changed = new boolean[size];
+            }
+            changed[position] = true;
+            applied++;
+        }
+
+        if (removed != null) {
+            size = removeAll(removed, changed);
+        }
+        if (changed != null) {
+            dispatchRanges(changed, size);
+        }
+
+        int insertStart = NO_POSITION;
+        int insertCount = 0;
+        for (int i = 0; i < mutations.size(); i++) {
+            UCListMutations.Mutation mutation = mutations.get(i);
+            if (mutation.type == UCListMutations.TYPE_INSERT) {
+                int position = Math.max(0, Math.min(mutation.position, mData.size()));
+                insertRow(position, mutation.newItem);
+                if (insertCount > 0 && position == insertStart + insertCount) {
+                    insertCount++;
+                } else {
+                    if (insertCount > 0) {
+                        mListener.onInserted(insertStart, insertCount);
+                    }
+                    insertStart = position;
+                    insertCount = 1;
+                }
+                applied++;
+            } else if (mutation.type == UCListMutations.TYPE_MOVE) {
+                int fromPosition = indexOfReferenceId(mutation.referenceId);
+                if (fromPosition == NO_POSITION) {
+                    continue;
+                }
+                if (insertCount > 0) {
+                    mListener.onInserted(insertStart, insertCount);
+                    insertCount = 0;
+                }
+                int toPosition = Math.max(0, Math.min(mutation.position, mData.size() - 1));
+                Object item = removeRow(fromPosition);
+                insertRow(toPosition, item);
+                mListener.onMoved(fromPosition, toPosition);
+                applied++;
+            }
+        }
+        if (insertCount > 0) {
+            mListener.onInserted(insertStart, insertCount);
+        }
+
+        if (applied > 0) {
+            mVersion++;
+        }
+        return applied;
+    }
+
+    /**
+     * Positions of the rows targeted by updates and removals.
+     */
+    private int[] resolveTargets(UCListMutations mutations) {
+        int[] targets = new int[mutations.size()];
+        Arrays.fill(targets, NO_POSITION);
+        int pending = 0;
+        for (int i = 0; i < mutations.size(); i++) {
+            UCListMutations.Mutation mutation = mutations.get(i);
+            if (mutation.type != UCListMutations.TYPE_UPDATE && mutation.type != UCListMutations.TYPE_REMOVE) {
+                continue;
+            }
+            if (mReferenceIndex != null) {
+                targets[i] = mutation.referenceId != null
+                        ? mReferenceIndex.indexOf(mutation.referenceId) : mReferenceIndex.indexOf(mutation.item);
+            } else {
+                pending++;
+            }
+        }
+
+        // single scan, the first matching row wins as in indexOf
+        for (int position = 0; position < mData.size() && pending > 0; position++) {
+            Object row = mData.get(position);
+            if (row == UCPlaceholder.INSTANCE) {
+                continue;
+            }
+            for (int i = 0; i < mutations.size(); i++) {
+                UCListMutations.Mutation mutation = mutations.get(i);
+                if (targets[i] != NO_POSITION || (mutation.type != UCListMutations.TYPE_UPDATE
+                        && mutation.type != UCListMutations.TYPE_REMOVE)) {
+                    continue;
+                }
+                boolean matches = mutation.referenceId != null
+                        ? mComparison != null && mComparison.hasReferenceId(row, mutation.referenceId)
+                        : row == mutation.item || (row != null && row.equals(mutation.item));
+                if (matches) {
+                    targets[i] = position;
+                    pending--;
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Removes the flagged rows compacting the list once, changed flags are moved along.
+     * Returns the new size.
+     */
+    private int removeAll(boolean[] removed, boolean[] changed) {
+        int size = mData.size();
+        for (int position = size - 1; position >= 0; position--) {
+            if (removed[position]) {
+                if (mReferenceIndex != null) {
+                    mReferenceIndex.onRemoved(position, mData.get(position));
+                }
+                mPageTable.onRemoved(position);
+            }
+        }
+
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            if (removed[read]) {
+                continue;
+            }
+            if (write != read) {
+                mData.set(write, mData.get(read));
+                if (changed != null) {
+                    changed[write] = changed[read];
+                }
+            }
+            write++;
+        }
+        mData.subList(write, size).clear();
+
+        // backwards, so the positions of the earlier ranges are still valid
+        int end = size;
+        for (int position = size - 1; position >= -1; position--) {
+            if (position >= 0 && removed[position]) {
+                continue;
+            }
+            if (end - position - 1 > 0) {
+                mListener.onRemoved(position + 1, end - position - 1);
+            }
+            end = position;
+        }
+        return write;
+    }
+
+    private void dispatchRanges(boolean[] changed, int size) {
+        int start = NO_POSITION;
+        for (int position = 0; position <= size; position++) {
+            boolean isChanged = position < size && changed[position];
+            if (isChanged && start == NO_POSITION) {
+                start = position;
+            } else if (!isChanged && start != NO_POSITION) {
+                mListener.onChanged(start, position - start);
+                start = NO_POSITION;
+            }
+        }
+    }
+
+    private void insertRow(int position, Object item) {
+        mData.add(position, item);
+        if (mReferenceIndex != null) {
+            mReferenceIndex.onInserted(position, 1);
+        }
+        mPageTable.onInserted(position);
+    }
+
+    private Object removeRow(int position) {
+        Object item = mData.remove(position);
+        if (mReferenceIndex != null) {
+            mReferenceIndex.onRemoved(position, item);
+        }
+        mPageTable.onRemoved(position);
+        return item;
+    }
+}
@@ -0,0 +1,148 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single writer model of the rows of UCPaginatedList:
+ * 1. Any thread submits mutations to a lock-free queue, without touching the rows
+ * 2. The writer thread, the main thread for UCPaginatedList, applies them in submission order and is
+ *    the only thread changing the rows
+ * 3. The writer holds a lock while it changes the rows, from beginChange or drain until the end of the
+ *    drain scheduled after it
+ * 4. The immutable snapshot of the rows is copied on the first read after a batch of changes, under the
+ *    lock, so readers on other threads never see a row list being changed and batches nobody reads
+ *    are not copied
+ */
+final class UCMutationQueue {
+
+    private final ConcurrentLinkedQueue<Runnable> mMutations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+    private final Executor mWriter;
+    private final List<Object> mRows;
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private final ReentrantLock mWriting = new ReentrantLock();
+    private volatile List<Object> mSnapshot = Collections.emptyList();
+    // rows changed since mSnapshot was copied
+    private volatile boolean mStale;
+    private boolean mChanged;
+    private boolean mDraining;
+
+    /**
+     * @param writer runs the drain on the writer thread
+     * @param rows   rows changed by the writer only
+     */
+    UCMutationQueue(Executor writer, List<Object> rows) {
+        mWriter = writer;
+        mRows = rows;
+    }
+
+    /**
+     * Queues mutation to be run on the writer thread after the ones submitted before, from any thread.
+     */
+    void submit(Runnable mutation) {
+        mMutations.offer(mutation);
+        scheduleDrain();
+    }
+
+    /**
+     * Called by the writer after changing the rows itself, the snapshot is copied again once it is done.
+     */
+    void onRowsChanged() {
+        if (!mChanged) {
+            mChanged = true;
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Runs the queued mutations before the writer changes the rows itself, on the writer thread.
+     * Readers of the snapshot wait until the drain scheduled after the change, so they never copy
+     * the rows in between two changes of the writer.
+     */
+    void beginChange() {
+        lock();
+        scheduleDrain();
+        runMutations();
+    }
+
+    /**
+     * Runs the queued mutations and publishes the rows if they changed, on the writer thread.
+     */
+    void drain() {
+        lock();
+        try {
+            runMutations();
+        } finally {
+            if (!mDraining) {
+                if (mChanged) {
+                    mChanged = false;
+                    mStale = true;
+                }
+                mWriting.unlock();
+            }
+        }
+    }
+
+    /**
+     * Rows as of the last batch of changes, may be read from any thread.
+     * Copied on the first read after a change, which waits for the writer to finish the batch.
+     * On the writer thread it holds the changes made so far.
+     */
+    List<Object> getSnapshot() {
+        if (!mStale) {
+            return mSnapshot;
+        }
+        mWriting.lock();
+        try {
+            if (mStale) {
+                mSnapshot = Collections.unmodifiableList(new ArrayList<>(mRows));
+                mStale = false;
+            }
+            return mSnapshot;
+        } finally {
+            mWriting.unlock();
+        }
+    }
+
+    private void lock() {
+        // held once, until the end of the outermost drain
+        if (!mWriting.isHeldByCurrentThread()) {
+            mWriting.lock();
+        }
+    }
+
+    private void runMutations() {
+        if (mDraining) {
+            // called by a mutation being run, the ones after it wait for it
+            return;
+        }
+        // cleared first, a mutation submitted while draining schedules another drain
+        mDrainScheduled.set(false);
+        mDraining = true;
+        try {
+            Runnable mutation;
+            while ((mutation = mMutations.poll()) != null) {
+                mutation.run();
+            }
+        } finally {
+            mDraining = false;
+        }
+    }
+
+    private void scheduleDrain() {
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mWriter.execute(mDrain);
+        }
+    }
+}
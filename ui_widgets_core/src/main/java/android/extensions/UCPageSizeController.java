@@ -0,0 +1,74 @@
+package android.extensions;
+
+/**
+ * Picks the number of rows UCPaginatedList requests per page from an IUCSizedPaginatedDatasource.
+ * 1. The first page covers one screen once the screen is known, the minimum before, so it paints quickly
+ * 2. While scrolling pages cover a screen plus the rows scrolled at the current velocity during
+ *    FETCHES_PER_PAGE fetches and parses, so fast scrolls and slow networks get larger pages and a
+ *    fling crosses few page boundaries, see UCScrollTraceReplay of the benchmark module
+ * 3. At rest pages cover IDLE_SCREENS screens
+ * Sizes are clamped to the range, rows are items for grids.
+ */
+class UCPageSizeController {
+
+    private static final float SMOOTHING = 0.3f;
+    private static final float IDLE_SCREENS = 2;
+    private static final float FETCHES_PER_PAGE = 8;
+    private static final long INITIAL_LATENCY_MS = 500;
+
+    private int mMinPageSize;
+    private int mMaxPageSize;
+    private float mLatencyMillis = INITIAL_LATENCY_MS;
+    private float mParseMillisPerRow;
+    private int mRowsPerScreen;
+    private float mRowsPerMilli;
+
+    UCPageSizeController(int minPageSize, int maxPageSize) {
+        setRange(minPageSize, maxPageSize);
+    }
+
+    void setRange(int minPageSize, int maxPageSize) {
+        mMinPageSize = Math.max(1, minPageSize);
+        mMaxPageSize = Math.max(mMinPageSize, maxPageSize);
+    }
+
+    /**
+     * @param rowsPerScreen rows visible at once
+     * @param rowsPerMilli  current scroll velocity towards the end of the list, 0 at rest or scrolling back
+     */
+    void onViewport(int rowsPerScreen, float rowsPerMilli) {
+        if (rowsPerScreen > 0) {
+            mRowsPerScreen = rowsPerScreen;
+        }
+        mRowsPerMilli = Math.max(0, rowsPerMilli);
+    }
+
+    /**
+     * Measured round trip and parse time of a fetched page.
+     */
+    void onPageLoaded(int rowCount, long fetchMillis, long parseMillis) {
+        mLatencyMillis += SMOOTHING * (fetchMillis - mLatencyMillis);
+        if (rowCount > 0) {
+            mParseMillisPerRow += SMOOTHING * ((float) parseMillis / rowCount - mParseMillisPerRow);
+        }
+    }
+
+    int getFirstPageSize() {
+        return clamp(mRowsPerScreen > 0 ? mRowsPerScreen : mMinPageSize);
+    }
+
+    int getPageSize() {
+        float rows = IDLE_SCREENS * mRowsPerScreen;
+        if (mRowsPerMilli > 0) {
+            // rows scrolled while a page of n rows arrives, v * (latency + parse * n), must be below n
+            float margin = 1 - mRowsPerMilli * mParseMillisPerRow;
+            rows = margin <= 0 ? mMaxPageSize : Math.max(rows,
+                    mRowsPerScreen + FETCHES_PER_PAGE * mRowsPerMilli * mLatencyMillis / margin);
+        }
+        return clamp((int) Math.ceil(rows));
+    }
+
+    private int clamp(int pageSize) {
+        return Math.max(mMinPageSize, Math.min(pageSize, mMaxPageSize));
+    }
+}
@@ -0,0 +1,142 @@
+package android.extensions;
+
+import java.util.ArrayList;
+
+/**
+ * Positions of the pages loaded into UCPaginatedList, ordered by position.
+ * Rows which do not belong to a page (e.g. set through overrideDataSource) are not tracked.
+ */
+class UCPageTable {
+
+    static final class Page {
+        final int page;
+        int start;
+        int count;
+        boolean evicted;
+        boolean previous; // loaded before the first page
+
+        Page(int page, int start, int count) {
+            this.page = page;
+            this.start = start;
+            this.count = count;
+        }
+
+        int end() {
+            return start + count;
+        }
+    }
+
+    private final ArrayList<Page> mPages = new ArrayList<>();
+
+    void clear() {
+        mPages.clear();
+    }
+
+    int size() {
+        return mPages.size();
+    }
+
+    Page get(int index) {
+        return mPages.get(index);
+    }
+
+    void append(int page, int start, int count) {
+        mPages.add(new Page(page, start, count));
+    }
+
+    /**
+     * Appends evicted pages firstPage, firstPage + 1, ... of pageSize rows covering count rows
+     * from start, the last one may be shorter.
+     */
+    void appendEvicted(int firstPage, int start, int count, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        for (int offset = 0; offset < count; offset += pageSize) {
+            Page page = new Page(firstPage++, start + offset, Math.min(pageSize, count - offset));
+            page.evicted = true;
+            mPages.add(page);
+        }
+    }
+
+    void removeLast() {
+        mPages.remove(mPages.size() - 1);
+    }
+
+    void prepend(int page, int count) {
+        for (int i = 0; i < mPages.size(); i++) {
+            mPages.get(i).start += count;
+        }
+        Page prepended = new Page(page, 0, count);
+        prepended.previous = true;
+        mPages.add(0, prepended);
+    }
+
+    Page find(int page) {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (mPages.get(i).page == page) {
+                return mPages.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns index of the page containing position or -1.
+     */
+    int indexOfPosition(int position) {
+        int low = 0;
+        int high = mPages.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Page page = mPages.get(mid);
+            if (position < page.start) {
+                high = mid - 1;
+            } else if (position >= page.end()) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    void onRemoved(int position) {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            Page page = mPages.get(i);
+            if (page.start > position) {
+                page.start--;
+            } else {
+                if (position < page.end()) {
+                    page.count--;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * A row inserted at a page boundary belongs to the later page.
+     */
+    void onInserted(int position) {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            Page page = mPages.get(i);
+            if (page.start > position) {
+                page.start++;
+            } else {
+                if (position <= page.end()) {
+                    page.count++;
+                }
+                return;
+            }
+        }
+    }
+
+    void resize(Page page, int count) {
+        int delta = count - page.count;
+        page.count = count;
+        for (int i = mPages.indexOf(page) + 1; i < mPages.size(); i++) {
+            mPages.get(i).start += delta;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package android.extensions;
+
+/**
+ * Row standing in for a row which is not loaded, e.g. of a page evicted from the loaded window.
+ * Never passed to IUCPaginatedAdapter.onBindViewHolder, see UCPaginatedList.isPlaceholder.
+ */
+final class UCPlaceholder {
+
+    static final UCPlaceholder INSTANCE = new UCPlaceholder();
+
+    private UCPlaceholder() {
+    }
+
+    @Override
+    public String toString() {
+        return "UCPlaceholder";
+    }
+}
@@ -0,0 +1,80 @@
+package android.extensions;
+
+/**
+ * Decides how many pages UCPaginatedList keeps in flight ahead of the viewport.
+ * The trigger distance is mItemsOffsetBeforeNextPage plus the rows the user is expected to
+ * scroll while a page is fetched, at the current scroll velocity.
+ */
+class UCPrefetchPolicy {
+
+    private static final float SMOOTHING = 0.3f;
+
+    // scroll events further apart than this start a new gesture
+    private static final long GESTURE_GAP_MS = 200;
+
+    private int mMaxPages = 1;
+    private float mRowsPerPage;
+    private float mVelocity; // px per ms
+    private long mLastScrollTime;
+
+    UCPrefetchPolicy(int initialRowsPerPage) {
+        mRowsPerPage = initialRowsPerPage;
+    }
+
+    void setMaxPages(int maxPages) {
+        mMaxPages = Math.max(1, maxPages);
+    }
+
+    int getMaxPages() {
+        return mMaxPages;
+    }
+
+    /**
+     * Smoothed scroll velocity in px per ms, negative towards the top.
+     */
+    float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * @param rowCount rows of the page, items divided by items per row for grids
+     */
+    void onPageApplied(float rowCount) {
+        if (rowCount > 0) {
+            mRowsPerPage += SMOOTHING * (rowCount - mRowsPerPage);
+        }
+    }
+
+    void onScrolled(int dy, long timeMs) {
+        long elapsed = timeMs - mLastScrollTime;
+        mLastScrollTime = timeMs;
+        if (elapsed <= 0) {
+            return;
+        }
+        if (elapsed > GESTURE_GAP_MS) {
+            mVelocity = 0;
+            return;
+        }
+        mVelocity += SMOOTHING * ((float) dy / elapsed - mVelocity);
+    }
+
+    /**
+     * @param rowsAhead      loaded rows below the last visible one
+     * @param rowsOffset     rows from the end at which the next page is needed anyway
+     * @param rowHeightPx    average height of a row, 0 if unknown
+     * @param fetchLatencyMs average time a page takes to arrive
+     * @return number of pages which should be in flight, 0 if none is needed yet
+     */
+    int pagesNeeded(int rowsAhead, int rowsOffset, float rowHeightPx, long fetchLatencyMs) {
+        float lookaheadRows = 0;
+        if (rowHeightPx > 0 && mVelocity > 0) {
+            lookaheadRows = mVelocity * fetchLatencyMs / rowHeightPx;
+        }
+        float rowsNeeded = rowsOffset + lookaheadRows;
+        if (rowsAhead > rowsNeeded) {
+            return 0;
+        }
+        int pages = (int) Math.ceil((rowsNeeded - rowsAhead) / Math.max(1f, mRowsPerPage));
+        return Math.max(1, Math.min(pages, mMaxPages));
+    }
+}
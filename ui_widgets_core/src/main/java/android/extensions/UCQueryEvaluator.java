@@ -0,0 +1,190 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates a UCListQuery over loaded rows, free of Android classes so it can be benchmarked on the JVM.
+ * 1. Lists of at least PARALLEL_THRESHOLD rows are split into chunks filtered and sorted on an executor,
+ *    the sorted chunks are merged afterwards
+ * 2. Rows appended to the loaded ones are evaluated on their own and merged into the previous result
+ * A null query keeps every row in the loaded order. May be called on any thread.
+ */
+final class UCQueryEvaluator {
+
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * New result of a query and the changes from the previous one.
+     */
+    static final class Update {
+        final ArrayList<Object> rows;
+        private final UCListDiff mDiff;
+        // runs of inserted rows as (position in rows, count), ascending, if mDiff is null
+        private final ArrayList<int[]> mInsertions;
+
+        private Update(ArrayList<Object> rows, UCListDiff diff, ArrayList<int[]> insertions) {
+            this.rows = rows;
+            mDiff = diff;
+            mInsertions = insertions;
+        }
+
+        void dispatchUpdatesTo(UCListState.Listener listener) {
+            if (mDiff != null) {
+                mDiff.dispatchUpdatesTo(listener);
+                return;
+            }
+            for (int i = 0; i < mInsertions.size(); i++) {
+                int[] insertion = mInsertions.get(i);
+                listener.onInserted(insertion[0], insertion[1]);
+            }
+        }
+    }
+
+    private UCQueryEvaluator() {
+    }
+
+    /**
+     * Rows matching query in query order.
+     *
+     * @param executor    runs chunks of large lists, null to evaluate on the calling thread only
+     * @param parallelism number of chunks large lists are split into
+     */
+    static ArrayList<Object> evaluate(UCListQuery query, List<Object> rows, ExecutorService executor,
+                                      int parallelism) {
+        if (executor == null || parallelism < 2 || rows.size() < PARALLEL_THRESHOLD) {
+            return evaluate(query, rows, 0, rows.size());
+        }
+
+        int chunkSize = (rows.size() + parallelism - 1) / parallelism;
+        ArrayList<Future<ArrayList<Object>>> futures = new ArrayList<>(parallelism - 1);
+        for (int start = chunkSize; start < rows.size(); start += chunkSize) {
+            futures.add(executor.submit(new Chunk(query, rows, start, Math.min(start + chunkSize, rows.size()))));
+        }
+        // the calling thread takes the first chunk
+        ArrayList<Object> result = evaluate(query, rows, 0, chunkSize);
+        Comparator<Object> comparator = query == null ? null : query.getComparator();
+        for (int i = 0; i < futures.size(); i++) {
+            ArrayList<Object> chunk = get(futures.get(i));
+            if (comparator == null) {
+                result.addAll(chunk);
+            } else {
+                result = merge(result, chunk, comparator, null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the rows appended after the ones current was evaluated from into current,
+     * without evaluating current again.
+     */
+    static Update append(UCListQuery query, List<Object> current, List<Object> appendedRows,
+                         ExecutorService executor, int parallelism) {
+        ArrayList<Object> added = evaluate(query, appendedRows, executor, parallelism);
+        ArrayList<int[]> insertions = new ArrayList<>();
+        ArrayList<Object> rows;
+        if (query == null || query.getComparator() == null) {
+            rows = new ArrayList<>(current.size() + added.size());
+            rows.addAll(current);
+            rows.addAll(added);
+            if (!added.isEmpty()) {
+                insertions.add(new int[]{current.size(), added.size()});
+            }
+        } else {
+            rows = merge(current, added, query.getComparator(), insertions);
+        }
+        return new Update(rows, null, insertions);
+    }
+
+    /**
+     * Evaluates query over all rows and diffs the result against current.
+     */
+    static Update replace(UCListState listState, UCListQuery query, List<Object> current, List<Object> rows,
+                          ExecutorService executor, int parallelism) {
+        ArrayList<Object> result = evaluate(query, rows, executor, parallelism);
+        return new Update(result, listState.calculateDiff(current, result), null);
+    }
+
+    private static ArrayList<Object> evaluate(UCListQuery query, List<Object> rows, int start, int end) {
+        ArrayList<Object> result = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            Object row = rows.get(i);
+            if (query == null || query.matches(row)) {
+                result.add(row);
+            }
+        }
+        if (query != null && query.getComparator() != null) {
+            // stable, so equal rows keep the loaded order
+            Collections.sort(result, query.getComparator());
+        }
+        return result;
+    }
+
+    /**
+     * Merges two sorted lists, rows of first go before equal rows of second.
+     * Positions of the rows of second are added to insertions if it is not null.
+     */
+    private static ArrayList<Object> merge(List<Object> first, List<Object> second, Comparator<Object> comparator,
+                                           ArrayList<int[]> insertions) {
+        ArrayList<Object> result = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        int[] run = null;
+        while (i < first.size() || j < second.size()) {
+            if (j < second.size() && (i == first.size() || comparator.compare(second.get(j), first.get(i)) < 0)) {
+                if (insertions != null) {
+                    if (run != null && run[0] + run[1] == result.size()) {
+                        run[1]++;
+                    } else {
+                        run = new int[]{result.size(), 1};
+                        insertions.add(run);
+                    }
+                }
+                result.add(second.get(j++));
+            } else {
+                result.add(first.get(i++));
+            }
+        }
+        return result;
+    }
+
+    private static ArrayList<Object> get(Future<ArrayList<Object>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class Chunk implements Callable<ArrayList<Object>> {
+        private final UCListQuery mQuery;
+        private final List<Object> mRows;
+        private final int mStart;
+        private final int mEnd;
+
+        Chunk(UCListQuery query, List<Object> rows, int start, int end) {
+            mQuery = query;
+            mRows = rows;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        public ArrayList<Object> call() {
+            return evaluate(mQuery, mRows, mStart, mEnd);
+        }
+    }
+}
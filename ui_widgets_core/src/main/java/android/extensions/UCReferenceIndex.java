@@ -0,0 +1,260 @@
+package android.extensions;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * referenceId to position index over rows of UCPaginatedList.
+ * 1. Appends are indexed eagerly
+ * 2. Removals keep the index, it stores slots instead of positions and a Fenwick tree of removed
+ *    slots turns a slot into the position of its row in O(log n)
+ * 3. Inserts in the middle shift positions, the rows after them are re-indexed lazily on the next lookup
+ * For duplicate reference ids the first position is kept, same as a linear scan.
+ */
+class UCReferenceIndex {
+    private final HashMap<String, Integer> mPositions = new HashMap<>(); // slot of the first row of each id
+    private final HashSet<String> mDuplicates = new HashSet<>(); // ids seen on more than one indexed row
+    private final IUCReferenceIdExtractor mExtractor;
+    private List<Object> mData;
+
+    // rows below this position are indexed
+    private int mIndexedCount;
+
+    // slot i is removed if it counts in mRemovedTree, null until the first removal
+    private int[] mRemovedTree;
+    private int mRemovedCount;
+
+    UCReferenceIndex(IUCReferenceIdExtractor extractor) {
+        mExtractor = extractor;
+    }
+
+    void setData(List<Object> data) {
+        mData = data;
+        invalidate();
+    }
+
+    void invalidate() {
+        mPositions.clear();
+        mDuplicates.clear();
+        mIndexedCount = 0;
+        mRemovedTree = null;
+        mRemovedCount = 0;
+    }
+
+    void onInserted(int positionStart, int itemCount) {
+        if (positionStart + itemCount != mData.size()) {
+            // rows after the insert moved, slots are positions again from here on
+            compact();
+            mIndexedCount = Math.min(mIndexedCount, positionStart);
+            return;
+        }
+        if (mRemovedTree != null) {
+            ensureCapacity(mData.size() + mRemovedCount);
+        }
+        if (positionStart == mIndexedCount) {
+            index(positionStart, mData.size());
+            mIndexedCount = mData.size();
+        }
+    }
+
+    void onRemoved(int position, Object removedItem) {
+        String referenceId = referenceIdOf(removedItem);
+        boolean removedEntry = removeEntry(referenceId, position);
+        markRemoved(position);
+        if (position < mIndexedCount) {
+            mIndexedCount--;
+            if (removedEntry && mDuplicates.contains(referenceId)) {
+                // a later duplicate has to be found again
+                mIndexedCount = Math.min(mIndexedCount, position);
+            }
+        }
+    }
+
+    void onChanged(int position, Object oldItem, Object newItem) {
+        String oldReferenceId = referenceIdOf(oldItem);
+        String newReferenceId = referenceIdOf(newItem);
+        if (oldReferenceId == null ? newReferenceId == null : oldReferenceId.equals(newReferenceId)) {
+            return;
+        }
+        if (removeEntry(oldReferenceId, position) && mDuplicates.contains(oldReferenceId)) {
+            // a later duplicate of the old id has to be found again
+            mIndexedCount = Math.min(mIndexedCount, position + 1);
+        }
+        if (newReferenceId != null && position < mIndexedCount) {
+            index(newReferenceId, position);
+        }
+    }
+
+    int indexOf(String referenceId) {
+        if (referenceId == null || mData == null) {
+            return -1;
+        }
+        ensureIndexed();
+        Integer slot = mPositions.get(referenceId);
+        if (slot == null) {
+            return -1;
+        }
+        int position = toPosition(slot);
+        if (!isAt(referenceId, position)) {
+            // stale entry of a row removed before it was indexed
+            mPositions.remove(referenceId);
+            return -1;
+        }
+        return position;
+    }
+
+    int indexOf(Object item) {
+        String referenceId = referenceIdOf(item);
+        if (referenceId == null) {
+            return mData.indexOf(item);
+        }
+        int position = indexOf(referenceId);
+        if (position == -1) {
+            return -1;
+        }
+        Object found = mData.get(position);
+        if (found == item || (found != null && found.equals(item))) {
+            return position;
+        }
+        // another row with the same reference id
+        return mData.indexOf(item);
+    }
+
+    private String referenceIdOf(Object item) {
+        if (item == UCPlaceholder.INSTANCE) {
+            return null;
+        }
+        return mExtractor.getReferenceId(item);
+    }
+
+    private boolean isAt(String referenceId, int position) {
+        return position >= 0 && position < mData.size() && referenceId.equals(referenceIdOf(mData.get(position)));
+    }
+
+    private boolean removeEntry(String referenceId, int position) {
+        if (referenceId == null) {
+            return false;
+        }
+        Integer indexed = mPositions.get(referenceId);
+        if (indexed != null && toPosition(indexed) == position) {
+            mPositions.remove(referenceId);
+            return true;
+        }
+        return false;
+    }
+
+    private void ensureIndexed() {
+        int size = mData.size();
+        if (mIndexedCount < size) {
+            index(mIndexedCount, size);
+        }
+        mIndexedCount = size;
+    }
+
+    private void index(int from, int to) {
+        for (int i = from; i < to; i++) {
+            String referenceId = referenceIdOf(mData.get(i));
+            if (referenceId != null) {
+                index(referenceId, i);
+            }
+        }
+    }
+
+    /**
+     * Indexes the row at position unless an earlier row has the same referenceId.
+     */
+    private void index(String referenceId, int position) {
+        Integer existing = mPositions.get(referenceId);
+        if (existing != null) {
+            int existingPosition = toPosition(existing);
+            if (existingPosition != position && isAt(referenceId, existingPosition)) {
+                mDuplicates.add(referenceId);
+                if (existingPosition < position) {
+                    return;
+                }
+            }
+        }
+        mPositions.put(referenceId, toSlot(position));
+    }
+
+    private int toPosition(int slot) {
+        if (mRemovedTree == null) {
+            return slot;
+        }
+        // removed slots before slot
+        int removed = 0;
+        for (int i = Math.min(slot, mRemovedTree.length - 1); i > 0; i -= i & -i) {
+            removed += mRemovedTree[i];
+        }
+        return slot - removed;
+    }
+
+    private int toSlot(int position) {
+        if (mRemovedTree == null) {
+            return position;
+        }
+        // largest prefix of slots with at most position rows left in it
+        int capacity = mRemovedTree.length - 1;
+        int slot = 0;
+        int remaining = position + 1;
+        for (int step = capacity; step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next <= capacity && step - mRemovedTree[next] < remaining) {
+                slot = next;
+                remaining -= step - mRemovedTree[next];
+            }
+        }
+        return slot + remaining - 1;
+    }
+
+    private void markRemoved(int position) {
+        if (mRemovedTree == null) {
+            // the removed row may be gone from mData already
+            mRemovedTree = new int[Integer.highestOneBit(mData.size() + 1) * 2 + 1];
+        }
+        int slot = toSlot(position);
+        ensureCapacity(slot + 1);
+        for (int i = slot + 1; i < mRemovedTree.length; i += i & -i) {
+            mRemovedTree[i]++;
+        }
+        mRemovedCount++;
+        if (mRemovedCount * 2 >= mRemovedTree.length) {
+            // mostly removed slots, positions are cheaper again
+            compact();
+        }
+    }
+
+    private void ensureCapacity(int slotCount) {
+        int capacity = mRemovedTree.length - 1;
+        if (slotCount <= capacity) {
+            return;
+        }
+        int newCapacity = capacity;
+        while (newCapacity < slotCount) {
+            newCapacity *= 2;
+        }
+        int[] tree = new int[newCapacity + 1];
+        System.arraycopy(mRemovedTree, 0, tree, 0, mRemovedTree.length);
+        // the new slots are not removed, every node covering old slots as well covers all of them
+        for (int node = capacity * 2; node <= newCapacity; node *= 2) {
+            tree[node] = mRemovedCount;
+        }
+        mRemovedTree = tree;
+    }
+
+    /**
+     * Turns every indexed slot into its position and forgets the removed slots.
+     */
+    private void compact() {
+        if (mRemovedTree == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : mPositions.entrySet()) {
+            entry.setValue(toPosition(entry.getValue()));
+        }
+        mRemovedTree = null;
+        mRemovedCount = 0;
+    }
+}
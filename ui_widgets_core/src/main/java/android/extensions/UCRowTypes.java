@@ -0,0 +1,42 @@
+package android.extensions;
+
+import java.util.HashMap;
+
+/**
+ * View types of row classes registered with UCRowRegistry.
+ * Rows of a subclass (or implementing an interface) of a registered class get its view type.
+ * Each row class is resolved once, later lookups read a cached boxed int and do not allocate.
+ */
+final class UCRowTypes {
+    private final HashMap<Class<?>, Integer> mViewTypes = new HashMap<>();
+
+    void register(Class<?> rowClass, int viewType) {
+        mViewTypes.put(rowClass, viewType);
+    }
+
+    int getViewType(Object row) {
+        Class<?> rowClass = row.getClass();
+        Integer viewType = mViewTypes.get(rowClass);
+        if (viewType == null) {
+            viewType = resolveViewType(rowClass);
+            mViewTypes.put(rowClass, viewType);
+        }
+        return viewType;
+    }
+
+    private int resolveViewType(Class<?> rowClass) {
+        for (Class<?> type = rowClass; type != null; type = type.getSuperclass()) {
+            Integer viewType = mViewTypes.get(type);
+            if (viewType != null) {
+                return viewType;
+            }
+            for (Class<?> implemented : type.getInterfaces()) {
+                viewType = mViewTypes.get(implemented);
+                if (viewType != null) {
+                    return viewType;
+                }
+            }
+        }
+        throw new IllegalStateException("No IUCRowBinder registered for " + rowClass.getName());
+    }
+}
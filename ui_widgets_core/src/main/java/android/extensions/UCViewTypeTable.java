@@ -0,0 +1,46 @@
+package android.extensions;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * View type of each position of a list, kept in an int array, see UCViewTypeCache.
+ * Reading a known position does not allocate.
+ */
+final class UCViewTypeTable {
+    private int[] mViewTypes = new int[64];
+    private final BitSet mKnown = new BitSet();
+
+    boolean contains(int position) {
+        return mKnown.get(position);
+    }
+
+    int get(int position) {
+        return mViewTypes[position];
+    }
+
+    void put(int position, int viewType) {
+        if (position >= mViewTypes.length) {
+            mViewTypes = Arrays.copyOf(mViewTypes, Math.max(position + 1, mViewTypes.length * 2));
+        }
+        mViewTypes[position] = viewType;
+        mKnown.set(position);
+    }
+
+    void clear() {
+        mKnown.clear();
+    }
+
+    void clear(int position, int count) {
+        mKnown.clear(position, position + count);
+    }
+
+    /**
+     * Clears position and every position after it, e.g. the ones shifted by an insert.
+     */
+    void clearFrom(int position) {
+        if (position < mKnown.length()) {
+            mKnown.clear(position, mKnown.length());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package android.extensions;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static android.extensions.UCTestRows.row;
+import static android.extensions.UCTestRows.rows;
+import static org.junit.Assert.assertEquals;
+
+public class UCListDiffTest {
+
+    @Test
+    public void reportsNothingForSameRows() {
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 50), rows(0, 50));
+
+        assertEquals(0, listener.inserted + listener.removed + listener.changed);
+    }
+
+    @Test
+    public void reportsInsertedHeadRows() {
+        ArrayList<Object> newRows = rows(100, 5);
+        newRows.addAll(rows(0, 50));
+
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 50), newRows);
+
+        assertEquals(5, listener.inserted);
+        assertEquals(0, listener.removed);
+    }
+
+    @Test
+    public void reportsRemovedAndChangedRows() {
+        ArrayList<Object> newRows = rows(0, 50);
+        newRows.subList(20, 30).clear();
+        newRows.set(5, ((UCTestRows.Row) newRows.get(5)).update());
+
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 50), newRows);
+
+        assertEquals(10, listener.removed);
+        assertEquals(1, listener.changed);
+    }
+
+    @Test
+    public void reportsMovedRows() {
+        ArrayList<Object> newRows = rows(0, 50);
+        newRows.add(40, newRows.remove(3));
+        newRows.add(0, newRows.remove(30));
+
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 50), newRows);
+
+        assertEquals(2, listener.moved);
+        assertEquals(0, listener.removed + listener.inserted);
+    }
+
+    @Test
+    public void reportsMovedAndChangedRows() {
+        ArrayList<Object> newRows = rows(0, 20);
+        newRows.add(15, ((UCTestRows.Row) newRows.remove(2)).update());
+        newRows.add(0, row(100));
+
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 20), newRows);
+
+        assertEquals(1, listener.moved);
+        assertEquals(1, listener.changed);
+        assertEquals(1, listener.inserted);
+    }
+
+    @Test
+    public void reportsMovesOfReversedRows() {
+        ArrayList<Object> newRows = rows(0, 30);
+        Collections.reverse(newRows);
+
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 30), newRows);
+
+        assertEquals(0, listener.removed + listener.inserted);
+    }
+
+    @Test
+    public void keepsRowsOfARefreshAboveTheEditLimit() {
+        // page zero refresh of a long list, its first row is new
+        ArrayList<Object> newRows = rows(5000, 1);
+        newRows.addAll(rows(0, 19));
+
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 2000), newRows);
+
+        assertEquals(1, listener.inserted);
+        assertEquals(1981, listener.removed);
+    }
+
+    @Test
+    public void replacesUnrelatedRowsWithoutReset() {
+        UCTestRows.ReplayingListener listener = dispatch(rows(0, 1000), rows(1000, 800));
+
+        assertEquals(1000, listener.removed);
+        assertEquals(800, listener.inserted);
+    }
+
+    @Test
+    public void replaysRandomEdits() {
+        Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            ArrayList<Object> oldRows = rows(0, random.nextInt(run < 200 ? 60 : 1500));
+            ArrayList<Object> newRows = new ArrayList<>(oldRows);
+            int edits = random.nextInt(run < 200 ? 20 : 1200);
+            for (int i = 0; i < edits; i++) {
+                int position = newRows.isEmpty() ? 0 : random.nextInt(newRows.size());
+                switch (random.nextInt(4)) {
+                    case 0:
+                        newRows.add(position, row(10000 + run * 2000 + i));
+                        break;
+                    case 1:
+                        if (!newRows.isEmpty()) {
+                            newRows.remove(position);
+                        }
+                        break;
+                    case 2:
+                        if (!newRows.isEmpty()) {
+                            newRows.set(position, ((UCTestRows.Row) newRows.get(position)).update());
+                        }
+                        break;
+                    default:
+                        if (!newRows.isEmpty()) {
+                            newRows.add(random.nextInt(newRows.size()), newRows.remove(position));
+                        }
+                        break;
+                }
+            }
+            dispatch(oldRows, newRows);
+        }
+    }
+
+    /**
+     * Dispatches the diff from oldRows to newRows and checks it transforms oldRows into newRows.
+     */
+    private static UCTestRows.ReplayingListener dispatch(List<Object> oldRows, List<Object> newRows) {
+        UCTestRows.ReplayingListener listener = new UCTestRows.ReplayingListener(oldRows);
+        UCListDiff.calculate(new UCDiffCallback(oldRows, newRows, null, UCTestRows.REFERENCE_IDS))
+                .dispatchUpdatesTo(listener);
+        assertEquals("resets", 0, listener.resets);
+        listener.assertReplays(newRows);
+        return listener;
+    }
+}
@@ -0,0 +1,204 @@
+package android.extensions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static android.extensions.UCTestRows.row;
+import static android.extensions.UCTestRows.rows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class UCListGroupingTest {
+
+    // groups of ten rows, every second update moves a row to another group
+    private static final IUCGroupKeyExtractor KEYS = new IUCGroupKeyExtractor() {
+        @Override
+        public Object getGroupKey(Object row) {
+            UCTestRows.Row testRow = (UCTestRows.Row) row;
+            return Integer.parseInt(testRow.id.substring(4)) / 10 + 100 * (testRow.version / 2);
+        }
+    };
+
+    private UCTestRows.ReplayingListener mListener;
+    private UCListGrouping mGrouping;
+    private UCListState mState;
+
+    @Before
+    public void setUp() {
+        mListener = new UCTestRows.ReplayingListener();
+        mState = new UCListState(new UCListState.Listener() {
+            @Override
+            public void onInserted(int position, int count) {
+                mGrouping.onInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                mGrouping.onRemoved(position, count);
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                mGrouping.onChanged(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                mGrouping.onMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onReset() {
+                mGrouping.onReset();
+            }
+        });
+        mState.setReferenceIdExtractor(UCTestRows.REFERENCE_IDS);
+        mGrouping = new UCListGrouping(KEYS, mState.getRows(), mListener);
+    }
+
+    @Test
+    public void groupsAppendedPages() {
+        mState.appendPage(0, rows(0, 15));
+        mState.appendPage(1, rows(15, 15));
+        assertGrouped();
+
+        assertEquals(3, mGrouping.getGroupCount());
+        assertEquals(0, mGrouping.getHeaderPosition(0));
+        assertEquals(11, mGrouping.getHeaderPosition(1));
+        assertEquals(22, mGrouping.getHeaderPosition(2));
+        assertEquals(33, mListener.inserted);
+    }
+
+    @Test
+    public void mergesPrependedRowsWithTheFirstGroup() {
+        mState.appendPage(0, rows(15, 15));
+        mState.prependPage(-1, rows(5, 10));
+        assertGrouped();
+
+        assertEquals(3, mGrouping.getGroupCount());
+        assertEquals(0, mGrouping.getHeader(0).getKey());
+    }
+
+    @Test
+    public void keepsHeadersOfRowsChangedInTheirGroup() {
+        mState.appendPage(0, rows(0, 30));
+        mListener.clearCounts();
+
+        mState.updateAt(12, row(12).update());
+        assertGrouped();
+
+        assertEquals(1, mListener.changed);
+        assertEquals(0, mListener.inserted + mListener.removed);
+    }
+
+    @Test
+    public void regroupsRowsMovedToAnotherGroup() {
+        mState.appendPage(0, rows(0, 30));
+        mState.updateAt(12, row(12).update().update());
+        assertGrouped();
+
+        assertEquals(5, mGrouping.getGroupCount());
+        assertEquals(100 + 1, mGrouping.getHeader(2).getKey());
+    }
+
+    @Test
+    public void continuesGroupsOverPlaceholders() {
+        mState.appendPage(0, rows(0, 10));
+        mState.appendPage(1, rows(10, 10));
+        mState.appendPage(2, rows(20, 10));
+        mState.evictPage(mState.getPageTable().get(1));
+        assertGrouped();
+
+        assertEquals(2, mGrouping.getGroupCount());
+        assertEquals(-1, mGrouping.indexOfGroupAt(-1));
+        assertEquals(0, mGrouping.indexOfGroupAt(15));
+        assertEquals(1, mGrouping.indexOfGroupAt(21));
+    }
+
+    @Test
+    public void matchesAFullGroupingAfterRandomChanges() {
+        Random random = new Random(3);
+        int next = 0;
+        for (int step = 0; step < 500; step++) {
+            int position = mState.isEmpty() ? 0 : random.nextInt(mState.size());
+            switch (random.nextInt(5)) {
+                case 0:
+                    mState.appendPage(step, rows(next, 7));
+                    next += 7;
+                    break;
+                case 1:
+                    mState.removeAt(mState.isEmpty() ? UCListState.NO_POSITION : position);
+                    break;
+                case 2:
+                    if (!mState.isEmpty() && mState.get(position) != UCPlaceholder.INSTANCE) {
+                        mState.updateAt(position, ((UCTestRows.Row) mState.get(position)).update());
+                    }
+                    break;
+                case 3:
+                    mState.apply(new UCListMutations().addInsert(position, row(random.nextInt(next + 1))));
+                    break;
+                default:
+                    if (mState.getPageTable().size() > 0) {
+                        mState.evictPage(mState.getPageTable().get(random.nextInt(mState.getPageTable().size())));
+                    }
+                    break;
+            }
+            assertGrouped();
+        }
+    }
+
+    /**
+     * Checks the notified and the grouped rows against grouping the rows of the state from scratch.
+     */
+    private void assertGrouped() {
+        List<Object> expected = group(mState.getRows());
+        mListener.assertReplays(expected);
+        assertEquals(expected, mGrouping.getRows());
+        for (int group = 0; group < mGrouping.getGroupCount(); group++) {
+            int position = mGrouping.getHeaderPosition(group);
+            assertSame(mGrouping.getHeader(group), mGrouping.getRows().get(position));
+            assertEquals(group, mGrouping.indexOfGroupAt(position));
+        }
+        assertGridRows(expected, 3);
+    }
+
+    /**
+     * Lays expected out in a grid of spanCount columns with headers taking a whole row, row by row.
+     */
+    private void assertGridRows(List<Object> expected, int spanCount) {
+        int row = -1;
+        int span = spanCount;
+        for (int position = 0; position < expected.size(); position++) {
+            int spanSize = expected.get(position) instanceof UCGroupHeader ? spanCount : 1;
+            if (span + spanSize > spanCount) {
+                row++;
+                span = 0;
+            }
+            assertEquals("row of " + position, row, mGrouping.getGridRow(position, spanCount));
+            assertEquals("span of " + position, span, mGrouping.getGridSpanIndex(position, spanCount));
+            span += spanSize;
+        }
+    }
+
+    private static List<Object> group(List<Object> source) {
+        ArrayList<Object> rows = new ArrayList<>();
+        boolean grouped = false;
+        Object key = null;
+        for (Object row : source) {
+            if (row != UCPlaceholder.INSTANCE) {
+                Object rowKey = KEYS.getGroupKey(row);
+                if (!grouped || !rowKey.equals(key)) {
+                    rows.add(new UCGroupHeader(rowKey));
+                    grouped = true;
+                    key = rowKey;
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,120 @@
+package android.extensions;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static android.extensions.UCTestRows.rows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UCListSnapshotTest {
+
+    // magic, format version, codec version, page number and no more data come before the row count
+    private static final int ROW_COUNT_OFFSET = 17;
+
+    private static final IUCRowCodec CODEC = new IUCRowCodec() {
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void encode(Object row, DataOutput out) throws IOException {
+            out.writeUTF(((UCTestRows.Row) row).id);
+            out.writeInt(((UCTestRows.Row) row).version);
+        }
+
+        @Override
+        public Object decode(DataInput in) throws IOException {
+            return new UCTestRows.Row(in.readUTF(), in.readInt());
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void readsTheWrittenRows() throws IOException {
+        File file = mFolder.newFile();
+        new UCListSnapshot(rows(0, 50), 3, true).write(file, CODEC);
+
+        UCListSnapshot snapshot = UCListSnapshot.read(file, CODEC);
+
+        assertEquals(rows(0, 50), snapshot.rows);
+        assertEquals(3, snapshot.pageNumber);
+        assertTrue(snapshot.noMoreData);
+    }
+
+    @Test
+    public void ignoresMissingSnapshotsAndOtherCodecVersions() throws IOException {
+        File file = new File(mFolder.getRoot(), "missing");
+        assertNull(UCListSnapshot.read(file, CODEC));
+
+        new UCListSnapshot(rows(0, 5), 1, false).write(file, CODEC);
+        assertNull(UCListSnapshot.read(file, new IUCRowCodec() {
+            @Override
+            public int getVersion() {
+                return 2;
+            }
+
+            @Override
+            public void encode(Object row, DataOutput out) {
+            }
+
+            @Override
+            public Object decode(DataInput in) {
+                return null;
+            }
+        }));
+    }
+
+    @Test(expected = IOException.class, timeout = 5000)
+    public void rejectsARowCountLargerThanTheFile() throws IOException {
+        File file = mFolder.newFile();
+        new UCListSnapshot(rows(0, 5), 1, false).write(file, CODEC);
+        overwriteRowCount(file, Integer.MAX_VALUE);
+
+        UCListSnapshot.read(file, CODEC);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsANegativeRowCount() throws IOException {
+        File file = mFolder.newFile();
+        new UCListSnapshot(rows(0, 5), 1, false).write(file, CODEC);
+        overwriteRowCount(file, -1);
+
+        UCListSnapshot.read(file, CODEC);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedRows() throws IOException {
+        File file = mFolder.newFile();
+        new UCListSnapshot(rows(0, 5), 1, false).write(file, CODEC);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(randomAccessFile.length() - 3);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        UCListSnapshot.read(file, CODEC);
+    }
+
+    private static void overwriteRowCount(File file, int rowCount) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(ROW_COUNT_OFFSET);
+            randomAccessFile.writeInt(rowCount);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package android.extensions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static android.extensions.UCTestRows.row;
+import static android.extensions.UCTestRows.rows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UCListStateTest {
+
+    private UCTestRows.ReplayingListener mListener;
+    private UCListState mState;
+
+    @Before
+    public void setUp() {
+        mListener = new UCTestRows.ReplayingListener();
+        mState = new UCListState(mListener);
+        mState.setReferenceIdExtractor(UCTestRows.REFERENCE_IDS);
+    }
+
+    @Test
+    public void appendsPages() {
+        mState.appendPage(0, rows(0, 20));
+        mState.appendPage(1, rows(20, 20));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(40, mState.size());
+        assertEquals(2, mState.getPageTable().size());
+        assertEquals(20, mState.getPageTable().get(1).start);
+        assertEquals(40, mListener.inserted);
+    }
+
+    @Test
+    public void extendsTheLastPageWhenItIsAppendedAgain() {
+        mState.appendPage(0, rows(0, 10));
+        mState.appendPage(0, rows(10, 5));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(1, mState.getPageTable().size());
+        assertEquals(15, mState.getPageTable().get(0).count);
+    }
+
+    @Test
+    public void prependsPagesBeforeTheFirstOne() {
+        mState.appendPage(0, rows(10, 10));
+        mState.prependPage(-1, rows(0, 10));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(row(0), mState.get(0));
+        assertTrue(mState.getPageTable().get(0).previous);
+        assertEquals(10, mState.getPageTable().get(1).start);
+    }
+
+    @Test
+    public void dropsDuplicateRowsWhenDeduplicating() {
+        mState.setDeduplicating(true);
+        mState.appendPage(0, rows(0, 10));
+        ArrayList<Object> page = rows(8, 5);
+        page.add(row(12));
+        mState.appendPage(1, page);
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(rows(0, 13), mState.getRows());
+        assertEquals(3, mState.getPageTable().get(1).count);
+    }
+
+    @Test
+    public void removesAndUpdatesRows() {
+        mState.appendPage(0, rows(0, 20));
+        mState.appendPage(1, rows(20, 20));
+        mListener.clearCounts();
+
+        assertTrue(mState.removeAt(mState.indexOfReferenceId("row-5")));
+        assertTrue(mState.updateAt(mState.indexOfReferenceId("row-30"), row(30).update()));
+        assertFalse(mState.removeAt(mState.indexOfReferenceId("row-5")));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(1, mListener.removed);
+        assertEquals(1, mListener.changed);
+        assertEquals(19, mState.getPageTable().get(0).count);
+        assertEquals(19, mState.getPageTable().get(1).start);
+        assertEquals(1, ((UCTestRows.Row) mState.get(29)).version);
+    }
+
+    @Test
+    public void appliesMutationBatches() {
+        mState.appendPage(0, rows(0, 20));
+        mListener.clearCounts();
+
+        UCListMutations mutations = new UCListMutations()
+                .addRemoveByReferenceId("row-3")
+                .addRemoveByReferenceId("row-4")
+                .addRemove(row(10))
+                .addUpdateByReferenceId("row-5", row(5).update())
+                .addUpdate(row(4), row(4).update())
+                .addRemoveByReferenceId("missing")
+                .addInsert(0, row(100))
+                .addInsert(1, row(101))
+                .addMoveByReferenceId("row-19", 2);
+        assertEquals(7, mState.apply(mutations));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(Arrays.<Object>asList(row(100), row(101), row(19), row(0), row(1), row(2), row(5).update()),
+                mState.getRows().subList(0, 7));
+        assertEquals(19, mState.size());
+        assertEquals(3, mListener.removed);
+        assertEquals(1, mListener.changed);
+        assertEquals(19, mState.getPageTable().get(0).count);
+    }
+
+    @Test
+    public void countsRepeatedRemovalsOfARowOnce() {
+        mState.appendPage(0, rows(0, 20));
+        mListener.clearCounts();
+
+        assertEquals(2, mState.apply(new UCListMutations()
+                .addRemoveByReferenceId("row-3")
+                .addRemoveByReferenceId("row-3")
+                .addRemove(row(3))
+                .addRemoveByReferenceId("row-8")));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(18, mState.size());
+        assertEquals(2, mListener.removed);
+    }
+
+    @Test
+    public void appliesMutationBatchesWithoutIndex() {
+        mState.setReferenceIdExtractor(null);
+        mState.setComparison(new IUCDatasourceComparison() {
+            @Override
+            public boolean hasReferenceId(Object o, String referenceId) {
+                return ((UCTestRows.Row) o).id.equals(referenceId);
+            }
+        });
+        mState.appendPage(0, rows(0, 20));
+
+        assertEquals(3, mState.apply(new UCListMutations()
+                .addRemoveByReferenceId("row-1")
+                .addUpdateByReferenceId("row-2", row(2).update())
+                .addRemove(row(7))));
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(18, mState.size());
+        assertEquals(row(2).update(), mState.get(1));
+    }
+
+    @Test
+    public void replacesChangedRowsOfAPage() {
+        mState.appendPage(0, rows(0, 10));
+        mState.appendPage(1, rows(10, 10));
+        mListener.clearCounts();
+
+        ArrayList<Object> page = rows(0, 10);
+        page.set(3, row(3).update());
+        mState.replacePageRows(mState.getPageTable().get(0), page, true);
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(1, mListener.changed);
+        assertEquals(row(3).update(), mState.get(3));
+    }
+
+    @Test
+    public void replacesPagesWhichGrewOrShrank() {
+        mState.appendPage(0, rows(0, 10));
+        mState.appendPage(1, rows(10, 10));
+
+        mState.replacePageRows(mState.getPageTable().get(0), rows(0, 14), false);
+        mListener.assertReplays(mState.getRows());
+        assertEquals(24, mState.size());
+        assertEquals(14, mState.getPageTable().get(1).start);
+
+        mState.replacePageRows(mState.getPageTable().get(0), rows(0, 6), true);
+        mListener.assertReplays(mState.getRows());
+        assertEquals(16, mState.size());
+        assertEquals(6, mState.getPageTable().get(1).start);
+        assertEquals(row(10), mState.get(6));
+    }
+
+    @Test
+    public void evictsAndRestoresPages() {
+        mState.appendPage(0, rows(0, 10));
+        mState.appendPage(1, rows(10, 10));
+        UCPageTable.Page page = mState.getPageTable().get(0);
+
+        mState.evictPage(page);
+        mListener.assertReplays(mState.getRows());
+        assertTrue(page.evicted);
+        assertSame(UCPlaceholder.INSTANCE, mState.get(0));
+        assertEquals(20, mState.size());
+
+        page.evicted = false;
+        mState.replacePageRows(page, rows(0, 10), false);
+        mListener.assertReplays(mState.getRows());
+        assertEquals(rows(0, 20), mState.getRows());
+    }
+
+    @Test
+    public void padsToTheTotalCountAndTrimsIt() {
+        mState.appendPage(0, rows(0, 10));
+
+        mState.padToCount(45, 10);
+        mListener.assertReplays(mState.getRows());
+        assertEquals(45, mState.size());
+        UCPageTable table = mState.getPageTable();
+        assertEquals(5, table.size());
+        assertEquals(4, table.get(4).page);
+        assertEquals(5, table.get(4).count);
+        assertTrue(table.get(1).evicted);
+        assertSame(UCPlaceholder.INSTANCE, mState.get(44));
+
+        mState.padToCount(25, 10);
+        mListener.assertReplays(mState.getRows());
+        assertEquals(25, mState.size());
+        assertEquals(3, table.size());
+        assertEquals(5, table.get(2).count);
+
+        mState.replacePageRows(table.get(1), rows(10, 10), false);
+        table.get(1).evicted = false;
+        mState.padToCount(5, 10);
+        mListener.assertReplays(mState.getRows());
+        // loaded pages are never trimmed
+        assertEquals(20, mState.size());
+    }
+
+    @Test(timeout = 1000)
+    public void ignoresTheTotalCountWithoutAPageSize() {
+        mState.appendPage(0, rows(0, 10));
+
+        mState.padToCount(45, 0);
+        mState.padToCount(45, -10);
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(10, mState.size());
+        assertEquals(1, mState.getPageTable().size());
+    }
+
+    @Test
+    public void replacesRowsWithADiff() {
+        mState.appendPage(0, rows(0, 30));
+        mListener.clearCounts();
+
+        List<Object> newRows = rows(0, 30);
+        newRows.remove(7);
+        newRows.add(0, row(99));
+        mState.replaceRows(newRows);
+        mListener.assertReplays(mState.getRows());
+
+        assertEquals(1, mListener.inserted);
+        assertEquals(1, mListener.removed);
+        assertEquals(0, mState.getPageTable().size());
+    }
+}
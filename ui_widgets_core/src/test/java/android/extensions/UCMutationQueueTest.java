@@ -0,0 +1,233 @@
+package android.extensions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Producers submit tagged mutations while readers check every snapshot they get. Mutation seq of
+ * producer p updates row "p-first" to version seq, appends row "p:seq" and updates row "p-last" to
+ * version seq, so in a consistent snapshot both rows of p have the version of the number of rows p
+ * appended, in order.
+ */
+public class UCMutationQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int READERS = 2;
+    private static final int MUTATIONS = 2000;
+
+    private final AtomicReference<Throwable> mFailure = new AtomicReference<>();
+    private ExecutorService mWriter;
+    private UCListState mState;
+    private UCMutationQueue mQueue;
+
+    @Before
+    public void setUp() {
+        mWriter = Executors.newSingleThreadExecutor();
+        mState = new UCListState(new UCListState.Listener() {
+            @Override
+            public void onInserted(int position, int count) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onChanged(int position, int count) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                mQueue.onRowsChanged();
+            }
+
+            @Override
+            public void onReset() {
+                mQueue.onRowsChanged();
+            }
+        });
+        mState.setReferenceIdExtractor(UCTestRows.REFERENCE_IDS);
+        mQueue = new UCMutationQueue(mWriter, mState.getRows());
+    }
+
+    @After
+    public void tearDown() {
+        mWriter.shutdownNow();
+    }
+
+    @Test
+    public void appliesMutationsInOrderAndPublishesConsistentSnapshots() throws Exception {
+        ArrayList<Object> rows = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            rows.add(new UCTestRows.Row(p + "-first", 0));
+            rows.add(new UCTestRows.Row(p + "-last", 0));
+        }
+        mState.appendPage(0, rows);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean producing = new AtomicBoolean(true);
+        ArrayList<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers.add(start(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    for (int seq = 1; seq <= MUTATIONS; seq++) {
+                        mQueue.submit(new Mutation(producer, seq));
+                        // spreads the mutations over many drains
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        final int[] reads = new int[READERS];
+        ArrayList<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            final int reader = r;
+            readers.add(start(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    while (producing.get()) {
+                        assertConsistent(mQueue.getSnapshot());
+                        reads[reader]++;
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        join(producers);
+        // the writer is done once a drain queued after the last mutation ran
+        final CountDownLatch drained = new CountDownLatch(1);
+        mQueue.submit(new Runnable() {
+            @Override
+            public void run() {
+                drained.countDown();
+            }
+        });
+        assertTrue(drained.await(30, TimeUnit.SECONDS));
+        mWriter.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+        producing.set(false);
+        join(readers);
+        if (mFailure.get() != null) {
+            throw new AssertionError(mFailure.get());
+        }
+
+        List<Object> snapshot = mQueue.getSnapshot();
+        assertConsistent(snapshot);
+        assertEquals(PRODUCERS * (MUTATIONS + 2), snapshot.size());
+        for (int p = 0; p < PRODUCERS; p++) {
+            assertEquals(MUTATIONS, version(snapshot, p + "-first"));
+            assertEquals(MUTATIONS, version(snapshot, p + "-last"));
+        }
+        for (int count : reads) {
+            assertTrue(count > 0);
+        }
+    }
+
+    private final class Mutation implements Runnable {
+        private final int mProducer;
+        private final int mSeq;
+
+        Mutation(int producer, int seq) {
+            mProducer = producer;
+            mSeq = seq;
+        }
+
+        @Override
+        public void run() {
+            String first = mProducer + "-first";
+            UCTestRows.Row row = (UCTestRows.Row) mState.get(mState.indexOfReferenceId(first));
+            if (row.version != mSeq - 1) {
+                mFailure.compareAndSet(null, new AssertionError(
+                        "producer " + mProducer + " ran " + mSeq + " after " + row.version));
+            }
+            // three changes, a snapshot copied between them is torn
+            mState.updateAt(mState.indexOfReferenceId(first), new UCTestRows.Row(first, mSeq));
+            mState.apply(new UCListMutations().addInsert(mState.size(), new UCTestRows.Row(mProducer + ":" + mSeq, 0)));
+            String last = mProducer + "-last";
+            mState.updateAt(mState.indexOfReferenceId(last), new UCTestRows.Row(last, mSeq));
+        }
+    }
+
+    private static void assertConsistent(List<Object> snapshot) {
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        for (int p = 0; p < PRODUCERS; p++) {
+            int version = version(snapshot, p + "-first");
+            assertEquals("producer " + p, version, version(snapshot, p + "-last"));
+            int appended = 0;
+            for (Object row : snapshot) {
+                String id = ((UCTestRows.Row) row).id;
+                if (id.startsWith(p + ":")) {
+                    appended++;
+                    assertEquals("producer " + p + " rows out of order", p + ":" + appended, id);
+                }
+            }
+            assertEquals("producer " + p, version, appended);
+        }
+    }
+
+    private static int version(List<Object> rows, String id) {
+        for (Object row : rows) {
+            if (((UCTestRows.Row) row).id.equals(id)) {
+                return ((UCTestRows.Row) row).version;
+            }
+        }
+        fail("missing " + id);
+        return -1;
+    }
+
+    private Thread start(final Runnable runnable) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    mFailure.compareAndSet(null, t);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
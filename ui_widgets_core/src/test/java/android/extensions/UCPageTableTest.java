@@ -0,0 +1,85 @@
+package android.extensions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UCPageTableTest {
+
+    private UCPageTable mTable;
+
+    @Before
+    public void setUp() {
+        mTable = new UCPageTable();
+        mTable.append(0, 0, 10);
+        mTable.append(1, 10, 10);
+        mTable.append(2, 20, 5);
+    }
+
+    @Test
+    public void findsPagesOfPositions() {
+        assertEquals(0, mTable.indexOfPosition(0));
+        assertEquals(0, mTable.indexOfPosition(9));
+        assertEquals(1, mTable.indexOfPosition(10));
+        assertEquals(2, mTable.indexOfPosition(24));
+        assertEquals(-1, mTable.indexOfPosition(25));
+        assertEquals(-1, mTable.indexOfPosition(-1));
+        assertSame(mTable.get(1), mTable.find(1));
+        assertNull(mTable.find(3));
+    }
+
+    @Test
+    public void shiftsPagesAfterRemovedRows() {
+        mTable.onRemoved(12);
+
+        assertEquals(9, mTable.get(1).count);
+        assertEquals(19, mTable.get(2).start);
+        assertEquals(10, mTable.get(0).count);
+    }
+
+    @Test
+    public void addsRowsInsertedAtABoundaryToTheLaterPage() {
+        mTable.onInserted(10);
+        mTable.onInserted(26);
+
+        assertEquals(10, mTable.get(0).count);
+        assertEquals(11, mTable.get(1).count);
+        assertEquals(21, mTable.get(2).start);
+        assertEquals(6, mTable.get(2).count);
+    }
+
+    @Test
+    public void prependsAndResizesPages() {
+        mTable.prepend(-1, 4);
+        mTable.resize(mTable.find(0), 6);
+
+        assertTrue(mTable.get(0).previous);
+        assertEquals(4, mTable.get(1).start);
+        assertEquals(10, mTable.get(2).start);
+        assertEquals(20, mTable.get(3).start);
+        assertEquals(3, mTable.indexOfPosition(24));
+    }
+
+    @Test
+    public void appendsEvictedPagesWithAShorterLastPage() {
+        mTable.appendEvicted(3, 25, 23, 10);
+
+        assertEquals(6, mTable.size());
+        assertEquals(5, mTable.get(5).page);
+        assertEquals(45, mTable.get(5).start);
+        assertEquals(3, mTable.get(5).count);
+        assertTrue(mTable.get(3).evicted);
+
+        mTable.removeLast();
+        assertEquals(5, mTable.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class, timeout = 1000)
+    public void rejectsPagesWithoutRows() {
+        mTable.appendEvicted(3, 25, 23, 0);
+    }
+}
@@ -0,0 +1,153 @@
+package android.extensions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static android.extensions.UCTestRows.row;
+import static android.extensions.UCTestRows.rows;
+import static org.junit.Assert.assertEquals;
+
+public class UCQueryEvaluatorTest {
+
+    // rows of numbers divisible by three, odd ones in ascending order, then even ones in descending order
+    private static final UCListQuery QUERY = new UCListQuery(new IUCRowFilter() {
+        @Override
+        public boolean accept(Object row) {
+            return number(row) % 3 == 0;
+        }
+    }, new Comparator<Object>() {
+        @Override
+        public int compare(Object o1, Object o2) {
+            return sortKey(o1) - sortKey(o2);
+        }
+    });
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void evaluatesLargeListsInParallelLikeSequentially() {
+        ArrayList<Object> rows = shuffled(UCQueryEvaluator.PARALLEL_THRESHOLD * 3);
+
+        ArrayList<Object> sequential = UCQueryEvaluator.evaluate(QUERY, rows, null, 1);
+        assertEquals(expected(QUERY, rows), sequential);
+        assertEquals(sequential, UCQueryEvaluator.evaluate(QUERY, rows, mExecutor, 4));
+        assertEquals(UCQueryEvaluator.evaluate(null, rows, null, 1),
+                UCQueryEvaluator.evaluate(null, rows, mExecutor, 4));
+        assertEquals(rows, UCQueryEvaluator.evaluate(null, rows, mExecutor, 4));
+    }
+
+    @Test
+    public void keepsTheLoadedOrderOfEqualRows() {
+        ArrayList<Object> rows = shuffled(UCQueryEvaluator.PARALLEL_THRESHOLD * 2);
+        UCListQuery query = new UCListQuery(null, new Comparator<Object>() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                return number(o1) % 2 - number(o2) % 2;
+            }
+        });
+
+        assertEquals(expected(query, rows), UCQueryEvaluator.evaluate(query, rows, mExecutor, 3));
+    }
+
+    @Test
+    public void mergesAppendedRowsAndReportsThemInserted() {
+        ArrayList<Object> loaded = shuffled(300);
+        ArrayList<Object> current = UCQueryEvaluator.evaluate(QUERY, loaded, null, 1);
+        List<Object> appended = rows(300, 90);
+
+        UCQueryEvaluator.Update update = UCQueryEvaluator.append(QUERY, current, appended, null, 1);
+        UCTestRows.ReplayingListener listener = new UCTestRows.ReplayingListener(current);
+        update.dispatchUpdatesTo(listener);
+        listener.assertReplays(update.rows);
+
+        loaded.addAll(appended);
+        assertEquals(expected(QUERY, loaded), update.rows);
+        assertEquals(30, listener.inserted);
+    }
+
+    @Test
+    public void appendsRowsInLoadedOrderWithoutAComparator() {
+        List<Object> current = rows(0, 10);
+
+        UCQueryEvaluator.Update update = UCQueryEvaluator.append(null, current, rows(10, 5), null, 1);
+        UCTestRows.ReplayingListener listener = new UCTestRows.ReplayingListener(current);
+        update.dispatchUpdatesTo(listener);
+        listener.assertReplays(update.rows);
+
+        assertEquals(rows(0, 15), update.rows);
+        assertEquals(5, listener.inserted);
+    }
+
+    @Test
+    public void diffsReplacedRowsAgainstTheCurrentResult() {
+        UCListState listState = new UCListState(new UCTestRows.ReplayingListener());
+        listState.setReferenceIdExtractor(UCTestRows.REFERENCE_IDS);
+        ArrayList<Object> rows = shuffled(200);
+        ArrayList<Object> current = UCQueryEvaluator.evaluate(QUERY, rows, null, 1);
+        rows.remove(row(3));
+        rows.set(rows.indexOf(row(9)), row(9).update());
+        rows.add(row(999));
+
+        UCQueryEvaluator.Update update = UCQueryEvaluator.replace(listState, QUERY, current, rows, null, 1);
+        UCTestRows.ReplayingListener listener = new UCTestRows.ReplayingListener(current);
+        update.dispatchUpdatesTo(listener);
+        listener.assertReplays(update.rows);
+
+        assertEquals(expected(QUERY, rows), update.rows);
+        assertEquals(1, listener.inserted);
+        assertEquals(1, listener.removed);
+        assertEquals(1, listener.changed);
+    }
+
+    /**
+     * Rows matching query in query order, by a stable insertion sort over the loaded rows.
+     */
+    private static ArrayList<Object> expected(UCListQuery query, List<Object> rows) {
+        ArrayList<Object> result = new ArrayList<>();
+        for (Object row : rows) {
+            if (query.getFilter() != null && !query.getFilter().accept(row)) {
+                continue;
+            }
+            int position = result.size();
+            while (position > 0 && query.getComparator().compare(result.get(position - 1), row) > 0) {
+                position--;
+            }
+            result.add(position, row);
+        }
+        return result;
+    }
+
+    private static ArrayList<Object> shuffled(int count) {
+        ArrayList<Object> rows = rows(0, count);
+        Collections.shuffle(rows, new Random(count));
+        return rows;
+    }
+
+    private static int number(Object row) {
+        return Integer.parseInt(((UCTestRows.Row) row).id.substring(4));
+    }
+
+    private static int sortKey(Object row) {
+        int number = number(row);
+        return number % 2 == 1 ? number : Integer.MAX_VALUE / 2 - number;
+    }
+}
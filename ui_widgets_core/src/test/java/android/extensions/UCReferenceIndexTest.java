@@ -0,0 +1,173 @@
+package android.extensions;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static android.extensions.UCTestRows.row;
+import static android.extensions.UCTestRows.rows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UCReferenceIndexTest {
+
+    private UCListState mState;
+
+    @Before
+    public void setUp() {
+        mState = new UCListState(new UCTestRows.ReplayingListener());
+        mState.setReferenceIdExtractor(UCTestRows.REFERENCE_IDS);
+        mState.appendPage(0, rows(0, 20));
+        mState.appendPage(1, rows(20, 20));
+    }
+
+    @Test
+    public void findsAppendedRows() {
+        assertEquals(0, mState.indexOfReferenceId("row-0"));
+        assertEquals(39, mState.indexOfReferenceId("row-39"));
+        assertEquals(25, mState.indexOf(row(25)));
+        assertEquals(UCListState.NO_POSITION, mState.indexOfReferenceId("row-40"));
+    }
+
+    @Test
+    public void shiftsRowsAfterARemoval() {
+        mState.removeAt(mState.indexOfReferenceId("row-10"));
+
+        assertEquals(UCListState.NO_POSITION, mState.indexOfReferenceId("row-10"));
+        assertEquals(9, mState.indexOfReferenceId("row-9"));
+        assertEquals(10, mState.indexOfReferenceId("row-11"));
+        assertEquals(38, mState.indexOfReferenceId("row-39"));
+    }
+
+    @Test
+    public void keepsTheIndexAcrossRemovals() {
+        final int[] extracted = new int[1];
+        mState = new UCListState(new UCTestRows.ReplayingListener());
+        mState.setReferenceIdExtractor(new IUCReferenceIdExtractor() {
+            @Override
+            public String getReferenceId(Object item) {
+                extracted[0]++;
+                return UCTestRows.REFERENCE_IDS.getReferenceId(item);
+            }
+        });
+        mState.appendPage(0, rows(0, 1000));
+        assertEquals(999, mState.indexOfReferenceId("row-999"));
+
+        for (int i = 0; i < 100; i++) {
+            extracted[0] = 0;
+            mState.removeAt(mState.indexOfReferenceId("row-" + (i * 5)));
+            assertEquals(999 - i - 1, mState.indexOfReferenceId("row-999"));
+            assertEquals(i * 4, mState.indexOfReferenceId("row-" + (i * 5 + 1)));
+            // the removed row and the rows found, no rows after the removal indexed again
+            assertTrue(extracted[0] < 10);
+        }
+    }
+
+    @Test
+    public void dropsRowsOfEvictedPagesAndFindsThemWhenRestored() {
+        UCPageTable.Page page = mState.getPageTable().get(0);
+        mState.evictPage(page);
+
+        assertEquals(UCListState.NO_POSITION, mState.indexOfReferenceId("row-5"));
+        assertEquals(25, mState.indexOfReferenceId("row-25"));
+
+        page.evicted = false;
+        mState.replacePageRows(page, rows(0, 20), false);
+        assertEquals(5, mState.indexOfReferenceId("row-5"));
+    }
+
+    @Test
+    public void findsTheFirstOfDuplicateReferenceIds() {
+        mState.appendPage(2, rows(5, 1));
+
+        assertEquals(5, mState.indexOfReferenceId("row-5"));
+        mState.removeAt(5);
+        assertEquals(39, mState.indexOfReferenceId("row-5"));
+    }
+
+    @Test
+    public void findsUpdatedRowsByTheirNewReferenceId() {
+        mState.updateAt(3, row(100));
+
+        assertEquals(UCListState.NO_POSITION, mState.indexOfReferenceId("row-3"));
+        assertEquals(3, mState.indexOfReferenceId("row-100"));
+    }
+
+    @Test
+    public void matchesALinearScanAfterRandomChanges() {
+        Random random = new Random(7);
+        int next = 1000;
+        for (int step = 0; step < 2000; step++) {
+            int position = mState.isEmpty() ? 0 : random.nextInt(mState.size());
+            switch (random.nextInt(6)) {
+                case 0:
+                    mState.removeAt(mState.isEmpty() ? UCListState.NO_POSITION : position);
+                    break;
+                case 1:
+                    mState.apply(new UCListMutations().addInsert(position, row(next++)));
+                    break;
+                case 2:
+                    if (!mState.isEmpty()) {
+                        // sometimes a duplicate of another row
+                        mState.updateAt(position, random.nextBoolean() ? row(next++) : row(random.nextInt(next)));
+                    }
+                    break;
+                case 3:
+                    mState.appendPage(step, rows(next, 3));
+                    next += 3;
+                    break;
+                case 4:
+                    if (mState.getPageTable().size() > 0) {
+                        mState.evictPage(mState.getPageTable().get(random.nextInt(mState.getPageTable().size())));
+                    }
+                    break;
+                default:
+                    mState.apply(new UCListMutations().addMoveByReferenceId("row-" + random.nextInt(next), position));
+                    break;
+            }
+            for (int probe = 0; probe < 5; probe++) {
+                String referenceId = "row-" + random.nextInt(next);
+                assertEquals(referenceId + " after step " + step, scan(referenceId), mState.indexOfReferenceId(referenceId));
+            }
+        }
+    }
+
+    @Test
+    public void matchesALinearScanAfterRandomRemovals() {
+        Random random = new Random(11);
+        int next = 1000;
+        for (int step = 0; step < 2000; step++) {
+            int position = mState.isEmpty() ? 0 : random.nextInt(mState.size());
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    if (!mState.isEmpty()) {
+                        mState.removeAt(position);
+                    }
+                    break;
+                case 2:
+                    if (!mState.isEmpty()) {
+                        mState.updateAt(position, random.nextBoolean() ? row(next++) : row(random.nextInt(next)));
+                    }
+                    break;
+                default:
+                    mState.appendPage(step, rows(random.nextInt(next), 2));
+                    break;
+            }
+            for (int probe = 0; probe < 5; probe++) {
+                String referenceId = "row-" + random.nextInt(next);
+                assertEquals(referenceId + " after step " + step, scan(referenceId), mState.indexOfReferenceId(referenceId));
+            }
+        }
+    }
+
+    private int scan(String referenceId) {
+        for (int i = 0; i < mState.size(); i++) {
+            if (referenceId.equals(UCTestRows.REFERENCE_IDS.getReferenceId(mState.get(i)))) {
+                return i;
+            }
+        }
+        return UCListState.NO_POSITION;
+    }
+}
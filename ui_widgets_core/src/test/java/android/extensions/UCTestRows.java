@@ -0,0 +1,190 @@
+package android.extensions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Rows and listeners shared by the core tests.
+ */
+final class UCTestRows {
+
+    static final IUCReferenceIdExtractor REFERENCE_IDS = new IUCReferenceIdExtractor() {
+        @Override
+        public String getReferenceId(Object row) {
+            return row instanceof Row ? ((Row) row).id : null;
+        }
+    };
+
+    static final class Row {
+        final String id;
+        final int version;
+
+        Row(String id, int version) {
+            this.id = id;
+            this.version = version;
+        }
+
+        Row update() {
+            return new Row(id, version + 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Row)) {
+                return false;
+            }
+            Row row = (Row) o;
+            return version == row.version && id.equals(row.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id.hashCode() + version;
+        }
+
+        @Override
+        public String toString() {
+            return id + "@" + version;
+        }
+    }
+
+    /**
+     * Applies the reported changes to its own copy of the rows, like RecyclerView does with the
+     * adapter notifications, so tests can check them against the rows of the state.
+     */
+    static final class ReplayingListener implements UCListState.Listener {
+        private static final Object INSERTED = new Object();
+
+        private final ArrayList<Object> mRows = new ArrayList<>();
+        private final ArrayList<Boolean> mChanged = new ArrayList<>();
+        int inserted;
+        int removed;
+        int changed;
+        int moved;
+        int resets;
+
+        ReplayingListener() {
+        }
+
+        ReplayingListener(List<Object> rows) {
+            sync(rows);
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            assertTrue("insert at " + position + " of " + mRows.size(), position >= 0 && position <= mRows.size());
+            for (int i = 0; i < count; i++) {
+                mRows.add(position, INSERTED);
+                mChanged.add(position, false);
+            }
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            assertTrue("remove " + position + "+" + count + " of " + mRows.size(),
+                    position >= 0 && count > 0 && position + count <= mRows.size());
+            mRows.subList(position, position + count).clear();
+            mChanged.subList(position, position + count).clear();
+            removed += count;
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            assertTrue("change " + position + "+" + count + " of " + mRows.size(),
+                    position >= 0 && count > 0 && position + count <= mRows.size());
+            for (int i = position; i < position + count; i++) {
+                mChanged.set(i, true);
+            }
+            changed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mRows.add(toPosition, mRows.remove(fromPosition));
+            mChanged.add(toPosition, mChanged.remove(fromPosition));
+            moved++;
+        }
+
+        @Override
+        public void onReset() {
+            resets++;
+            mRows.clear();
+            mChanged.clear();
+        }
+
+        /**
+         * Checks the replayed rows against rows and continues from rows: every row which was not
+         * reported inserted or changed must be the same, unchanged row.
+         */
+        void assertReplays(List<Object> rows) {
+            if (resets == 0) {
+                assertEquals("size", rows.size(), mRows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    Object replayed = mRows.get(i);
+                    if (replayed == INSERTED || mChanged.get(i)) {
+                        // rebound, e.g. a placeholder replaced by its row
+                        continue;
+                    }
+                    Object row = rows.get(i);
+                    if (!sameItem(replayed, row)) {
+                        fail("position " + i + " is " + replayed + ", expected " + row);
+                    }
+                    if (!replayed.equals(row)) {
+                        fail("position " + i + " changed to " + row + " without being reported");
+                    }
+                }
+            }
+            sync(rows);
+        }
+
+        private void sync(List<Object> rows) {
+            mRows.clear();
+            mRows.addAll(rows);
+            mChanged.clear();
+            for (int i = 0; i < rows.size(); i++) {
+                mChanged.add(false);
+            }
+            resets = 0;
+        }
+
+        void clearCounts() {
+            inserted = 0;
+            removed = 0;
+            changed = 0;
+            moved = 0;
+        }
+
+        private static boolean sameItem(Object a, Object b) {
+            if (a instanceof Row && b instanceof Row) {
+                return ((Row) a).id.equals(((Row) b).id);
+            }
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private UCTestRows() {
+    }
+
+    static Row row(int i) {
+        return new Row("row-" + i, 0);
+    }
+
+    /**
+     * Rows row-from to row-(from + count - 1).
+     */
+    static ArrayList<Object> rows(int from, int count) {
+        ArrayList<Object> rows = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            rows.add(row(i));
+        }
+        return rows;
+    }
+}